@@ -0,0 +1,77 @@
+-- Nâng cấp database đã tạo từ bản ecommerceDB.sql cũ; chạy từng khối một lần, theo thứ tự.
+USE ecommerce;
+
+-- Keyset theo giá cho danh sách sản phẩm
+CREATE INDEX `idx_product_price_id` ON `product` (`price`, `id`);
+
+-- Sổ giữ hàng cho đơn VnPay (InventoryService.reserveForOrder, StockReservationSweeper)
+CREATE TABLE `stock_reservation` (
+  `id` BIGINT PRIMARY KEY AUTO_INCREMENT,
+  `order_id` BIGINT NOT NULL,
+  `product_id` BIGINT NOT NULL,
+  `quantity` BIGINT NOT NULL,
+  `status` VARCHAR(16) NOT NULL,
+  `expires_at` DATETIME NOT NULL,
+  `created_at` DATETIME NOT NULL,
+  UNIQUE KEY `uk_stock_reservation_order_product` (`order_id`, `product_id`),
+  KEY `idx_stock_reservation_status_expires` (`status`, `expires_at`),
+  FOREIGN KEY (`order_id`) REFERENCES `orders` (`id`) ON DELETE CASCADE,
+  FOREIGN KEY (`product_id`) REFERENCES `product` (`id`)
+);
+
+-- Sản phẩm hot: tồn kho được trừ trên Redis (HotStockService)
+ALTER TABLE `product` ADD COLUMN `hot_sku` TINYINT(1) NOT NULL DEFAULT 0;
+
+-- Lịch sử đơn của user, phân trang theo (created_at, id)
+CREATE INDEX `idx_orders_user_created` ON `orders` (`user_id`, `created_at`, `id`);
+
+-- Link VnPay ký sẵn lúc tạo đơn (PaymentService)
+ALTER TABLE `orders`
+  ADD COLUMN `payment_url` VARCHAR(2048),
+  ADD COLUMN `payment_url_expires_at` DATETIME;
+
+-- IPN VnPay đã xác thực (PaymentEventProcessor); uk_payment_event_txn_ref chặn IPN lặp
+CREATE TABLE `payment_event` (
+  `id` BIGINT PRIMARY KEY AUTO_INCREMENT,
+  `txn_ref` VARCHAR(64) NOT NULL,
+  `order_id` BIGINT NOT NULL,
+  `amount` DECIMAL(12,2) NOT NULL,
+  `transaction_no` VARCHAR(32),
+  `status` VARCHAR(16) NOT NULL,
+  `attempts` INT NOT NULL DEFAULT 0,
+  `last_error` VARCHAR(500),
+  `created_at` DATETIME NOT NULL,
+  `processed_at` DATETIME,
+  UNIQUE KEY `uk_payment_event_txn_ref` (`txn_ref`),
+  KEY `idx_payment_event_status_created` (`status`, `created_at`)
+);
+
+-- Hàng đợi mail (EmailService ghi, EmailOutboxDispatcher gửi)
+CREATE TABLE `email_outbox` (
+  `id` BIGINT PRIMARY KEY AUTO_INCREMENT,
+  `recipient` VARCHAR(320) NOT NULL,
+  `subject` VARCHAR(255) NOT NULL,
+  `body` TEXT,
+  `status` VARCHAR(16) NOT NULL,
+  `attempts` INT NOT NULL DEFAULT 0,
+  `next_attempt_at` DATETIME NOT NULL,
+  `last_error` VARCHAR(500),
+  `created_at` DATETIME NOT NULL,
+  `sent_at` DATETIME,
+  KEY `idx_email_outbox_status_next` (`status`, `next_attempt_at`)
+);
+
+-- Sweeper hóa đơn quét đơn theo created_at
+CREATE INDEX `idx_orders_created` ON `orders` (`created_at`);
+
+-- Tương tác gần nhất của user (RecentInteractionsCache)
+CREATE INDEX `idx_user_interactions_user_created` ON `user_interactions` (`user_id`, `created_at`);
+
+-- Claim ghi ngược tồn kho hot đã áp vào product.quantity (HotStockService), chống áp hai lần khi replay
+CREATE TABLE `hot_stock_writeback` (
+  `claim_id` VARCHAR(36) NOT NULL,
+  `product_id` BIGINT NOT NULL,
+  `applied_at` DATETIME NOT NULL,
+  PRIMARY KEY (`claim_id`, `product_id`),
+  KEY `idx_hot_stock_writeback_applied` (`applied_at`)
+);
@@ -28,7 +28,8 @@ CREATE TABLE `product` (
   `description` TEXT,                   
   `rating_count` INT DEFAULT 0,  
   `rating` DECIMAL(3,1) DEFAULT 0,
-  `quantity` BIGINT DEFAULT 100        
+  `quantity` BIGINT DEFAULT 100,
+  `hot_sku` TINYINT(1) NOT NULL DEFAULT 0
 );
 
 CREATE TABLE `cart` (
@@ -45,6 +46,8 @@ CREATE TABLE `orders` (
   `status` VARCHAR(50),
   `total_price` DECIMAL(12,2),
   `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
+  `payment_url` VARCHAR(2048),
+  `payment_url_expires_at` DATETIME,
   FOREIGN KEY (`user_id`) REFERENCES `users` (`id`),
   FOREIGN KEY (`payment_id`) REFERENCES `payment_method` (`id`)
 );
@@ -126,6 +129,67 @@ CREATE TABLE `user_interactions` (
   FOREIGN KEY (`product_id`) REFERENCES `product` (`id`) ON DELETE CASCADE
 );
 
+CREATE TABLE `stock_reservation` (
+  `id` BIGINT PRIMARY KEY AUTO_INCREMENT,
+  `order_id` BIGINT NOT NULL,
+  `product_id` BIGINT NOT NULL,
+  `quantity` BIGINT NOT NULL,
+  `status` VARCHAR(16) NOT NULL,
+  `expires_at` DATETIME NOT NULL,
+  `created_at` DATETIME NOT NULL,
+  UNIQUE KEY `uk_stock_reservation_order_product` (`order_id`, `product_id`),
+  KEY `idx_stock_reservation_status_expires` (`status`, `expires_at`),
+  FOREIGN KEY (`order_id`) REFERENCES `orders` (`id`) ON DELETE CASCADE,
+  FOREIGN KEY (`product_id`) REFERENCES `product` (`id`)
+);
+
+-- Không có FK tới orders: IPN đã trả tiền vẫn phải được ghi kể cả khi đơn đã bị xóa
+CREATE TABLE `payment_event` (
+  `id` BIGINT PRIMARY KEY AUTO_INCREMENT,
+  `txn_ref` VARCHAR(64) NOT NULL,
+  `order_id` BIGINT NOT NULL,
+  `amount` DECIMAL(12,2) NOT NULL,
+  `transaction_no` VARCHAR(32),
+  `status` VARCHAR(16) NOT NULL,
+  `attempts` INT NOT NULL DEFAULT 0,
+  `last_error` VARCHAR(500),
+  `created_at` DATETIME NOT NULL,
+  `processed_at` DATETIME,
+  UNIQUE KEY `uk_payment_event_txn_ref` (`txn_ref`),
+  KEY `idx_payment_event_status_created` (`status`, `created_at`)
+);
+
+CREATE TABLE `email_outbox` (
+  `id` BIGINT PRIMARY KEY AUTO_INCREMENT,
+  `recipient` VARCHAR(320) NOT NULL,
+  `subject` VARCHAR(255) NOT NULL,
+  `body` TEXT,
+  `status` VARCHAR(16) NOT NULL,
+  `attempts` INT NOT NULL DEFAULT 0,
+  `next_attempt_at` DATETIME NOT NULL,
+  `last_error` VARCHAR(500),
+  `created_at` DATETIME NOT NULL,
+  `sent_at` DATETIME,
+  KEY `idx_email_outbox_status_next` (`status`, `next_attempt_at`)
+);
+
+-- Claim ghi ngược tồn kho hot đã áp vào product.quantity (HotStockService), chống áp hai lần khi replay
+CREATE TABLE `hot_stock_writeback` (
+  `claim_id` VARCHAR(36) NOT NULL,
+  `product_id` BIGINT NOT NULL,
+  `applied_at` DATETIME NOT NULL,
+  PRIMARY KEY (`claim_id`, `product_id`),
+  KEY `idx_hot_stock_writeback_applied` (`applied_at`)
+);
+
+CREATE INDEX `idx_orders_user_created` ON `orders` (`user_id`, `created_at`, `id`);
+
+CREATE INDEX `idx_orders_created` ON `orders` (`created_at`);
+
+CREATE INDEX `idx_product_price_id` ON `product` (`price`, `id`);
+
+CREATE INDEX `idx_user_interactions_user_created` ON `user_interactions` (`user_id`, `created_at`);
+
 INSERT INTO roles (role_name) VALUES ('USER'), ('ADMIN');
 INSERT INTO payment_method (method_name) VALUES ('COD'), ('VNPAY');
 
@@ -0,0 +1,190 @@
+package com.trash.ecommerce.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.trash.ecommerce.config.ProductCacheConfig;
+import com.trash.ecommerce.dto.CacheStatsDTO;
+import com.trash.ecommerce.dto.ProductDetailsResponseDTO;
+import com.trash.ecommerce.event.ProductChangedEvent;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Read-through cache for product details: a bounded in-process Caffeine cache (L1) in front of
+ * Redis (L2).
+ * Entries are dropped after the transaction that changed the product commits.
+ * Redis failures degrade to L1 + database instead of failing the request.
+ * A value loaded before a concurrent eviction is never written back: every eviction stores a new
+ * version token next to the Redis entry (and bumps a local generation), and a loader only
+ * writes if the version it saw before loading is still current.
+ */
+@Component
+public class ProductDetailsCache {
+    private static final Logger logger = LoggerFactory.getLogger(ProductDetailsCache.class);
+    private static final String KEY_PREFIX = "product:details:";
+    private static final String VERSION_PREFIX = "product:details-version:";
+
+    private static final DefaultRedisScript<String> VERSION_SCRIPT =
+            new DefaultRedisScript<>("return redis.call('GET', KEYS[1])", String.class);
+    // KEYS[1] = entry, KEYS[2] = version; ARGV = version đọc trước khi load ('' nếu chưa có), TTL, value
+    private static final DefaultRedisScript<Long> PUT_IF_VERSION_SCRIPT = new DefaultRedisScript<>("""
+            if (redis.call('GET', KEYS[2]) or '') ~= ARGV[1] then
+              return 0
+            end
+            redis.call('SET', KEYS[1], ARGV[3], 'EX', ARGV[2])
+            return 1
+            """, Long.class);
+    // Token mới thay vì INCR: version key hết hạn rồi được tạo lại không thể trùng giá trị cũ
+    private static final DefaultRedisScript<Long> EVICT_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('SET', KEYS[2], ARGV[1], 'EX', ARGV[2])
+            redis.call('DEL', KEYS[1])
+            return 1
+            """, Long.class);
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+    @Autowired
+    private ProductCacheConfig productCacheConfig;
+
+    private final LongAdder localHits = new LongAdder();
+    private final LongAdder redisHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder redisErrors = new LongAdder();
+    private final AtomicLong localGeneration = new AtomicLong();
+
+    private Cache<Long, ProductDetailsResponseDTO> local;
+
+    @PostConstruct
+    void init() {
+        // Lượt đọc L1 không qua lock chung nên các request song song không chờ nhau
+        local = Caffeine.newBuilder()
+                .maximumSize(productCacheConfig.getLocalMaxSize())
+                .expireAfterWrite(Duration.ofSeconds(productCacheConfig.getLocalTtlSeconds()))
+                // Chỉ tính khi bị đẩy ra vì đầy/hết hạn, invalidate do sản phẩm đổi đã nằm trong invalidations
+                .<Long, ProductDetailsResponseDTO>evictionListener((productId, value, cause) -> evictions.increment())
+                .build();
+    }
+
+    public ProductDetailsResponseDTO get(Long productId, Supplier<ProductDetailsResponseDTO> loader) {
+        ProductDetailsResponseDTO cached = local.getIfPresent(productId);
+        if (cached != null) {
+            localHits.increment();
+            return cached;
+        }
+        long generation = localGeneration.get();
+        cached = getRedis(productId);
+        if (cached != null) {
+            redisHits.increment();
+            putLocal(productId, cached, generation);
+            return cached;
+        }
+        misses.increment();
+        String version = getVersion(productId);
+        ProductDetailsResponseDTO loaded = loader.get();
+        if (loaded != null) {
+            if (version != null) {
+                putRedis(productId, loaded, version);
+            }
+            putLocal(productId, loaded, generation);
+        }
+        return loaded;
+    }
+
+    public void evict(Long productId) {
+        if (productId == null) {
+            return;
+        }
+        invalidations.increment();
+        localGeneration.incrementAndGet();
+        local.invalidate(productId);
+        try {
+            redisTemplate.execute(EVICT_SCRIPT, RedisSerializer.string(), null,
+                    List.of(KEY_PREFIX + productId, VERSION_PREFIX + productId),
+                    UUID.randomUUID().toString(), String.valueOf(productCacheConfig.getRedisTtlSeconds()));
+        } catch (Exception e) {
+            redisErrors.increment();
+            logger.warn("Could not evict product {} from Redis: {}", productId, e.getMessage());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        evict(event.getProductId());
+    }
+
+    public CacheStatsDTO stats() {
+        long l1 = localHits.sum();
+        long l2 = redisHits.sum();
+        long miss = misses.sum();
+        long total = l1 + l2 + miss;
+        return new CacheStatsDTO(l1, l2, miss, evictions.sum(), invalidations.sum(), redisErrors.sum(),
+                (int) local.estimatedSize(), total == 0 ? 0.0 : (double) (l1 + l2) / total);
+    }
+
+    private void putLocal(Long productId, ProductDetailsResponseDTO value, long generation) {
+        // Có evict trong lúc đọc: giá trị có thể đã cũ, lần đọc sau sẽ load lại.
+        // compute giữ lock của key nên invalidate chạy song song chỉ có thể xảy ra trước hoặc sau nó
+        local.asMap().compute(productId, (id, current) -> localGeneration.get() == generation ? value : current);
+    }
+
+    private ProductDetailsResponseDTO getRedis(Long productId) {
+        try {
+            Object value = redisTemplate.opsForValue().get(KEY_PREFIX + productId);
+            return value instanceof ProductDetailsResponseDTO dto ? dto : null;
+        } catch (Exception e) {
+            redisErrors.increment();
+            logger.warn("Could not read product {} from Redis: {}", productId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Returns the current version token, {@code ""} when the product was not evicted recently,
+     * or {@code null} when Redis is unavailable and the loaded value must not be written back.
+     */
+    private String getVersion(Long productId) {
+        try {
+            String version = redisTemplate.execute(VERSION_SCRIPT, RedisSerializer.string(), RedisSerializer.string(),
+                    List.of(VERSION_PREFIX + productId));
+            return version == null ? "" : version;
+        } catch (Exception e) {
+            redisErrors.increment();
+            logger.warn("Could not read the cache version of product {} from Redis: {}", productId, e.getMessage());
+            return null;
+        }
+    }
+
+    private void putRedis(Long productId, ProductDetailsResponseDTO value, String version) {
+        try {
+            @SuppressWarnings("unchecked")
+            RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+            redisTemplate.execute(PUT_IF_VERSION_SCRIPT, RedisSerializer.byteArray(), null,
+                    List.of(KEY_PREFIX + productId, VERSION_PREFIX + productId),
+                    version.getBytes(StandardCharsets.UTF_8),
+                    String.valueOf(productCacheConfig.getRedisTtlSeconds()).getBytes(StandardCharsets.UTF_8),
+                    valueSerializer.serialize(value));
+        } catch (Exception e) {
+            redisErrors.increment();
+            logger.warn("Could not write product {} to Redis: {}", productId, e.getMessage());
+        }
+    }
+}
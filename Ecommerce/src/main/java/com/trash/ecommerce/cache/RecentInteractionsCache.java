@@ -0,0 +1,230 @@
+package com.trash.ecommerce.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import com.trash.ecommerce.config.RecentInteractionsConfig;
+import com.trash.ecommerce.dto.RecentInteractionDTO;
+import com.trash.ecommerce.repository.UserInteractionsRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * The last {@code window} distinct products each user viewed, newest first. Redis keeps one sorted
+ * set per user (product id scored by view time, trimmed to the window on every write) and a bounded
+ * LRU mirrors it for active users. A user missing from Redis is backfilled from the newest
+ * user_interactions rows, so reads never walk a user's whole history.
+ */
+@Component
+public class RecentInteractionsCache {
+    private static final Logger logger = LoggerFactory.getLogger(RecentInteractionsCache.class);
+    private static final String KEY_PREFIX = "interactions:recent:";
+    // Chỉ ghi vào key đã có; key chưa có sẽ được nạp đầy đủ từ DB ở lần đọc đầu tiên
+    private static final byte[] APPEND_SCRIPT = (
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+            "for i = 3, #ARGV, 2 do redis.call('ZADD', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "redis.call('ZREMRANGEBYRANK', KEYS[1], 0, -tonumber(ARGV[1]) - 1) " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[2]) " +
+            "return 1").getBytes(StandardCharsets.UTF_8);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private RecentInteractionsConfig config;
+    @Autowired
+    private UserInteractionsRepository userInteractionsRepository;
+
+    public record View(long userId, long productId, long viewedAt) {
+    }
+
+    private record Entry(List<Long> productIds, long expiresAt) {
+    }
+
+    private Map<Long, Entry> local;
+
+    @PostConstruct
+    void init() {
+        int maxUsers = config.getLocalMaxUsers();
+        local = new LinkedHashMap<>(Math.min(maxUsers, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > maxUsers;
+            }
+        };
+    }
+
+    public List<Long> recentProductIds(Long userId) {
+        List<Long> productIds = getLocal(userId);
+        if (productIds != null) {
+            return productIds;
+        }
+        productIds = getRedis(userId);
+        if (productIds == null) {
+            productIds = loadFromDatabase(userId);
+        }
+        putLocal(userId, productIds);
+        return productIds;
+    }
+
+    /**
+     * Applies views that were just written to user_interactions: one pipelined round trip for all
+     * users in the batch, plus an in-place update of the users mirrored locally.
+     */
+    public void recordAll(List<View> views) {
+        if (views.isEmpty()) {
+            return;
+        }
+        Map<Long, List<View>> byUser = new LinkedHashMap<>();
+        for (View view : views) {
+            byUser.computeIfAbsent(view.userId(), id -> new ArrayList<>()).add(view);
+        }
+        byte[] window = bytes(config.getWindow());
+        byte[] ttlSeconds = bytes(config.getRedisTtlDays() * 24 * 60 * 60);
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (Map.Entry<Long, List<View>> user : byUser.entrySet()) {
+                    List<View> userViews = user.getValue();
+                    byte[][] keysAndArgs = new byte[3 + 2 * userViews.size()][];
+                    keysAndArgs[0] = key(user.getKey());
+                    keysAndArgs[1] = window;
+                    keysAndArgs[2] = ttlSeconds;
+                    for (int i = 0; i < userViews.size(); i++) {
+                        keysAndArgs[3 + 2 * i] = bytes(userViews.get(i).viewedAt());
+                        keysAndArgs[4 + 2 * i] = bytes(userViews.get(i).productId());
+                    }
+                    connection.scriptingCommands().eval(APPEND_SCRIPT, ReturnType.INTEGER, 1, keysAndArgs);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            logger.warn("Could not append {} views to Redis: {}", views.size(), e.getMessage());
+        }
+
+        int limit = config.getWindow();
+        synchronized (local) {
+            for (Map.Entry<Long, List<View>> user : byUser.entrySet()) {
+                Entry entry = local.get(user.getKey());
+                if (entry == null) {
+                    continue;
+                }
+                List<Long> productIds = entry.productIds();
+                for (View view : user.getValue()) {
+                    productIds = prepend(productIds, view.productId(), limit);
+                }
+                local.put(user.getKey(), new Entry(productIds, entry.expiresAt()));
+            }
+        }
+    }
+
+    private static List<Long> prepend(List<Long> productIds, long productId, int limit) {
+        List<Long> updated = new ArrayList<>(Math.min(productIds.size() + 1, limit));
+        updated.add(productId);
+        for (Long id : productIds) {
+            if (updated.size() == limit) {
+                break;
+            }
+            if (id != productId) {
+                updated.add(id);
+            }
+        }
+        return List.copyOf(updated);
+    }
+
+    private List<Long> getLocal(Long userId) {
+        synchronized (local) {
+            Entry entry = local.get(userId);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAt() < System.currentTimeMillis()) {
+                local.remove(userId);
+                return null;
+            }
+            return entry.productIds();
+        }
+    }
+
+    private void putLocal(Long userId, List<Long> productIds) {
+        long expiresAt = System.currentTimeMillis() + config.getLocalTtlSeconds() * 1000;
+        synchronized (local) {
+            local.put(userId, new Entry(productIds, expiresAt));
+        }
+    }
+
+    private List<Long> getRedis(Long userId) {
+        try {
+            Set<String> members = stringRedisTemplate.opsForZSet()
+                    .reverseRange(KEY_PREFIX + userId, 0, config.getWindow() - 1);
+            // Sorted set rỗng không tồn tại trong Redis nên rỗng nghĩa là chưa có key
+            if (members == null || members.isEmpty()) {
+                return null;
+            }
+            List<Long> productIds = new ArrayList<>(members.size());
+            for (String member : members) {
+                productIds.add(Long.valueOf(member));
+            }
+            return List.copyOf(productIds);
+        } catch (Exception e) {
+            logger.warn("Could not read recent interactions of user {} from Redis: {}", userId, e.getMessage());
+            return null;
+        }
+    }
+
+    private List<Long> loadFromDatabase(Long userId) {
+        int window = config.getWindow();
+        // Đọc dư vì một sản phẩm có thể được xem nhiều lần; vẫn chỉ là một range scan trên index
+        List<RecentInteractionDTO> rows = userInteractionsRepository.findRecentByUserId(userId,
+                PageRequest.of(0, window * 4));
+        Map<Long, Long> viewedAt = new LinkedHashMap<>();
+        for (RecentInteractionDTO row : rows) {
+            if (viewedAt.size() == window) {
+                break;
+            }
+            viewedAt.putIfAbsent(row.getProductId(),
+                    row.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+        if (!viewedAt.isEmpty()) {
+            writeRedis(userId, viewedAt);
+        }
+        return List.copyOf(viewedAt.keySet());
+    }
+
+    private void writeRedis(Long userId, Map<Long, Long> viewedAt) {
+        byte[] key = key(userId);
+        long ttlSeconds = config.getRedisTtlDays() * 24 * 60 * 60;
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (Map.Entry<Long, Long> view : viewedAt.entrySet()) {
+                    connection.zSetCommands().zAdd(key, view.getValue(), bytes(view.getKey()));
+                }
+                connection.keyCommands().expire(key, ttlSeconds);
+                return null;
+            });
+        } catch (Exception e) {
+            logger.warn("Could not write recent interactions of user {} to Redis: {}", userId, e.getMessage());
+        }
+    }
+
+    private static byte[] key(long userId) {
+        return (KEY_PREFIX + userId).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(long value) {
+        return Long.toString(value).getBytes(StandardCharsets.UTF_8);
+    }
+}
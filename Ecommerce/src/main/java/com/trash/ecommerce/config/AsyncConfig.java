@@ -0,0 +1,84 @@
+package com.trash.ecommerce.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+@EnableAsync
+@EnableScheduling
+public class AsyncConfig {
+
+    // Một luồng duy nhất: rebuild và cập nhật từng sản phẩm của recommendation không bao giờ chạy chồng lên nhau
+    @Bean(name = "recommendationExecutor")
+    public ThreadPoolTaskExecutor recommendationExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(10000);
+        executor.setThreadNamePrefix("recommendation-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Tính lại gợi ý của user có tương tác mới, tách khỏi luồng rebuild model
+    @Bean(name = "personalRecommendationExecutor")
+    public ThreadPoolTaskExecutor personalRecommendationExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("personal-recommendation-");
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "searchIndexExecutor")
+    public ThreadPoolTaskExecutor searchIndexExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(10000);
+        executor.setThreadNamePrefix("search-index-");
+        executor.initialize();
+        return executor;
+    }
+
+    // IPN chỉ ghi nhận thanh toán; pool này áp dụng nó (đổi trạng thái đơn, chốt kho, hóa đơn, mail)
+    @Bean(name = "paymentExecutor")
+    public ThreadPoolTaskExecutor paymentExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(1000);
+        executor.setThreadNamePrefix("payment-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Flush theo kích thước của InteractionBuffer; hàng đợi 1 vì một lần flush đã rút hết buffer
+    @Bean(name = "interactionExecutor")
+    public ThreadPoolTaskExecutor interactionExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.setThreadNamePrefix("interaction-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Lập hóa đơn cho đơn đã commit; đơn bị bỏ sót do đầy hàng đợi sẽ được InvoiceBuilder quét lại
+    @Bean(name = "invoiceExecutor")
+    public ThreadPoolTaskExecutor invoiceExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(1000);
+        executor.setThreadNamePrefix("invoice-");
+        executor.initialize();
+        return executor;
+    }
+}
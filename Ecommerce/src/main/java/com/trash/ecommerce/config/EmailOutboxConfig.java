@@ -0,0 +1,19 @@
+package com.trash.ecommerce.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "email.outbox")
+@Data
+public class EmailOutboxConfig {
+    private int batchSize = 50;
+    private int maxAttempts = 6;
+    // Lần thử thứ n chờ retryBaseSeconds * 2^(n-1)
+    private long retryBaseSeconds = 30;
+    // Thời gian một batch được giữ riêng cho dispatcher trước khi instance khác được lấy lại
+    private long leaseSeconds = 300;
+    private int domainRatePerMinute = 120;
+    private int retentionDays = 7;
+}
@@ -0,0 +1,17 @@
+package com.trash.ecommerce.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "interaction.buffer")
+@Data
+public class InteractionBufferConfig {
+    // Số event tối đa chờ ghi; vượt quá thì event bị bỏ và đếm vào dropped
+    private int capacity = 10000;
+    private int batchSize = 500;
+    private long flushIntervalMs = 1000;
+    // Cùng user xem lại cùng sản phẩm trong khoảng này chỉ được ghi một lần
+    private long dedupeWindowMs = 30000;
+}
@@ -4,14 +4,12 @@ import java.io.IOException;
 
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.ApplicationContext;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import com.trash.ecommerce.dto.JwtPrincipal;
 import com.trash.ecommerce.service.JwtService;
 
 import jakarta.servlet.FilterChain;
@@ -24,24 +22,22 @@ public class JwtFilter extends OncePerRequestFilter {
 
     @Autowired
     private JwtService jwtService;
-    @Autowired
-    private ApplicationContext context;
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
 
         String authHeader = request.getHeader("Authorization");
-        String token = null;
-        String username = null;
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            token = authHeader.substring(7);
-            username = jwtService.extractUsername(token);
-        }
-        System.out.println(token);
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = context.getBean(UserDetailsService.class).loadUserByUsername(username);
-            if (jwtService.validationTokenCheck(token, userDetails)) {
-                UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+        if (authHeader != null && authHeader.startsWith("Bearer ")
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            // Quyền lấy từ claims của token đã verify, không query bảng users mỗi request
+            String token = authHeader.substring(7);
+            JwtPrincipal principal = jwtService.authenticate(token);
+            if (principal != null) {
+                // Controller gọi jwtService.extractId(token) sẽ đọc lại từ đây, không parse lần nữa
+                request.setAttribute(JwtService.TOKEN_ATTRIBUTE, token);
+                request.setAttribute(JwtService.PRINCIPAL_ATTRIBUTE, principal);
+                UsernamePasswordAuthenticationToken authenticationToken =
+                        new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
                 SecurityContextHolder.getContext().setAuthentication(authenticationToken);
             }
         }
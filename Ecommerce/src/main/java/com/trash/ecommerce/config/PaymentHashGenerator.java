@@ -1,47 +1,93 @@
 package com.trash.ecommerce.config;
 
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
-import java.util.Iterator;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
 import java.util.Map;
 
+/**
+ * HMAC-SHA512 signer for VnPay. Each thread keeps a {@link Mac} already initialised with the
+ * configured secret, so signing a URL or checking an IPN costs one {@code doFinal} and a table
+ * lookup per output byte instead of a provider lookup, a key setup and 64 {@code String.format} calls.
+ */
 @Component
 public class PaymentHashGenerator {
+    private static final String ALGORITHM = "HmacSHA512";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
     @Autowired
     private VnPayConfig vnPayConfig;
-    public String HmacSHA512(String secretKey,String data ) {
+
+    private SecretKeySpec keySpec;
+    // doFinal đưa Mac về trạng thái ngay sau init nên mỗi thread dùng lại một instance
+    private final ThreadLocal<Mac> mac = ThreadLocal.withInitial(() -> {
         try {
-            Mac hmac = Mac.getInstance("HmacSHA512");
-            SecretKeySpec keySpec = new SecretKeySpec(secretKey.getBytes(StandardCharsets.UTF_8), "HmacSHA512");
-            hmac.init(keySpec);
-            byte[] hashBytes = hmac.doFinal(data.getBytes(StandardCharsets.UTF_8));
-            return bytesToHex(hashBytes);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+            return newMac(keySpec);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
         }
+    });
+
+    @PostConstruct
+    void init() {
+        keySpec = keySpecOf(vnPayConfig.getHashSecret());
     }
 
-    private static String bytesToHex(byte[] bytes) {
-        StringBuilder result = new StringBuilder();
-        for (byte b : bytes) {
-            result.append(String.format("%02x", b));
+    public String HmacSHA512(String secretKey, String data) {
+        try {
+            Mac hmac = secretKey.equals(vnPayConfig.getHashSecret()) ? mac.get() : newMac(keySpecOf(secretKey));
+            return bytesToHex(hmac.doFinal(data.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException(e);
         }
-        return result.toString();
     }
 
+    /**
+     * Signs {@code fields} (already sorted by name) the way VnPay signs its callbacks.
+     */
     public String hashAllFields(Map<String, String> fields) {
-        StringBuilder query = new StringBuilder();
-        Iterator<String> idx = fields.keySet().iterator();
-        while (idx.hasNext()) {
-            String fieldName = idx.next();
-            String fileValue = fields.get(fieldName);
+        StringBuilder query = new StringBuilder(512);
+        for (Map.Entry<String, String> field : fields.entrySet()) {
             if (!query.isEmpty()) query.append('&');
-            query.append(fieldName).append('=').append(fileValue);
+            query.append(field.getKey()).append('=').append(field.getValue());
         }
         return HmacSHA512(vnPayConfig.getHashSecret(), query.toString());
     }
+
+    /**
+     * Checks a VnPay {@code vnp_SecureHash} in constant time.
+     */
+    public boolean verify(Map<String, String> fields, String secureHash) {
+        if (secureHash == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(hashAllFields(fields).getBytes(StandardCharsets.US_ASCII),
+                secureHash.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static SecretKeySpec keySpecOf(String secretKey) {
+        return new SecretKeySpec(secretKey.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+    }
+
+    private static Mac newMac(SecretKeySpec key) throws GeneralSecurityException {
+        Mac hmac = Mac.getInstance(ALGORITHM);
+        hmac.init(key);
+        return hmac;
+    }
+
+    private static String bytesToHex(byte[] bytes) {
+        char[] out = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int b = bytes[i] & 0xff;
+            out[2 * i] = HEX[b >>> 4];
+            out[2 * i + 1] = HEX[b & 0x0f];
+        }
+        return new String(out);
+    }
 }
@@ -0,0 +1,15 @@
+package com.trash.ecommerce.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "product-cache")
+@Data
+public class ProductCacheConfig {
+    private int localMaxSize = 10000;
+    // L1 không được invalidate chéo giữa các instance nên TTL phải ngắn
+    private long localTtlSeconds = 30;
+    private long redisTtlSeconds = 600;
+}
@@ -0,0 +1,17 @@
+package com.trash.ecommerce.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "interaction.recent")
+@Data
+public class RecentInteractionsConfig {
+    // Số sản phẩm khác nhau gần nhất giữ cho mỗi user
+    private int window = 200;
+    private long redisTtlDays = 30;
+    private int localMaxUsers = 10000;
+    // Bản sao trong bộ nhớ chỉ được cập nhật bởi instance đã flush event nên TTL phải ngắn
+    private long localTtlSeconds = 60;
+}
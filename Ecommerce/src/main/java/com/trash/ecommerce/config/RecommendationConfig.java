@@ -0,0 +1,29 @@
+package com.trash.ecommerce.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "recommendation")
+@Data
+public class RecommendationConfig {
+    private int maxFeatures = 5000;
+    private int topN = 10;
+    private int loadBatchSize = 1000;
+    private int neighbors = 50;
+    private String indexPath = "data/recommendation/neighbors.idx";
+    // Danh sách gợi ý riêng của từng user trong Redis, được tính lại khi user có tương tác mới
+    private long personalTtlSeconds = 3600;
+    private long popularRefreshSeconds = 600;
+    // HNSW trên embedding SVD cho gợi ý theo lịch sử; catalog nhỏ hơn annMinProducts vẫn tìm chính xác
+    // (inverted index đủ nhanh ở cỡ đó, còn shortlist từ SVD làm mất một phần độ chính xác)
+    private boolean annEnabled = true;
+    private int annMinProducts = 100000;
+    private int embeddingDimensions = 64;
+    private int hnswM = 16;
+    private int hnswEfConstruction = 100;
+    // Tăng efSearch/annCandidateFactor để tăng recall, đổi lại độ trễ
+    private int hnswEfSearch = 100;
+    private int annCandidateFactor = 20;
+}
@@ -0,0 +1,16 @@
+package com.trash.ecommerce.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "trending")
+@Data
+public class TrendingConfig {
+    // Sau mỗi half-life một lượt xem chỉ còn tính bằng nửa lượt
+    private long halfLifeHours = 24;
+    private int maxListSize = 100;
+    // Sản phẩm có số lượt xem đã suy giảm dưới ngưỡng này bị bỏ khỏi bộ nhớ
+    private double minCount = 0.05;
+}
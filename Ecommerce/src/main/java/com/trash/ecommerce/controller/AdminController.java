@@ -1,11 +1,17 @@
 package com.trash.ecommerce.controller;
 
+import com.trash.ecommerce.cache.ProductDetailsCache;
+import com.trash.ecommerce.dto.CacheStatsDTO;
+import com.trash.ecommerce.dto.CursorPageDTO;
+import com.trash.ecommerce.dto.InteractionBufferStatsDTO;
 import com.trash.ecommerce.dto.ProductRequestDTO;
 import com.trash.ecommerce.dto.ProductResponseDTO;
 import com.trash.ecommerce.dto.UserProfileDTO;
 import com.trash.ecommerce.dto.UserResponseDTO;
 import com.trash.ecommerce.exception.FindingUserError;
 import com.trash.ecommerce.exception.ProductCreatingException;
+import com.trash.ecommerce.service.HotStockService;
+import com.trash.ecommerce.service.InteractionBuffer;
 import com.trash.ecommerce.service.ProductService;
 import com.trash.ecommerce.service.UserService;
 import org.slf4j.Logger;
@@ -18,6 +24,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
+import java.util.Set;
 @RestController
 @RequestMapping("api/admin")
 public class AdminController {
@@ -29,6 +36,15 @@ public class AdminController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private ProductDetailsCache productDetailsCache;
+
+    @Autowired
+    private HotStockService hotStockService;
+
+    @Autowired
+    private InteractionBuffer interactionBuffer;
+
     // ========== USER MANAGEMENT ==========
     @GetMapping("/users")
     public ResponseEntity<List<UserProfileDTO>> getAllUsers(
@@ -43,6 +59,18 @@ public class AdminController {
         }
     }
 
+    @GetMapping("/users/scroll")
+    public ResponseEntity<CursorPageDTO<UserProfileDTO>> scrollUsers(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "20", required = false) int size
+    ) {
+        try {
+            return ResponseEntity.ok(userService.scrollUsers(cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+    }
+
     @GetMapping("/users/{id}")
     public ResponseEntity<UserProfileDTO> findUser(@PathVariable Long id) {
         try {
@@ -66,6 +94,18 @@ public class AdminController {
         }
     }
 
+    @PutMapping("/users/{id}/roles")
+    public ResponseEntity<UserProfileDTO> updateUserRoles(
+            @PathVariable Long id,
+            @RequestBody Set<String> roles
+    ) {
+        try {
+            return ResponseEntity.ok(userService.updateRoles(id, roles));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+    }
+
     // ========== PRODUCT MANAGEMENT ==========
     @PostMapping("/products")
     public ResponseEntity<ProductResponseDTO> addProduct(
@@ -104,4 +144,23 @@ public class AdminController {
             throw new ProductCreatingException(e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    @PutMapping("/products/{id}/hot")
+    public ResponseEntity<ProductResponseDTO> setHotProduct(
+            @PathVariable Long id,
+            @RequestParam boolean enabled
+    ) {
+        return ResponseEntity.ok(hotStockService.setHot(id, enabled));
+    }
+
+    // ========== CACHE ==========
+    @GetMapping("/cache/products/stats")
+    public ResponseEntity<CacheStatsDTO> productCacheStats() {
+        return ResponseEntity.ok(productDetailsCache.stats());
+    }
+
+    @GetMapping("/interactions/buffer/stats")
+    public ResponseEntity<InteractionBufferStatsDTO> interactionBufferStats() {
+        return ResponseEntity.ok(interactionBuffer.stats());
+    }
+}
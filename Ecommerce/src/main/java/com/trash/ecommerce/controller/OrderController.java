@@ -1,8 +1,10 @@
 package com.trash.ecommerce.controller;
 
+import com.trash.ecommerce.dto.CursorPageDTO;
 import com.trash.ecommerce.dto.OrderMessageResponseDTO;
 import com.trash.ecommerce.dto.OrderResponseDTO;
 import com.trash.ecommerce.dto.OrderSummaryDTO;
+import com.trash.ecommerce.exception.InsufficientStockException;
 import com.trash.ecommerce.service.JwtService;
 import com.trash.ecommerce.service.OrderService;
 import com.trash.ecommerce.service.UserService;
@@ -29,29 +31,58 @@ public class OrderController {
     private UserService userService;
 
     @GetMapping("/my-orders")
-    public ResponseEntity<List<OrderSummaryDTO>> getMyOrders(
-            @RequestHeader("Authorization") String token,
-            HttpServletRequest request) {
+    public ResponseEntity<List<OrderSummaryDTO>> getMyOrders(@RequestHeader("Authorization") String token) {
         try {
             Long userId = jwtService.extractId(token);
-            String ipAddress = userService.getClientIpAddress(request);
-            List<OrderSummaryDTO> orders = orderService.getAllMyOrders(userId, ipAddress);
+            List<OrderSummaryDTO> orders = orderService.getAllMyOrders(userId);
             return ResponseEntity.ok(orders);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
         } catch (Exception e) {
             logger.error("Generating order has some errors", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    @GetMapping("/my-orders/page")
+    public ResponseEntity<List<OrderSummaryDTO>> getMyOrdersPage(
+            @RequestHeader("Authorization") String token,
+            @RequestParam(value = "noPage", defaultValue = "0") int noPage,
+            @RequestParam(value = "sizePage", defaultValue = "20") int sizePage) {
+        try {
+            Long userId = jwtService.extractId(token);
+            return ResponseEntity.ok(orderService.getMyOrdersPage(userId, noPage, sizePage));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (Exception e) {
+            logger.error("Error paging orders", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @GetMapping("/my-orders/scroll")
+    public ResponseEntity<CursorPageDTO<OrderSummaryDTO>> scrollMyOrders(
+            @RequestHeader("Authorization") String token,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "20") int size) {
+        try {
+            Long userId = jwtService.extractId(token);
+            return ResponseEntity.ok(orderService.scrollMyOrders(userId, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (Exception e) {
+            logger.error("Error scrolling orders", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     @GetMapping("/{orderId}")
     public ResponseEntity<OrderResponseDTO> getOrderById(
             @RequestHeader("Authorization") String token,
-            @PathVariable Long orderId,
-            HttpServletRequest request) {
+            @PathVariable Long orderId) {
         try {
             Long userId = jwtService.extractId(token);
-            String ipAddress = userService.getClientIpAddress(request);
-            OrderResponseDTO orderDetail = orderService.getOrderById(userId, orderId, ipAddress);
+            OrderResponseDTO orderDetail = orderService.getOrderById(userId, orderId);
 
             return ResponseEntity.ok(orderDetail);
         } catch (Exception e) {
@@ -61,7 +92,7 @@ public class OrderController {
     }
 
     @PostMapping("/create")
-    public ResponseEntity<OrderResponseDTO> createOrder(
+    public ResponseEntity<?> createOrder(
             @RequestHeader("Authorization") String token,
             @RequestParam(value = "paymentMethod", defaultValue = "1") Long paymentMethodId,
             HttpServletRequest request) {
@@ -69,6 +100,8 @@ public class OrderController {
             Long userId = jwtService.extractId(token);
             OrderResponseDTO order = orderService.createMyOrder(userId, paymentMethodId, userService.getClientIpAddress(request));
             return ResponseEntity.ok(order);
+        } catch (InsufficientStockException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getShortages());
         } catch (Exception e) {
             logger.error("Generating order has some errors", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
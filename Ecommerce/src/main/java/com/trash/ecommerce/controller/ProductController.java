@@ -7,9 +7,13 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 
+import com.trash.ecommerce.dto.CursorPageDTO;
 import com.trash.ecommerce.dto.ProductDetailsResponseDTO;
+import com.trash.ecommerce.dto.ProductSummaryDTO;
+import com.trash.ecommerce.dto.TrendingCategoryDTO;
 import com.trash.ecommerce.exception.ProductFingdingException;
 import com.trash.ecommerce.service.ProductService;
+import com.trash.ecommerce.service.TrendingService;
 
 import java.io.File;
 import java.io.IOException;
@@ -27,6 +31,8 @@ public class ProductController {
     private Logger logger = LoggerFactory.getLogger(ProductController.class);
     @Autowired
     private ProductService productService;
+    @Autowired
+    private TrendingService trendingService;
     
     @GetMapping("/{id}")
     public ResponseEntity<ProductDetailsResponseDTO> findProductById(
@@ -43,12 +49,12 @@ public class ProductController {
     }
     
     @GetMapping("/")
-    public ResponseEntity<List<ProductDetailsResponseDTO>> getAllProduct(
+    public ResponseEntity<List<ProductSummaryDTO>> getAllProduct(
         @RequestParam(value = "noPage", defaultValue = "0") int noPage,
         @RequestParam(value = "sizePage", defaultValue = "30") int sizePage
     ) {
         try {
-            List<ProductDetailsResponseDTO> products = productService.findAllProduct(noPage, sizePage);
+            List<ProductSummaryDTO> products = productService.findAllProduct(noPage, sizePage);
             return ResponseEntity.ok(products);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -56,19 +62,77 @@ public class ProductController {
     }
     
     @GetMapping("/products")
-    public ResponseEntity<List<ProductDetailsResponseDTO>> findProductByName(
+    public ResponseEntity<List<ProductSummaryDTO>> findProductByName(
         @RequestParam String name,
         @RequestParam(defaultValue = "0") int noPage,
         @RequestParam(defaultValue = "30") int sizePage
     ) {
         try {
-            List<ProductDetailsResponseDTO> products = productService.findProductByName(name, noPage, sizePage);
+            List<ProductSummaryDTO> products = productService.findProductByName(name, noPage, sizePage);
             return ResponseEntity.ok(products);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    @GetMapping("/scroll")
+    public ResponseEntity<CursorPageDTO<ProductSummaryDTO>> scrollProducts(
+        @RequestParam(value = "sort", defaultValue = "id") String sort,
+        @RequestParam(value = "cursor", required = false) String cursor,
+        @RequestParam(value = "size", defaultValue = "30") int size
+    ) {
+        try {
+            return ResponseEntity.ok(productService.scrollProducts(sort, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (Exception e) {
+            logger.error("Error scrolling products", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @GetMapping("/products/scroll")
+    public ResponseEntity<CursorPageDTO<ProductSummaryDTO>> scrollProductsByName(
+        @RequestParam String name,
+        @RequestParam(value = "cursor", required = false) String cursor,
+        @RequestParam(value = "size", defaultValue = "30") int size
+    ) {
+        try {
+            return ResponseEntity.ok(productService.scrollProductsByName(name, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (Exception e) {
+            logger.error("Error searching products", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @GetMapping("/trending")
+    public ResponseEntity<List<ProductSummaryDTO>> getTrendingProducts(
+        @RequestParam(value = "category", required = false) String category,
+        @RequestParam(value = "limit", defaultValue = "20") int limit
+    ) {
+        try {
+            return ResponseEntity.ok(productService.findTrendingProducts(category, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (Exception e) {
+            logger.error("Error fetching trending products", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @GetMapping("/trending/categories")
+    public ResponseEntity<List<TrendingCategoryDTO>> getTrendingCategories(
+        @RequestParam(value = "limit", defaultValue = "10") int limit
+    ) {
+        try {
+            return ResponseEntity.ok(trendingService.topCategories(limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+    }
+
     @GetMapping("/{id}/recommendations")
     public ResponseEntity<List<ProductDetailsResponseDTO>> getProductRecommendations(
         @PathVariable("id") Long productId
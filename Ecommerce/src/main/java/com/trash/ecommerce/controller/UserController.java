@@ -97,6 +97,7 @@ public class UserController {
         System.out.println("LOGOUT");
         Long userId = jwtService.extractId(token);
         try {
+            jwtService.revokeToken(token);
             com.trash.ecommerce.dto.UserResponseDTO userResponseDTO = userService.logout(userId);
             return ResponseEntity.ok(userResponseDTO);
         } catch (Exception e) {
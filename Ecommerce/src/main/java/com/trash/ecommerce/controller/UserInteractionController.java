@@ -43,7 +43,11 @@ public class UserInteractionController {
     ) {
         try {
             Long userId = jwtService.extractId(token);
-            userInteractionService.recordInteraction(userId, productId);
+            if (!userInteractionService.recordInteraction(userId, productId)) {
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header("Retry-After", "1")
+                    .body(java.util.Map.of("message", "Interaction buffer is full, try again later"));
+            }
             return ResponseEntity.ok(java.util.Map.of("message", "Interaction recorded successfully"));
         } catch (Exception e) {
             logger.error("Error recording interaction", e);
@@ -0,0 +1,19 @@
+package com.trash.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class CacheStatsDTO {
+    private long localHits;
+    private long redisHits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+    private long redisErrors;
+    private int localSize;
+    private double hitRatio;
+}
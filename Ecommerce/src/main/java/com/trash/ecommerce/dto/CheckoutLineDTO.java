@@ -0,0 +1,24 @@
+package com.trash.ecommerce.dto;
+
+import java.math.BigDecimal;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One cart line joined with the product columns checkout needs. Built by a JPQL constructor
+ * expression so placing an order never hydrates the cart, its products or the user graph.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class CheckoutLineDTO {
+    private Long cartId;
+    private Long productId;
+    private String productName;
+    private BigDecimal price;
+    private Long stock;
+    private Boolean hotSku;
+    private Long quantity;
+}
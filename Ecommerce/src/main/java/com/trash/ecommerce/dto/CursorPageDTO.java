@@ -0,0 +1,16 @@
+package com.trash.ecommerce.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class CursorPageDTO<T> {
+    private List<T> items;
+    // null khi đã tới trang cuối
+    private String nextCursor;
+}
@@ -0,0 +1,17 @@
+package com.trash.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class InteractionBufferStatsDTO {
+    private long accepted;
+    private long deduplicated;
+    private long dropped;
+    private long flushed;
+    private long failed;
+    private int pending;
+}
@@ -0,0 +1,28 @@
+package com.trash.ecommerce.dto;
+
+import java.security.Principal;
+import java.util.List;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Identity taken from an already verified access token. Used as the authentication principal
+ * so authenticated requests do not need to load the user row.
+ */
+@Getter
+@AllArgsConstructor
+public class JwtPrincipal implements Principal {
+    private final Long id;
+    private final String email;
+    private final List<GrantedAuthority> authorities;
+    private final long issuedAt;
+    private final long expiresAt;
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
@@ -1,5 +1,7 @@
 package com.trash.ecommerce.dto;
 
+import com.trash.ecommerce.entity.OrderStatus;
+
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -8,6 +10,10 @@ import lombok.Setter;
 import java.math.BigDecimal;
 import java.util.Date;
 
+/**
+ * Order history row. Built by a JPQL constructor expression that also counts the order lines,
+ * so listing orders never loads {@code Order} entities, their items or their payment method.
+ */
 @AllArgsConstructor
 @NoArgsConstructor
 @Setter
@@ -20,4 +26,15 @@ public class OrderSummaryDTO {
     private String paymentMethodName; // "Tiền mặt" hoặc "VNPay"
     private String paymentUrl; // Vẫn cần cái này để hiện nút "Thanh toán lại"
     private int totalItems;    // Số lượng món (VD: "5 sản phẩm")
+
+    public OrderSummaryDTO(Long id, Date createAt, OrderStatus status, BigDecimal totalPrice,
+                           String paymentMethodName, String paymentUrl, Long totalItems) {
+        this.id = id;
+        this.createAt = createAt;
+        this.status = status != null ? status.name() : "UNKNOWN";
+        this.totalPrice = totalPrice;
+        this.paymentMethodName = paymentMethodName;
+        this.paymentUrl = paymentUrl;
+        this.totalItems = totalItems != null ? totalItems.intValue() : 0;
+    }
 }
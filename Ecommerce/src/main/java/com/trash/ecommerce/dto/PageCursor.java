@@ -0,0 +1,39 @@
+package com.trash.ecommerce.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Keyset position {@code (sortKey, id)} of the last row of a page, serialized as an opaque
+ * URL-safe token. The id breaks ties so rows sharing a sort key are never skipped or repeated.
+ */
+@Getter
+@AllArgsConstructor
+public class PageCursor {
+    private final String sortKey;
+    private final long id;
+
+    public String encode() {
+        String raw = (sortKey == null ? "" : sortKey) + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns {@code null} for a missing cursor (first page).
+     */
+    public static PageCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.lastIndexOf('|');
+            return new PageCursor(raw.substring(0, sep), Long.parseLong(raw.substring(sep + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
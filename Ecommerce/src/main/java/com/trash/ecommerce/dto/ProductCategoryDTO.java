@@ -0,0 +1,13 @@
+package com.trash.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class ProductCategoryDTO {
+    private Long id;
+    private String category;
+}
@@ -0,0 +1,35 @@
+package com.trash.ecommerce.dto;
+
+import java.math.BigDecimal;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Listing row for product grids. Built directly by JPQL constructor expressions, so listings
+ * never load the description column or managed {@code Product} entities.
+ */
+@NoArgsConstructor
+@Data
+public class ProductSummaryDTO {
+    private Long id;
+    private String product_name;
+    private BigDecimal price;
+    private Long quantity;
+    private String category;
+    private String image;
+    private Integer ratingCount;
+    private Double rating;
+
+    public ProductSummaryDTO(Long id, String productName, BigDecimal price, Long quantity, String category,
+                             String image, Integer ratingCount, BigDecimal rating) {
+        this.id = id;
+        this.product_name = productName;
+        this.price = price;
+        this.quantity = quantity;
+        this.category = category;
+        this.image = image;
+        this.ratingCount = ratingCount;
+        this.rating = rating != null ? rating.doubleValue() : 0.0;
+    }
+}
@@ -0,0 +1,15 @@
+package com.trash.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class ProductTextDTO {
+    private Long id;
+    private String productName;
+    private String category;
+    private String description;
+}
@@ -0,0 +1,15 @@
+package com.trash.ecommerce.dto;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class RecentInteractionDTO {
+    private Long productId;
+    private LocalDateTime createdAt;
+}
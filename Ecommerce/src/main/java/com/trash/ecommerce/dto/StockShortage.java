@@ -0,0 +1,16 @@
+package com.trash.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class StockShortage {
+    private Long productId;
+    private String productName;
+    private Long requested;
+    // 0 nếu sản phẩm đã bị xóa
+    private Long available;
+}
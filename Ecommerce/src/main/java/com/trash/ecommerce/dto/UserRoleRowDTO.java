@@ -0,0 +1,20 @@
+package com.trash.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One (user, role) pair of the admin user list. Built by a JPQL constructor expression so a page
+ * never hydrates Users, whose roles and cart would otherwise be loaded one user at a time.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class UserRoleRowDTO {
+    private Long id;
+    private String email;
+    private String address;
+    // null khi user chưa có role nào
+    private String roleName;
+}
@@ -0,0 +1,42 @@
+package com.trash.ecommerce.entity;
+
+import java.util.Date;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Table(name = "email_outbox", indexes = {
+    @Index(name = "idx_email_outbox_status_next", columnList = "status, next_attempt_at")
+})
+public class EmailOutbox {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @EqualsAndHashCode.Include
+    @Column(name = "id")
+    private Long id;
+    @Column(name = "recipient", nullable = false, length = 320)
+    private String recipient;
+    @Column(name = "subject", nullable = false, length = 255)
+    private String subject;
+    @Column(name = "body", columnDefinition = "TEXT")
+    private String body;
+    @Column(name = "status", nullable = false, length = 16)
+    @Enumerated(EnumType.STRING)
+    private EmailStatus status;
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+    // Cũng là hạn "thuê" của dispatcher đang gửi mail này
+    @Column(name = "next_attempt_at", nullable = false)
+    private Date nextAttemptAt;
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+    @Column(name = "created_at", nullable = false)
+    private Date createdAt;
+    @Column(name = "sent_at")
+    private Date sentAt;
+}
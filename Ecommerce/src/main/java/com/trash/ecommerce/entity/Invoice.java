@@ -9,7 +9,9 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "invoice")
+@Table(name = "invoice", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_invoice_order", columnNames = "order_id")
+})
 @AllArgsConstructor
 @NoArgsConstructor
 @Getter
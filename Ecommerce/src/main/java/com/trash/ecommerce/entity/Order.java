@@ -13,7 +13,10 @@ import lombok.*;
 @NoArgsConstructor
 @Getter
 @Setter
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+    @Index(name = "idx_orders_user_created", columnList = "user_id, created_at, id"),
+    @Index(name = "idx_orders_created", columnList = "created_at")
+})
 public class Order {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -50,4 +53,10 @@ public class Order {
 
     @Column(name = "address")
     private String address;
+
+    // Link VnPay được ký một lần lúc tạo đơn, hết hạn cùng vnp_ExpireDate
+    @Column(name = "payment_url", length = 2048)
+    private String paymentUrl;
+    @Column(name = "payment_url_expires_at")
+    private Date paymentUrlExpiresAt;
 }
@@ -0,0 +1,48 @@
+package com.trash.ecommerce.entity;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * A verified VnPay IPN, recorded before it is acknowledged. {@code txn_ref} is unique, so a
+ * callback VnPay retries is recorded, and therefore applied, only once.
+ */
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Table(name = "payment_event", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_payment_event_txn_ref", columnNames = "txn_ref")
+}, indexes = {
+    @Index(name = "idx_payment_event_status_created", columnList = "status, created_at")
+})
+public class PaymentEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @EqualsAndHashCode.Include
+    @Column(name = "id")
+    private Long id;
+    @Column(name = "txn_ref", nullable = false, length = 64)
+    private String txnRef;
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+    @Column(name = "amount", nullable = false, precision = 12, scale = 2)
+    private BigDecimal amount;
+    @Column(name = "transaction_no", length = 32)
+    private String transactionNo;
+    @Column(name = "status", nullable = false, length = 16)
+    @Enumerated(EnumType.STRING)
+    private PaymentEventStatus status;
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+    @Column(name = "created_at", nullable = false)
+    private Date createdAt;
+    @Column(name = "processed_at")
+    private Date processedAt;
+}
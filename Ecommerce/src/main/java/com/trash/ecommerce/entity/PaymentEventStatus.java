@@ -0,0 +1,9 @@
+package com.trash.ecommerce.entity;
+
+public enum PaymentEventStatus {
+    RECEIVED,
+    PROCESSED,
+    // Tiền đã trả nhưng đơn không còn chờ thanh toán (đã hủy do hết hạn giữ hàng...), cần hoàn tiền tay
+    ORPHANED,
+    FAILED
+}
@@ -13,16 +13,22 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
 import lombok.*;
+import org.hibernate.annotations.DynamicUpdate;
 
 @Entity
 @AllArgsConstructor
 @NoArgsConstructor
 @Getter
 @Setter
-@Table(name = "product")
+// Chỉ ghi các cột thay đổi để việc sửa sản phẩm không ghi đè quantity do checkout/reconciler cập nhật
+@DynamicUpdate
+@Table(name = "product", indexes = {
+    @Index(name = "idx_product_price_id", columnList = "price, id")
+})
 public class Product {
 
     @Id
@@ -55,6 +61,10 @@ public class Product {
     @Column(name = "quantity", nullable = false)
     private Long quantity = 100L;
 
+    // Tồn kho của sản phẩm hot được trừ trên Redis, xem HotStockService
+    @Column(name = "hot_sku", nullable = false)
+    private Boolean hotSku = false;
+
     @OneToMany(
     fetch = FetchType.LAZY,
     cascade = CascadeType.ALL,   
@@ -0,0 +1,7 @@
+package com.trash.ecommerce.entity;
+
+public enum ReservationStatus {
+    HELD,
+    COMMITTED,
+    RELEASED
+}
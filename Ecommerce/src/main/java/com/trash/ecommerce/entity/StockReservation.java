@@ -0,0 +1,38 @@
+package com.trash.ecommerce.entity;
+
+import java.util.Date;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Table(name = "stock_reservation", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_stock_reservation_order_product", columnNames = {"order_id", "product_id"})
+}, indexes = {
+    @Index(name = "idx_stock_reservation_status_expires", columnList = "status, expires_at")
+})
+public class StockReservation {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @EqualsAndHashCode.Include
+    @Column(name = "id")
+    private Long id;
+    // Không map quan hệ để load reservation không kéo theo order; FK xóa dòng theo order (ON DELETE CASCADE)
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+    @Column(name = "quantity", nullable = false)
+    private Long quantity;
+    @Column(name = "status", nullable = false, length = 16)
+    @Enumerated(EnumType.STRING)
+    private ReservationStatus status;
+    @Column(name = "expires_at", nullable = false)
+    private Date expiresAt;
+    @Column(name = "created_at", nullable = false)
+    private Date createdAt;
+}
@@ -10,7 +10,9 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @Getter
 @Setter
-@Table(name = "user_interactions")
+@Table(name = "user_interactions", indexes = {
+    @Index(name = "idx_user_interactions_user_created", columnList = "user_id, created_at")
+})
 public class UserInteractions {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,19 @@
+package com.trash.ecommerce.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class ProductChangedEvent {
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED,
+        STOCK_CHANGED,
+        RATING_CHANGED
+    }
+
+    private final Long productId;
+    private final Type type;
+}
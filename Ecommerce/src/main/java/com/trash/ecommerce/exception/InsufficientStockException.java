@@ -0,0 +1,22 @@
+package com.trash.ecommerce.exception;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.trash.ecommerce.dto.StockShortage;
+
+public class InsufficientStockException extends ProductQuantityValidation {
+    private final List<StockShortage> shortages;
+
+    public InsufficientStockException(List<StockShortage> shortages) {
+        super("Hết hàng hoặc số lượng không đủ cho sản phẩm: " + shortages.stream()
+                .map(s -> (s.getProductName() != null ? s.getProductName() : "#" + s.getProductId())
+                        + " (cần " + s.getRequested() + ", còn " + s.getAvailable() + ")")
+                .collect(Collectors.joining(", ")));
+        this.shortages = List.copyOf(shortages);
+    }
+
+    public List<StockShortage> getShortages() {
+        return shortages;
+    }
+}
@@ -3,7 +3,6 @@ package com.trash.ecommerce.mapper;
 import com.trash.ecommerce.dto.CartItemDetailsResponseDTO;
 import com.trash.ecommerce.dto.OrderRequest;
 import com.trash.ecommerce.dto.OrderResponseDTO;
-import com.trash.ecommerce.dto.OrderSummaryDTO;
 import com.trash.ecommerce.entity.Order;
 import com.trash.ecommerce.entity.OrderItem;
 import org.springframework.stereotype.Component;
@@ -16,34 +15,6 @@ import java.util.stream.Collectors;
 @Component
 public class OrderMapper {
 
-    public OrderSummaryDTO toOrderSummaryDTO(Order order, String paymentUrl) {
-        if (order == null) {
-            return null;
-        }
-        
-        OrderSummaryDTO orderSummaryDTO = new OrderSummaryDTO();
-        orderSummaryDTO.setId(order.getId());
-        orderSummaryDTO.setCreateAt(order.getCreateAt());
-        // Xử lý an toàn cho status - có thể null hoặc invalid
-        if (order.getStatus() != null) {
-            orderSummaryDTO.setStatus(order.getStatus().name());
-        } else {
-            orderSummaryDTO.setStatus("UNKNOWN");
-        }
-        orderSummaryDTO.setTotalPrice(order.getTotalPrice());
-        orderSummaryDTO.setPaymentMethodName(order.getPaymentMethod() != null ? order.getPaymentMethod().getMethodName() : null);
-        orderSummaryDTO.setPaymentUrl(paymentUrl);
-        // Xử lý an toàn cho orderItems - tránh lazy loading exception
-        try {
-            orderSummaryDTO.setTotalItems(order.getOrderItems() == null ? 0 : order.getOrderItems().size());
-        } catch (Exception e) {
-            // Nếu không thể load orderItems (lazy loading issue), set về 0
-            orderSummaryDTO.setTotalItems(0);
-        }
-
-        return orderSummaryDTO;
-    }
-
     public OrderResponseDTO toOrderResponseDTO(Order order, String paymentUrl) {
         if (order == null) {
             return null;
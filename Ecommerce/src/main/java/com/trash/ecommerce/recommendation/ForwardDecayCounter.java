@@ -0,0 +1,91 @@
+package com.trash.ecommerce.recommendation;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Exponentially decayed event counts using forward decay: an event at time {@code t} adds
+ * {@code e^(lambda * (t - L))} for a fixed landmark {@code L}, so stored weights are never touched as
+ * time passes and the decayed count at {@code now} is {@code weight / e^(lambda * (now - L))}. The
+ * landmark is moved forward before the exponent can overflow a double.
+ */
+public final class ForwardDecayCounter {
+    // e^500 vẫn còn xa Double.MAX_VALUE (~e^709)
+    private static final double MAX_EXPONENT = 500.0;
+
+    private final double lambda;
+    private final Map<Long, Double> weights = new HashMap<>();
+    private long landmark;
+
+    public ForwardDecayCounter(long halfLifeMs, long landmark) {
+        if (halfLifeMs <= 0) {
+            throw new IllegalArgumentException("Half-life must be positive");
+        }
+        this.lambda = Math.log(2) / halfLifeMs;
+        this.landmark = landmark;
+    }
+
+    public synchronized void add(long key, long timestamp) {
+        if (lambda * (timestamp - landmark) > MAX_EXPONENT) {
+            rescale(timestamp);
+        }
+        weights.merge(key, Math.exp(lambda * (timestamp - landmark)), Double::sum);
+    }
+
+    /**
+     * Returns the decayed count of every key at {@code now}. Keys that decayed below
+     * {@code minCount} are dropped for good, which keeps memory bounded by recent activity.
+     */
+    public synchronized Map<Long, Double> decayedCounts(long now, double minCount) {
+        if (lambda * (now - landmark) > MAX_EXPONENT) {
+            rescale(now);
+        }
+        double norm = Math.exp(-lambda * (now - landmark));
+        Map<Long, Double> counts = new HashMap<>(weights.size() * 2);
+        for (Iterator<Map.Entry<Long, Double>> it = weights.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Long, Double> entry = it.next();
+            double count = entry.getValue() * norm;
+            if (count < minCount) {
+                it.remove();
+            } else {
+                counts.put(entry.getKey(), count);
+            }
+        }
+        return counts;
+    }
+
+    public synchronized void remove(long key) {
+        weights.remove(key);
+    }
+
+    /**
+     * Replaces the state with counts observed at {@code at}, e.g. a snapshot read back at startup.
+     */
+    public synchronized void restore(Map<Long, Double> counts, long at) {
+        weights.clear();
+        landmark = at;
+        weights.putAll(counts);
+    }
+
+    /**
+     * Adds counts observed at {@code at} on top of the current state.
+     */
+    public synchronized void merge(Map<Long, Double> counts, long at) {
+        if (lambda * (at - landmark) > MAX_EXPONENT) {
+            rescale(at);
+        }
+        double factor = Math.exp(lambda * (at - landmark));
+        counts.forEach((key, count) -> weights.merge(key, count * factor, Double::sum));
+    }
+
+    public synchronized int size() {
+        return weights.size();
+    }
+
+    private void rescale(long newLandmark) {
+        double factor = Math.exp(-lambda * (newLandmark - landmark));
+        weights.replaceAll((key, weight) -> weight * factor);
+        landmark = newLandmark;
+    }
+}
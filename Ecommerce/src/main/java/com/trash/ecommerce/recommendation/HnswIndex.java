@@ -0,0 +1,388 @@
+package com.trash.ecommerce.recommendation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Hierarchical Navigable Small World graph (Malkov and Yashunin) over unit-length dense vectors,
+ * ranked by cosine distance {@code 1 - dot}. Search visits O(log N) nodes on the upper layers and
+ * about {@code ef} candidates on the bottom one; {@code ef} trades latency for recall.
+ * Replaced or removed products are only marked deleted: they still route searches but are never
+ * returned, and the next full rebuild drops them.
+ * Not thread-safe for writes; {@link RecommendationModel} guards mutations.
+ */
+public final class HnswIndex {
+
+    private final int dimensions;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Random random;
+
+    // Vector của node i nằm ở vectors[i * dimensions ..]; một mảng liền giúp duyệt đồ thị ít cache miss hơn
+    private float[] vectors;
+    private long[] ids = new long[16];
+    // links[node][level] = {số láng giềng, láng giềng 1, láng giềng 2, ...}
+    private int[][][] links = new int[16][][];
+    private boolean[] deleted = new boolean[16];
+    private int nodeCount;
+    private int liveCount;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    private final Map<Long, Integer> nodeById = new HashMap<>();
+
+    private final ThreadLocal<Visited> visited = ThreadLocal.withInitial(Visited::new);
+
+    public HnswIndex(int dimensions, int m, int efConstruction, long seed) {
+        if (dimensions <= 0 || m < 2 || efConstruction <= 0) {
+            throw new IllegalArgumentException("Invalid HNSW parameters");
+        }
+        this.dimensions = dimensions;
+        this.m = m;
+        this.maxM0 = 2 * m;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.levelMultiplier = 1.0 / Math.log(m);
+        this.random = new Random(seed);
+        this.vectors = new float[16 * dimensions];
+    }
+
+    public int size() {
+        return liveCount;
+    }
+
+    public boolean contains(long id) {
+        return nodeById.containsKey(id);
+    }
+
+    /**
+     * Inserts {@code vector} (unit length) under {@code id}, replacing any previous vector of that id.
+     */
+    public void add(long id, float[] vector) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("Expected " + dimensions + " dimensions, got " + vector.length);
+        }
+        remove(id);
+        int node = nodeCount++;
+        ensureCapacity(nodeCount);
+        System.arraycopy(vector, 0, vectors, node * dimensions, dimensions);
+        ids[node] = id;
+        nodeById.put(id, node);
+        liveCount++;
+
+        int level = (int) (-Math.log(1.0 - random.nextDouble()) * levelMultiplier);
+        links[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            links[node][l] = new int[1 + (l == 0 ? maxM0 : m)];
+        }
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        int current = greedyDescend(vector, entryPoint, maxLevel, level);
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            long[] candidates = searchLayer(vector, current, efConstruction, l, false).drainAscending();
+            int[] selected = selectNeighbors(candidates, m);
+            int[] own = links[node][l];
+            System.arraycopy(selected, 0, own, 1, selected.length);
+            own[0] = selected.length;
+            for (int neighbor : selected) {
+                connect(neighbor, node, l);
+            }
+            current = nodeOf(candidates[0]);
+        }
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+    }
+
+    public void remove(long id) {
+        Integer node = nodeById.remove(id);
+        if (node != null) {
+            deleted[node] = true;
+            liveCount--;
+        }
+    }
+
+    /**
+     * Returns up to {@code k} ids closest to {@code query} (unit length), best first, exploring at
+     * least {@code ef} candidates on the bottom layer.
+     */
+    public List<Long> search(float[] query, int k, int ef) {
+        if (entryPoint < 0 || k <= 0) {
+            return List.of();
+        }
+        int current = greedyDescend(query, entryPoint, maxLevel, 0);
+        long[] found = searchLayer(query, current, Math.max(ef, k), 0, true).drainAscending();
+        List<Long> result = new ArrayList<>(Math.min(k, found.length));
+        for (int i = 0; i < found.length && result.size() < k; i++) {
+            result.add(ids[nodeOf(found[i])]);
+        }
+        return result;
+    }
+
+    private int greedyDescend(float[] query, int start, int fromLevel, int toLevel) {
+        int current = start;
+        float currentDistance = distance(query, current);
+        for (int l = fromLevel; l > toLevel; l--) {
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                int[] neighbors = links[current][l];
+                for (int i = 1; i <= neighbors[0]; i++) {
+                    float d = distance(query, neighbors[i]);
+                    if (d < currentDistance) {
+                        currentDistance = d;
+                        current = neighbors[i];
+                        changed = true;
+                    }
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Best-first search of one layer. Returns a max-heap of the {@code ef} closest nodes found;
+     * with {@code skipDeleted} deleted nodes are traversed but kept out of the result.
+     */
+    private LongHeap searchLayer(float[] query, int entry, int ef, int level, boolean skipDeleted) {
+        Visited seen = visited.get();
+        seen.reset(nodeCount);
+        LongHeap candidates = new LongHeap(false, ef + 1);
+        LongHeap results = new LongHeap(true, ef + 1);
+
+        seen.mark(entry);
+        long start = encode(distance(query, entry), entry);
+        candidates.push(start);
+        if (!skipDeleted || !deleted[entry]) {
+            results.push(start);
+        }
+        while (!candidates.isEmpty()) {
+            long closest = candidates.pop();
+            if (results.size() >= ef && distanceOf(closest) > distanceOf(results.peek())) {
+                break;
+            }
+            int[] neighbors = links[nodeOf(closest)][level];
+            for (int i = 1; i <= neighbors[0]; i++) {
+                int neighbor = neighbors[i];
+                if (!seen.mark(neighbor)) {
+                    continue;
+                }
+                float d = distance(query, neighbor);
+                if (results.size() < ef || d < distanceOf(results.peek())) {
+                    long entryKey = encode(d, neighbor);
+                    candidates.push(entryKey);
+                    if (!skipDeleted || !deleted[neighbor]) {
+                        results.push(entryKey);
+                        if (results.size() > ef) {
+                            results.pop();
+                        }
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Neighbour selection heuristic: a candidate is kept only if it is closer to the base vector than
+     * to every neighbour already kept, so links spread over different directions; free slots are then
+     * filled with the closest pruned candidates.
+     */
+    private int[] selectNeighbors(long[] candidatesAscending, int limit) {
+        int[] selected = new int[Math.min(limit, candidatesAscending.length)];
+        boolean[] taken = new boolean[candidatesAscending.length];
+        int count = 0;
+        for (int i = 0; i < candidatesAscending.length && count < selected.length; i++) {
+            int candidate = nodeOf(candidatesAscending[i]);
+            float toBase = distanceOf(candidatesAscending[i]);
+            boolean diverse = true;
+            for (int j = 0; j < count; j++) {
+                if (distance(candidate, selected[j]) < toBase) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected[count++] = candidate;
+                taken[i] = true;
+            }
+        }
+        for (int i = 0; i < candidatesAscending.length && count < selected.length; i++) {
+            if (!taken[i]) {
+                selected[count++] = nodeOf(candidatesAscending[i]);
+            }
+        }
+        return selected;
+    }
+
+    private void connect(int from, int to, int level) {
+        int[] neighbors = links[from][level];
+        int capacity = neighbors.length - 1;
+        int count = neighbors[0];
+        if (count < capacity) {
+            neighbors[count + 1] = to;
+            neighbors[0] = count + 1;
+            return;
+        }
+        long[] candidates = new long[count + 1];
+        for (int i = 0; i < count; i++) {
+            candidates[i] = encode(distance(from, neighbors[i + 1]), neighbors[i + 1]);
+        }
+        candidates[count] = encode(distance(from, to), to);
+        Arrays.sort(candidates);
+        int[] selected = selectNeighbors(candidates, capacity);
+        System.arraycopy(selected, 0, neighbors, 1, selected.length);
+        neighbors[0] = selected.length;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) {
+            return;
+        }
+        int capacity = Math.max(required, ids.length + (ids.length >> 1));
+        vectors = Arrays.copyOf(vectors, capacity * dimensions);
+        ids = Arrays.copyOf(ids, capacity);
+        links = Arrays.copyOf(links, capacity);
+        deleted = Arrays.copyOf(deleted, capacity);
+    }
+
+    private float distance(float[] query, int node) {
+        float dot = 0f;
+        for (int i = 0, offset = node * dimensions; i < dimensions; i++) {
+            dot += query[i] * vectors[offset + i];
+        }
+        // Kẹp về >= 0 để bit của float giữ đúng thứ tự khi đóng gói vào long
+        return Math.max(0f, 1f - dot);
+    }
+
+    private float distance(int a, int b) {
+        float dot = 0f;
+        for (int i = 0, offsetA = a * dimensions, offsetB = b * dimensions; i < dimensions; i++) {
+            dot += vectors[offsetA + i] * vectors[offsetB + i];
+        }
+        return Math.max(0f, 1f - dot);
+    }
+
+    // Khoảng cách (không âm) ở 32 bit cao, node ở 32 bit thấp: so sánh long = so khoảng cách rồi tới node
+    private static long encode(float distance, int node) {
+        return ((long) Float.floatToIntBits(distance) << 32) | (node & 0xffffffffL);
+    }
+
+    private static float distanceOf(long entry) {
+        return Float.intBitsToFloat((int) (entry >>> 32));
+    }
+
+    private static int nodeOf(long entry) {
+        return (int) entry;
+    }
+
+    private static final class Visited {
+        private int[] marks = new int[0];
+        private int stamp;
+
+        void reset(int size) {
+            if (marks.length < size) {
+                marks = new int[Math.max(size, marks.length + (marks.length >> 1))];
+                stamp = 0;
+            }
+            if (++stamp == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                stamp = 1;
+            }
+        }
+
+        // true nếu node chưa được thăm trong lượt này
+        boolean mark(int node) {
+            if (marks[node] == stamp) {
+                return false;
+            }
+            marks[node] = stamp;
+            return true;
+        }
+    }
+
+    /**
+     * Binary heap of encoded (distance, node) entries; a max-heap keeps the worst result on top.
+     */
+    private static final class LongHeap {
+        private final boolean max;
+        private long[] entries;
+        private int size;
+
+        LongHeap(boolean max, int capacity) {
+            this.max = max;
+            this.entries = new long[Math.max(4, capacity)];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        long peek() {
+            return entries[0];
+        }
+
+        void push(long entry) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            int i = size++;
+            entries[i] = entry;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!before(entries[i], entries[parent])) {
+                    break;
+                }
+                long tmp = entries[i];
+                entries[i] = entries[parent];
+                entries[parent] = tmp;
+                i = parent;
+            }
+        }
+
+        long pop() {
+            long top = entries[0];
+            entries[0] = entries[--size];
+            int i = 0;
+            while (true) {
+                int left = 2 * i + 1;
+                if (left >= size) {
+                    break;
+                }
+                int child = left + 1 < size && before(entries[left + 1], entries[left]) ? left + 1 : left;
+                if (!before(entries[child], entries[i])) {
+                    break;
+                }
+                long tmp = entries[i];
+                entries[i] = entries[child];
+                entries[child] = tmp;
+                i = child;
+            }
+            return top;
+        }
+
+        long[] drainAscending() {
+            long[] out = Arrays.copyOf(entries, size);
+            Arrays.sort(out);
+            size = 0;
+            return out;
+        }
+
+        private boolean before(long a, long b) {
+            return max ? a > b : a < b;
+        }
+    }
+}
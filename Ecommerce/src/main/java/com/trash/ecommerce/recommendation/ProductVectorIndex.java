@@ -0,0 +1,415 @@
+package com.trash.ecommerce.recommendation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Product TF-IDF vectors plus a term -> products inverted index.
+ * Cosine scores are accumulated only for products sharing at least one term with the query,
+ * so a lookup costs the length of the touched posting lists instead of a full catalog sweep.
+ * Not thread-safe for writes; {@link RecommendationModel} guards mutations.
+ */
+public final class ProductVectorIndex {
+
+    private long[] productIds;
+    private SparseVector[] vectors;
+    private int rowCount;
+    private final Map<Long, Integer> rowById;
+    private final int[][] postingRows;
+    private final float[][] postingWeights;
+    private final int[] postingSizes;
+
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(() -> new Scratch(0));
+
+    ProductVectorIndex(long[] productIds, SparseVector[] vectors, int vocabularySize) {
+        this.productIds = productIds;
+        this.vectors = vectors;
+        this.rowCount = productIds.length;
+        this.rowById = new HashMap<>(productIds.length * 2);
+        for (int row = 0; row < productIds.length; row++) {
+            rowById.put(productIds[row], row);
+        }
+
+        this.postingSizes = new int[vocabularySize];
+        for (SparseVector v : vectors) {
+            for (int i = 0; i < v.size(); i++) {
+                postingSizes[v.termAt(i)]++;
+            }
+        }
+        this.postingRows = new int[vocabularySize][];
+        this.postingWeights = new float[vocabularySize][];
+        for (int t = 0; t < vocabularySize; t++) {
+            postingRows[t] = new int[postingSizes[t]];
+            postingWeights[t] = new float[postingSizes[t]];
+        }
+        int[] fill = new int[vocabularySize];
+        for (int row = 0; row < vectors.length; row++) {
+            SparseVector v = vectors[row];
+            for (int i = 0; i < v.size(); i++) {
+                int t = v.termAt(i);
+                postingRows[t][fill[t]] = row;
+                postingWeights[t][fill[t]] = v.weightAt(i);
+                fill[t]++;
+            }
+        }
+    }
+
+    public int size() {
+        return rowCount;
+    }
+
+    public SparseVector vectorOf(long productId) {
+        Integer row = rowById.get(productId);
+        return row == null ? null : vectors[row];
+    }
+
+    public long productIdAt(int row) {
+        return productIds[row];
+    }
+
+    /**
+     * Inserts or replaces the vector of a product and returns its previous vector, if any.
+     */
+    SparseVector put(long productId, SparseVector vector) {
+        Integer row = rowById.get(productId);
+        SparseVector previous = null;
+        if (row == null) {
+            if (rowCount == productIds.length) {
+                int capacity = Math.max(16, rowCount + (rowCount >> 1));
+                productIds = Arrays.copyOf(productIds, capacity);
+                vectors = Arrays.copyOf(vectors, capacity);
+            }
+            row = rowCount++;
+            productIds[row] = productId;
+            rowById.put(productId, row);
+        } else {
+            previous = vectors[row];
+            removePostings(row, previous);
+        }
+        vectors[row] = vector;
+        for (int i = 0; i < vector.size(); i++) {
+            addPosting(vector.termAt(i), row, vector.weightAt(i));
+        }
+        return previous;
+    }
+
+    /**
+     * Removes a product and returns its vector, or {@code null} when it was not indexed.
+     * The row slot is left empty until the next full rebuild compacts the index.
+     */
+    SparseVector remove(long productId) {
+        Integer row = rowById.remove(productId);
+        if (row == null) {
+            return null;
+        }
+        SparseVector previous = vectors[row];
+        removePostings(row, previous);
+        vectors[row] = SparseVector.EMPTY;
+        productIds[row] = -1L;
+        return previous;
+    }
+
+    private void addPosting(int term, int row, float weight) {
+        int size = postingSizes[term];
+        if (size == postingRows[term].length) {
+            int capacity = Math.max(4, size + (size >> 1));
+            postingRows[term] = Arrays.copyOf(postingRows[term], capacity);
+            postingWeights[term] = Arrays.copyOf(postingWeights[term], capacity);
+        }
+        postingRows[term][size] = row;
+        postingWeights[term][size] = weight;
+        postingSizes[term] = size + 1;
+    }
+
+    private void removePostings(int row, SparseVector vector) {
+        for (int i = 0; i < vector.size(); i++) {
+            int t = vector.termAt(i);
+            int[] rows = postingRows[t];
+            int last = postingSizes[t] - 1;
+            for (int p = 0; p <= last; p++) {
+                if (rows[p] == row) {
+                    rows[p] = rows[last];
+                    postingWeights[t][p] = postingWeights[t][last];
+                    postingSizes[t] = last;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} product ids ranked by cosine similarity to {@code query},
+     * skipping the ids in {@code exclude}.
+     */
+    public List<Long> search(SparseVector query, int limit, Collection<Long> exclude) {
+        if (query == null || query.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        Scratch s = scratch();
+        try {
+            accumulate(query, s);
+            TopK top = s.top(limit + exclude.size(), -1);
+            List<Long> result = new ArrayList<>(limit);
+            for (int pos : top.positionsDescending()) {
+                long id = productIds[top.rowAt(pos)];
+                if (!exclude.contains(id)) {
+                    result.add(id);
+                    if (result.size() == limit) {
+                        break;
+                    }
+                }
+            }
+            return result;
+        } finally {
+            s.reset();
+        }
+    }
+
+    /**
+     * Ranks only {@code candidates} by cosine similarity to {@code query}, best first, skipping the
+     * ids in {@code exclude} and candidates sharing no term with the query. The query is spread into
+     * a dense term array once, so each candidate costs its own length instead of a merge with the query.
+     */
+    public List<Long> rerank(SparseVector query, Collection<Long> candidates, int limit, Collection<Long> exclude) {
+        if (query == null || query.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        float[] dense = scratch().termWeights(postingSizes.length);
+        for (int i = 0; i < query.size(); i++) {
+            dense[query.termAt(i)] = query.weightAt(i);
+        }
+        try {
+            TopK top = new TopK(limit);
+            for (Long id : candidates) {
+                Integer row = rowById.get(id);
+                if (row == null || exclude.contains(id)) {
+                    continue;
+                }
+                SparseVector vector = vectors[row];
+                float score = 0f;
+                for (int i = 0; i < vector.size(); i++) {
+                    score += vector.weightAt(i) * dense[vector.termAt(i)];
+                }
+                if (score > 0f) {
+                    top.offer(row, score);
+                }
+            }
+            List<Long> result = new ArrayList<>(limit);
+            for (int pos : top.positionsDescending()) {
+                result.add(productIds[top.rowAt(pos)]);
+            }
+            return result;
+        } finally {
+            for (int i = 0; i < query.size(); i++) {
+                dense[query.termAt(i)] = 0f;
+            }
+        }
+    }
+
+    /**
+     * Writes the {@code k} nearest neighbours of {@code row} (itself excluded) into the output arrays
+     * starting at {@code offset}, best first, and returns how many were written.
+     */
+    int nearestNeighbors(int row, int k, long[] outIds, float[] outScores, int offset) {
+        SparseVector query = vectors[row];
+        if (query.isEmpty()) {
+            return 0;
+        }
+        Scratch s = scratch();
+        try {
+            accumulate(query, s);
+            TopK top = s.top(k, row);
+            int n = 0;
+            for (int pos : top.positionsDescending()) {
+                outIds[offset + n] = productIds[top.rowAt(pos)];
+                outScores[offset + n] = top.scoreAt(pos);
+                n++;
+            }
+            return n;
+        } finally {
+            s.reset();
+        }
+    }
+
+    int rowOf(long productId) {
+        Integer row = rowById.get(productId);
+        return row == null ? -1 : row;
+    }
+
+    /**
+     * Calls {@code consumer} with every indexed product sharing at least one term with {@code query}
+     * and its cosine score.
+     */
+    void forEachScored(SparseVector query, ScoreConsumer consumer) {
+        if (query == null || query.isEmpty()) {
+            return;
+        }
+        Scratch s = scratch();
+        try {
+            accumulate(query, s);
+            for (int i = 0; i < s.touchedCount; i++) {
+                int row = s.touched[i];
+                consumer.accept(productIds[row], s.scores[row]);
+            }
+        } finally {
+            s.reset();
+        }
+    }
+
+    interface ScoreConsumer {
+        void accept(long productId, float score);
+    }
+
+    private Scratch scratch() {
+        Scratch s = scratch.get();
+        if (s.scores.length < rowCount) {
+            s = new Scratch(productIds.length);
+            scratch.set(s);
+        }
+        return s;
+    }
+
+    private void accumulate(SparseVector query, Scratch s) {
+        for (int i = 0; i < query.size(); i++) {
+            int t = query.termAt(i);
+            float qw = query.weightAt(i);
+            int[] rows = postingRows[t];
+            float[] weights = postingWeights[t];
+            int size = postingSizes[t];
+            for (int p = 0; p < size; p++) {
+                int row = rows[p];
+                if (s.scores[row] == 0f) {
+                    s.touched[s.touchedCount++] = row;
+                }
+                s.scores[row] += qw * weights[p];
+            }
+        }
+    }
+
+    private static final class Scratch {
+        final float[] scores;
+        final int[] touched;
+        int touchedCount;
+        private float[] termWeights;
+
+        Scratch(int rows) {
+            this.scores = new float[rows];
+            this.touched = new int[rows];
+        }
+
+        // Mảng theo term cho rerank, luôn được trả về toàn 0
+        float[] termWeights(int vocabularySize) {
+            if (termWeights == null || termWeights.length < vocabularySize) {
+                termWeights = new float[vocabularySize];
+            }
+            return termWeights;
+        }
+
+        TopK top(int capacity, int skipRow) {
+            TopK top = new TopK(capacity);
+            for (int i = 0; i < touchedCount; i++) {
+                int row = touched[i];
+                if (row != skipRow) {
+                    top.offer(row, scores[row]);
+                }
+            }
+            return top;
+        }
+
+        void reset() {
+            for (int i = 0; i < touchedCount; i++) {
+                scores[touched[i]] = 0f;
+            }
+            touchedCount = 0;
+        }
+    }
+
+    /**
+     * Bounded min-heap over (row, score) pairs.
+     */
+    static final class TopK {
+        private final int[] rows;
+        private final float[] scores;
+        private int size;
+
+        TopK(int capacity) {
+            this.rows = new int[Math.max(1, capacity)];
+            this.scores = new float[Math.max(1, capacity)];
+        }
+
+        void offer(int row, float score) {
+            if (size < rows.length) {
+                rows[size] = row;
+                scores[size] = score;
+                siftUp(size++);
+            } else if (score > scores[0]) {
+                rows[0] = row;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        int[] positionsDescending() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Float.compare(scores[b], scores[a]));
+            int[] out = new int[size];
+            for (int i = 0; i < size; i++) {
+                out[i] = order[i];
+            }
+            return out;
+        }
+
+        int rowAt(int pos) {
+            return rows[pos];
+        }
+
+        float scoreAt(int pos) {
+            return scores[pos];
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (scores[i] >= scores[parent]) {
+                    break;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int left = 2 * i + 1;
+                if (left >= size) {
+                    break;
+                }
+                int smallest = left;
+                if (left + 1 < size && scores[left + 1] < scores[left]) {
+                    smallest = left + 1;
+                }
+                if (scores[i] <= scores[smallest]) {
+                    break;
+                }
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int r = rows[a];
+            rows[a] = rows[b];
+            rows[b] = r;
+            float s = scores[a];
+            scores[a] = scores[b];
+            scores[b] = s;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.trash.ecommerce.recommendation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.trash.ecommerce.dto.ProductTextDTO;
+
+/**
+ * Fitted TF-IDF model, the product vectors it produced and their precomputed top-K neighbours.
+ * A full rebuild produces a new instance that replaces the old one atomically; between rebuilds
+ * single products are patched in place with {@link #upsert} and {@link #remove}, re-using the
+ * fitted vocabulary and idf weights. Large catalogs also get SVD embeddings in an HNSW graph, which
+ * shortlists candidates for history-based recommendations instead of scoring every product that
+ * shares a term with the user profile.
+ */
+public final class RecommendationModel {
+    private static final long ANN_SEED = 42L;
+
+    private final TfIdfModel tfIdf;
+    private final ProductVectorIndex vectors;
+    private final TopKNeighborIndex neighbors;
+    private final boolean neighborsRebuilt;
+    private final SvdProjection projection;
+    private final HnswIndex ann;
+    private final AnnOptions annOptions;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Approximate search settings. {@code candidateFactor} times the requested count is read from the
+     * graph and re-ranked with exact TF-IDF cosine; {@code efSearch} bounds the bottom-layer beam.
+     */
+    public record AnnOptions(boolean enabled, int minProducts, int dimensions, int m, int efConstruction,
+                             int efSearch, int candidateFactor) {
+        public static final AnnOptions DISABLED = new AnnOptions(false, 0, 0, 0, 0, 0, 0);
+    }
+
+    private RecommendationModel(TfIdfModel tfIdf, ProductVectorIndex vectors,
+                                TopKNeighborIndex neighbors, boolean neighborsRebuilt,
+                                SvdProjection projection, HnswIndex ann, AnnOptions annOptions) {
+        this.tfIdf = tfIdf;
+        this.vectors = vectors;
+        this.neighbors = neighbors;
+        this.neighborsRebuilt = neighborsRebuilt;
+        this.projection = projection;
+        this.ann = ann;
+        this.annOptions = annOptions;
+    }
+
+    public static RecommendationModel build(List<ProductTextDTO> products, int maxFeatures, int k,
+                                            TopKNeighborIndex persisted) {
+        return build(products, maxFeatures, k, persisted, AnnOptions.DISABLED);
+    }
+
+    /**
+     * Builds the model. {@code persisted} is reused when it was computed for the same catalog,
+     * otherwise the neighbour lists are recomputed from the vectors.
+     */
+    public static RecommendationModel build(List<ProductTextDTO> products, int maxFeatures, int k,
+                                            TopKNeighborIndex persisted, AnnOptions annOptions) {
+        List<List<String>> documents = new ArrayList<>(products.size());
+        for (ProductTextDTO product : products) {
+            documents.add(TextAnalyzer.tokenize(documentOf(product)));
+        }
+        TfIdfModel tfIdf = TfIdfModel.fit(documents, maxFeatures);
+
+        long[] ids = new long[products.size()];
+        SparseVector[] vectors = new SparseVector[products.size()];
+        for (int i = 0; i < products.size(); i++) {
+            ids[i] = products.get(i).getId();
+            vectors[i] = tfIdf.vectorize(documents.get(i));
+        }
+        ProductVectorIndex index = new ProductVectorIndex(ids, vectors, tfIdf.vocabularySize());
+
+        SvdProjection projection = null;
+        HnswIndex ann = null;
+        if (annOptions.enabled() && products.size() >= annOptions.minProducts() && tfIdf.vocabularySize() > 0) {
+            projection = SvdProjection.fit(vectors, vectors.length, tfIdf.vocabularySize(),
+                    annOptions.dimensions(), ANN_SEED);
+            ann = new HnswIndex(projection.dimensions(), annOptions.m(), annOptions.efConstruction(), ANN_SEED);
+            for (int i = 0; i < vectors.length; i++) {
+                float[] embedding = projection.embed(vectors[i]);
+                if (embedding != null) {
+                    ann.add(ids[i], embedding);
+                }
+            }
+        }
+
+        long fingerprint = fingerprint(products, maxFeatures);
+        if (persisted != null && persisted.fingerprint() == fingerprint && persisted.k() == k) {
+            return new RecommendationModel(tfIdf, index, persisted, false, projection, ann, annOptions);
+        }
+        return new RecommendationModel(tfIdf, index, TopKNeighborIndex.build(index, k, fingerprint), true,
+                projection, ann, annOptions);
+    }
+
+    /**
+     * Identifies the catalog content a neighbour index was computed from.
+     */
+    public static long fingerprint(List<ProductTextDTO> products, int maxFeatures) {
+        long hash = 1125899906842597L ^ maxFeatures;
+        for (ProductTextDTO product : products) {
+            hash = 31 * hash + product.getId();
+            hash = 31 * hash + documentOf(product).hashCode();
+        }
+        return hash;
+    }
+
+    static String documentOf(ProductTextDTO product) {
+        StringBuilder text = new StringBuilder();
+        for (String part : new String[] { product.getProductName(), product.getCategory(), product.getDescription() }) {
+            if (part != null && !part.isEmpty()) {
+                text.append(part).append(' ');
+            }
+        }
+        return text.toString();
+    }
+
+    public int size() {
+        return vectors.size();
+    }
+
+    public TopKNeighborIndex neighborIndex() {
+        return neighbors;
+    }
+
+    public boolean isNeighborIndexRebuilt() {
+        return neighborsRebuilt;
+    }
+
+    public boolean hasAnnIndex() {
+        return ann != null;
+    }
+
+    public List<Long> similarProducts(long productId, int limit) {
+        lock.readLock().lock();
+        try {
+            if (limit <= neighbors.k() && neighbors.contains(productId)) {
+                return neighbors.neighbors(productId, limit);
+            }
+            SparseVector vector = vectors.vectorOf(productId);
+            if (vector == null) {
+                return List.of();
+            }
+            return vectors.search(vector, limit, Set.of(productId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Long> recommendForHistory(Collection<Long> viewedIds, int limit) {
+        lock.readLock().lock();
+        try {
+            Set<Long> viewed = new HashSet<>(viewedIds);
+            List<SparseVector> viewedVectors = new ArrayList<>(viewed.size());
+            for (Long id : viewed) {
+                SparseVector vector = vectors.vectorOf(id);
+                if (vector != null && !vector.isEmpty()) {
+                    viewedVectors.add(vector);
+                }
+            }
+            if (viewedVectors.isEmpty()) {
+                return List.of();
+            }
+            SparseVector profile = SparseVector.centroid(viewedVectors);
+            if (ann != null) {
+                List<Long> approximate = approximateSearch(profile, limit, viewed);
+                if (approximate.size() == limit) {
+                    return approximate;
+                }
+            }
+            return vectors.search(profile, limit, viewed);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Shortlists products near the profile embedding in the HNSW graph and re-ranks them by exact
+     * TF-IDF cosine. Returns fewer than {@code limit} ids when the shortlist has too few products
+     * sharing a term with the profile; the caller then falls back to the exact search.
+     */
+    private List<Long> approximateSearch(SparseVector profile, int limit, Set<Long> viewed) {
+        float[] embedding = projection.embed(profile);
+        if (embedding == null) {
+            return List.of();
+        }
+        // Sản phẩm đã xem thường nằm sát profile nên được cộng thêm vào shortlist
+        int candidates = limit * annOptions.candidateFactor() + viewed.size();
+        List<Long> shortlist = ann.search(embedding, candidates, Math.max(annOptions.efSearch(), candidates));
+        return vectors.rerank(profile, shortlist, limit, viewed);
+    }
+
+    /**
+     * Re-vectorizes a created or edited product, recomputes its own neighbour list and patches the
+     * lists of every product whose similarity to it may have changed.
+     */
+    public void upsert(ProductTextDTO product) {
+        long id = product.getId();
+        SparseVector vector = tfIdf.vectorize(TextAnalyzer.tokenize(documentOf(product)));
+        lock.writeLock().lock();
+        try {
+            SparseVector previous = vectors.put(id, vector);
+            if (ann != null) {
+                float[] embedding = projection.embed(vector);
+                if (embedding != null) {
+                    ann.add(id, embedding);
+                } else {
+                    ann.remove(id);
+                }
+            }
+
+            Map<Long, Float> related = scored(vector);
+            related.remove(id);
+            refreshRow(id);
+            for (Map.Entry<Long, Float> entry : related.entrySet()) {
+                neighbors.offer(entry.getKey(), id, entry.getValue());
+            }
+
+            if (previous != null) {
+                for (Long other : scored(previous).keySet()) {
+                    if (other != id && !related.containsKey(other) && neighbors.removeNeighbor(other, id)) {
+                        refreshRow(other);
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops a deleted product and refills the neighbour lists it was part of.
+     */
+    public void remove(long productId) {
+        lock.writeLock().lock();
+        try {
+            SparseVector previous = vectors.remove(productId);
+            neighbors.removeRow(productId);
+            if (ann != null) {
+                ann.remove(productId);
+            }
+            if (previous == null) {
+                return;
+            }
+            for (Long other : scored(previous).keySet()) {
+                if (neighbors.removeNeighbor(other, productId)) {
+                    refreshRow(other);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Map<Long, Float> scored(SparseVector query) {
+        Map<Long, Float> scores = new HashMap<>();
+        vectors.forEachScored(query, scores::put);
+        return scores;
+    }
+
+    private void refreshRow(long productId) {
+        int row = vectors.rowOf(productId);
+        if (row < 0) {
+            return;
+        }
+        int k = neighbors.k();
+        long[] ids = new long[k];
+        float[] scores = new float[k];
+        int n = vectors.nearestNeighbors(row, k, ids, scores, 0);
+        neighbors.setNeighbors(productId, ids, scores, n);
+    }
+}
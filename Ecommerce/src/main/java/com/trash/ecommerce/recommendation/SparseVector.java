@@ -0,0 +1,112 @@
+package com.trash.ecommerce.recommendation;
+
+import java.util.Arrays;
+
+/**
+ * Immutable sparse vector. Term ids are kept sorted so dot products are a linear merge.
+ */
+public final class SparseVector {
+
+    public static final SparseVector EMPTY = new SparseVector(new int[0], new float[0]);
+
+    private final int[] terms;
+    private final float[] weights;
+
+    SparseVector(int[] terms, float[] weights) {
+        this.terms = terms;
+        this.weights = weights;
+    }
+
+    public int size() {
+        return terms.length;
+    }
+
+    public int termAt(int i) {
+        return terms[i];
+    }
+
+    public float weightAt(int i) {
+        return weights[i];
+    }
+
+    public boolean isEmpty() {
+        return terms.length == 0;
+    }
+
+    public float dot(SparseVector other) {
+        float sum = 0f;
+        int i = 0;
+        int j = 0;
+        while (i < terms.length && j < other.terms.length) {
+            int a = terms[i];
+            int b = other.terms[j];
+            if (a == b) {
+                sum += weights[i++] * other.weights[j++];
+            } else if (a < b) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Builds an L2-normalised vector from unsorted, possibly repeated term ids.
+     */
+    static SparseVector normalized(int[] terms, float[] weights, int length) {
+        if (length == 0) {
+            return EMPTY;
+        }
+        Integer[] order = new Integer[length];
+        for (int i = 0; i < length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (x, y) -> Integer.compare(terms[x], terms[y]));
+
+        int[] sortedTerms = new int[length];
+        float[] sortedWeights = new float[length];
+        int n = 0;
+        for (int k = 0; k < length; k++) {
+            int idx = order[k];
+            if (n > 0 && sortedTerms[n - 1] == terms[idx]) {
+                sortedWeights[n - 1] += weights[idx];
+            } else {
+                sortedTerms[n] = terms[idx];
+                sortedWeights[n] = weights[idx];
+                n++;
+            }
+        }
+        double norm = 0;
+        for (int k = 0; k < n; k++) {
+            norm += (double) sortedWeights[k] * sortedWeights[k];
+        }
+        if (norm == 0) {
+            return EMPTY;
+        }
+        float inv = (float) (1.0 / Math.sqrt(norm));
+        for (int k = 0; k < n; k++) {
+            sortedWeights[k] *= inv;
+        }
+        return new SparseVector(Arrays.copyOf(sortedTerms, n), Arrays.copyOf(sortedWeights, n));
+    }
+
+    /**
+     * Mean of the given vectors, re-normalised. Used to build a user profile from viewed products.
+     */
+    static SparseVector centroid(Iterable<SparseVector> vectors) {
+        int total = 0;
+        for (SparseVector v : vectors) {
+            total += v.size();
+        }
+        int[] terms = new int[total];
+        float[] weights = new float[total];
+        int n = 0;
+        for (SparseVector v : vectors) {
+            System.arraycopy(v.terms, 0, terms, n, v.size());
+            System.arraycopy(v.weights, 0, weights, n, v.size());
+            n += v.size();
+        }
+        return normalized(terms, weights, n);
+    }
+}
@@ -0,0 +1,248 @@
+package com.trash.ecommerce.recommendation;
+
+import java.util.Random;
+
+/**
+ * Rank-{@code d} projection of the product x term TF-IDF matrix {@code A}, fitted with a randomized
+ * truncated SVD (Halko, Martinsson and Tropp): a Gaussian sketch of the range of {@code A}, a few
+ * power iterations, then an exact SVD of the small {@code k x k} problem. A sparse vector {@code x}
+ * maps to {@code x * V_d}, i.e. its coordinates in the top latent directions, re-normalised so dot
+ * products of embeddings approximate cosine similarity.
+ */
+public final class SvdProjection {
+    private static final int OVERSAMPLING = 10;
+    private static final int POWER_ITERATIONS = 2;
+    private static final double EPSILON = 1e-10;
+
+    private final int dimensions;
+    // Hàng t (dimensions phần tử) là tọa độ của term t trong không gian rút gọn
+    private final float[] termFactors;
+
+    private SvdProjection(int dimensions, float[] termFactors) {
+        this.dimensions = dimensions;
+        this.termFactors = termFactors;
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * Fits the projection on the first {@code rowCount} rows. Deterministic for a given seed.
+     */
+    public static SvdProjection fit(SparseVector[] rows, int rowCount, int vocabularySize, int dimensions, long seed) {
+        int d = Math.max(1, Math.min(dimensions, Math.min(rowCount, vocabularySize)));
+        int k = Math.min(d + OVERSAMPLING, Math.min(rowCount, vocabularySize));
+
+        // Ma trận cao lưu theo cột: omega[j] là cột j, độ dài vocabularySize
+        Random random = new Random(seed);
+        double[][] omega = new double[k][vocabularySize];
+        for (double[] column : omega) {
+            for (int t = 0; t < vocabularySize; t++) {
+                column[t] = random.nextGaussian();
+            }
+        }
+
+        double[][] q = multiply(rows, rowCount, omega);
+        orthonormalize(q);
+        for (int i = 0; i < POWER_ITERATIONS; i++) {
+            double[][] z = multiplyTransposed(rows, rowCount, q, vocabularySize);
+            orthonormalize(z);
+            q = multiply(rows, rowCount, z);
+            orthonormalize(q);
+        }
+
+        // B = Q^T A, giữ dưới dạng B^T (k cột độ dài vocabularySize)
+        double[][] bt = multiplyTransposed(rows, rowCount, q, vocabularySize);
+        double[][] gram = new double[k][k];
+        for (int i = 0; i < k; i++) {
+            for (int j = i; j < k; j++) {
+                double dot = dot(bt[i], bt[j]);
+                gram[i][j] = dot;
+                gram[j][i] = dot;
+            }
+        }
+        double[][] eigenvectors = new double[k][k];
+        double[] eigenvalues = symmetricEigen(gram, eigenvectors);
+        Integer[] order = new Integer[k];
+        for (int i = 0; i < k; i++) {
+            order[i] = i;
+        }
+        java.util.Arrays.sort(order, (a, b) -> Double.compare(eigenvalues[b], eigenvalues[a]));
+
+        // V_d = B^T U_d S_d^-1 với B B^T = U S^2 U^T
+        float[] termFactors = new float[vocabularySize * d];
+        for (int c = 0; c < d; c++) {
+            int e = order[c];
+            double sigma = Math.sqrt(Math.max(0.0, eigenvalues[e]));
+            if (sigma < EPSILON) {
+                continue;
+            }
+            for (int t = 0; t < vocabularySize; t++) {
+                double value = 0;
+                for (int j = 0; j < k; j++) {
+                    value += bt[j][t] * eigenvectors[j][e];
+                }
+                termFactors[t * d + c] = (float) (value / sigma);
+            }
+        }
+        return new SvdProjection(d, termFactors);
+    }
+
+    /**
+     * Projects and L2-normalises {@code vector}; returns {@code null} when it has no component in
+     * the fitted subspace.
+     */
+    public float[] embed(SparseVector vector) {
+        if (vector == null || vector.isEmpty()) {
+            return null;
+        }
+        float[] out = new float[dimensions];
+        for (int i = 0; i < vector.size(); i++) {
+            int base = vector.termAt(i) * dimensions;
+            if (base >= termFactors.length) {
+                continue;
+            }
+            float w = vector.weightAt(i);
+            for (int c = 0; c < dimensions; c++) {
+                out[c] += w * termFactors[base + c];
+            }
+        }
+        double norm = 0;
+        for (float v : out) {
+            norm += (double) v * v;
+        }
+        if (norm < EPSILON) {
+            return null;
+        }
+        float inv = (float) (1.0 / Math.sqrt(norm));
+        for (int c = 0; c < dimensions; c++) {
+            out[c] *= inv;
+        }
+        return out;
+    }
+
+    // A * M, với M lưu theo cột; kết quả có rowCount hàng, lưu theo cột
+    private static double[][] multiply(SparseVector[] rows, int rowCount, double[][] m) {
+        double[][] out = new double[m.length][rowCount];
+        for (int r = 0; r < rowCount; r++) {
+            SparseVector row = rows[r];
+            for (int i = 0; i < row.size(); i++) {
+                int t = row.termAt(i);
+                double w = row.weightAt(i);
+                for (int j = 0; j < m.length; j++) {
+                    out[j][r] += w * m[j][t];
+                }
+            }
+        }
+        return out;
+    }
+
+    // A^T * M, với M có rowCount hàng lưu theo cột; kết quả có vocabularySize hàng
+    private static double[][] multiplyTransposed(SparseVector[] rows, int rowCount, double[][] m, int vocabularySize) {
+        double[][] out = new double[m.length][vocabularySize];
+        for (int r = 0; r < rowCount; r++) {
+            SparseVector row = rows[r];
+            for (int i = 0; i < row.size(); i++) {
+                int t = row.termAt(i);
+                double w = row.weightAt(i);
+                for (int j = 0; j < m.length; j++) {
+                    out[j][t] += w * m[j][r];
+                }
+            }
+        }
+        return out;
+    }
+
+    // Gram-Schmidt cải tiến, chạy hai lượt để bù sai số làm tròn; cột suy biến thành vector 0
+    private static void orthonormalize(double[][] columns) {
+        for (int pass = 0; pass < 2; pass++) {
+            for (int j = 0; j < columns.length; j++) {
+                double[] column = columns[j];
+                for (int i = 0; i < j; i++) {
+                    double projection = dot(columns[i], column);
+                    double[] previous = columns[i];
+                    for (int r = 0; r < column.length; r++) {
+                        column[r] -= projection * previous[r];
+                    }
+                }
+                double norm = Math.sqrt(dot(column, column));
+                double scale = norm < EPSILON ? 0.0 : 1.0 / norm;
+                for (int r = 0; r < column.length; r++) {
+                    column[r] *= scale;
+                }
+            }
+        }
+    }
+
+    /**
+     * Cyclic Jacobi eigen-decomposition of a small symmetric matrix. {@code matrix} is destroyed;
+     * column {@code e} of {@code vectors} receives the eigenvector of the returned value {@code e}.
+     */
+    static double[] symmetricEigen(double[][] matrix, double[][] vectors) {
+        int n = matrix.length;
+        for (int i = 0; i < n; i++) {
+            java.util.Arrays.fill(vectors[i], 0.0);
+            vectors[i][i] = 1.0;
+        }
+        for (int sweep = 0; sweep < 100; sweep++) {
+            double off = 0;
+            double diagonal = 0;
+            for (int i = 0; i < n; i++) {
+                diagonal += matrix[i][i] * matrix[i][i];
+                for (int j = i + 1; j < n; j++) {
+                    off += matrix[i][j] * matrix[i][j];
+                }
+            }
+            if (off <= 1e-22 * Math.max(diagonal, EPSILON)) {
+                break;
+            }
+            for (int p = 0; p < n; p++) {
+                for (int q = p + 1; q < n; q++) {
+                    double apq = matrix[p][q];
+                    if (Math.abs(apq) < 1e-300) {
+                        continue;
+                    }
+                    double theta = (matrix[q][q] - matrix[p][p]) / (2 * apq);
+                    double t = Math.signum(theta) / (Math.abs(theta) + Math.sqrt(theta * theta + 1));
+                    if (theta == 0) {
+                        t = 1;
+                    }
+                    double c = 1 / Math.sqrt(t * t + 1);
+                    double s = t * c;
+                    for (int r = 0; r < n; r++) {
+                        double arp = matrix[r][p];
+                        double arq = matrix[r][q];
+                        matrix[r][p] = c * arp - s * arq;
+                        matrix[r][q] = s * arp + c * arq;
+                    }
+                    for (int r = 0; r < n; r++) {
+                        double apr = matrix[p][r];
+                        double aqr = matrix[q][r];
+                        matrix[p][r] = c * apr - s * aqr;
+                        matrix[q][r] = s * apr + c * aqr;
+                    }
+                    for (int r = 0; r < n; r++) {
+                        double vrp = vectors[r][p];
+                        double vrq = vectors[r][q];
+                        vectors[r][p] = c * vrp - s * vrq;
+                        vectors[r][q] = s * vrp + c * vrq;
+                    }
+                }
+            }
+        }
+        double[] values = new double[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = matrix[i][i];
+        }
+        return values;
+    }
+
+    private static double dot(double[] a, double[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,69 @@
+package com.trash.ecommerce.recommendation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Tokenizer used to build product term vectors.
+ * Mirrors scikit-learn's default analyzer: lower case, tokens of two or more word
+ * characters, english stop words removed.
+ */
+public final class TextAnalyzer {
+
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList((
+            "a about above across after afterwards again against all almost alone along already also although " +
+            "always am among amongst amoungst amount an and another any anyhow anyone anything anyway anywhere " +
+            "are around as at back be became because become becomes becoming been before beforehand behind being " +
+            "below beside besides between beyond bill both bottom but by call can cannot cant co con could couldnt " +
+            "cry de describe detail do done down due during each eg eight either eleven else elsewhere empty enough " +
+            "etc even ever every everyone everything everywhere except few fifteen fifty fill find fire first five " +
+            "for former formerly forty found four from front full further get give go had has hasnt have he hence " +
+            "her here hereafter hereby herein hereupon hers herself him himself his how however hundred i ie if in " +
+            "inc indeed interest into is it its itself keep last latter latterly least less ltd made many may me " +
+            "meanwhile might mill mine more moreover most mostly move much must my myself name namely neither never " +
+            "nevertheless next nine no nobody none noone nor not nothing now nowhere of off often on once one only " +
+            "onto or other others otherwise our ours ourselves out over own part per perhaps please put rather re " +
+            "same see seem seemed seeming seems serious several she should show side since sincere six sixty so some " +
+            "somehow someone something sometime sometimes somewhere still such system take ten than that the their " +
+            "them themselves then thence there thereafter thereby therefore therein thereupon these they thick thin " +
+            "third this those though three through throughout thru thus to together too top toward towards twelve " +
+            "twenty two un under until up upon us very via was we well were what whatever when whence whenever where " +
+            "whereafter whereas whereby wherein whereupon wherever whether which while whither who whoever whole whom " +
+            "whose why will with within without would yet you your yours yourself yourselves"
+    ).split(" ")));
+
+    private TextAnalyzer() {
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean word = i < lower.length() && isWordChar(lower.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                if (i - start >= 2) {
+                    String token = lower.substring(start, i);
+                    if (!STOP_WORDS.contains(token)) {
+                        tokens.add(token);
+                    }
+                }
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+}
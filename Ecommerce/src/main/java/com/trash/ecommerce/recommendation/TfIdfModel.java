@@ -0,0 +1,71 @@
+package com.trash.ecommerce.recommendation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Vocabulary and inverse document frequencies fitted over the product catalog.
+ * Uses the same smoothing as scikit-learn's TfidfVectorizer: idf = ln((1 + n) / (1 + df)) + 1.
+ */
+public final class TfIdfModel {
+
+    private final Map<String, Integer> vocabulary;
+    private final float[] idf;
+
+    private TfIdfModel(Map<String, Integer> vocabulary, float[] idf) {
+        this.vocabulary = vocabulary;
+        this.idf = idf;
+    }
+
+    public static TfIdfModel fit(List<List<String>> documents, int maxFeatures) {
+        Map<String, int[]> stats = new HashMap<>();
+        for (List<String> tokens : documents) {
+            Map<String, Boolean> seen = new HashMap<>();
+            for (String token : tokens) {
+                int[] s = stats.computeIfAbsent(token, t -> new int[2]);
+                s[0]++;
+                if (seen.put(token, Boolean.TRUE) == null) {
+                    s[1]++;
+                }
+            }
+        }
+
+        List<Map.Entry<String, int[]>> terms = new ArrayList<>(stats.entrySet());
+        terms.sort((a, b) -> {
+            int cmp = Integer.compare(b.getValue()[0], a.getValue()[0]);
+            return cmp != 0 ? cmp : a.getKey().compareTo(b.getKey());
+        });
+        int size = Math.min(maxFeatures, terms.size());
+
+        Map<String, Integer> vocabulary = new HashMap<>(size * 2);
+        float[] idf = new float[size];
+        int n = documents.size();
+        for (int i = 0; i < size; i++) {
+            Map.Entry<String, int[]> term = terms.get(i);
+            vocabulary.put(term.getKey(), i);
+            idf[i] = (float) (Math.log((1.0 + n) / (1.0 + term.getValue()[1])) + 1.0);
+        }
+        return new TfIdfModel(vocabulary, idf);
+    }
+
+    public SparseVector vectorize(List<String> tokens) {
+        int[] terms = new int[tokens.size()];
+        float[] weights = new float[tokens.size()];
+        int n = 0;
+        for (String token : tokens) {
+            Integer term = vocabulary.get(token);
+            if (term != null) {
+                terms[n] = term;
+                weights[n] = idf[term];
+                n++;
+            }
+        }
+        return SparseVector.normalized(terms, weights, n);
+    }
+
+    public int vocabularySize() {
+        return idf.length;
+    }
+}
@@ -0,0 +1,255 @@
+package com.trash.ecommerce.recommendation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Precomputed K nearest neighbours for every product, stored row-major in flat primitive arrays.
+ * Row {@code r} owns slots {@code [r * k, r * k + counts[r])} of {@code neighborIds} / {@code neighborScores}.
+ * Memory is O(N * K) instead of the O(N^2) of a dense similarity matrix.
+ * Not thread-safe for writes; {@link RecommendationModel} guards mutations.
+ */
+public final class TopKNeighborIndex {
+
+    private static final int MAGIC = 0x544f504b;
+    private static final int VERSION = 1;
+
+    private final int k;
+    private final long fingerprint;
+    private long[] productIds;
+    private int[] counts;
+    private long[] neighborIds;
+    private float[] neighborScores;
+    private int rowCount;
+    private final Map<Long, Integer> rowById;
+
+    private TopKNeighborIndex(int k, long fingerprint, long[] productIds, int[] counts,
+                              long[] neighborIds, float[] neighborScores) {
+        this.k = k;
+        this.fingerprint = fingerprint;
+        this.productIds = productIds;
+        this.counts = counts;
+        this.neighborIds = neighborIds;
+        this.neighborScores = neighborScores;
+        this.rowCount = productIds.length;
+        this.rowById = new HashMap<>(productIds.length * 2);
+        for (int row = 0; row < productIds.length; row++) {
+            rowById.put(productIds[row], row);
+        }
+    }
+
+    static TopKNeighborIndex build(ProductVectorIndex vectors, int k, long fingerprint) {
+        int rows = vectors.size();
+        long[] productIds = new long[rows];
+        int[] counts = new int[rows];
+        long[] neighborIds = new long[rows * k];
+        float[] neighborScores = new float[rows * k];
+        IntStream.range(0, rows).parallel().forEach(row -> {
+            productIds[row] = vectors.productIdAt(row);
+            counts[row] = vectors.nearestNeighbors(row, k, neighborIds, neighborScores, row * k);
+        });
+        return new TopKNeighborIndex(k, fingerprint, productIds, counts, neighborIds, neighborScores);
+    }
+
+    public int k() {
+        return k;
+    }
+
+    public long fingerprint() {
+        return fingerprint;
+    }
+
+    public boolean contains(long productId) {
+        return rowById.containsKey(productId);
+    }
+
+    public List<Long> neighbors(long productId, int limit) {
+        Integer row = rowById.get(productId);
+        if (row == null) {
+            return List.of();
+        }
+        int n = Math.min(limit, counts[row]);
+        List<Long> result = new ArrayList<>(n);
+        int base = row * k;
+        for (int i = 0; i < n; i++) {
+            result.add(neighborIds[base + i]);
+        }
+        return result;
+    }
+
+    /**
+     * Replaces the neighbour list of {@code productId}, adding a row when the product is new.
+     */
+    void setNeighbors(long productId, long[] ids, float[] scores, int n) {
+        int row = rowFor(productId);
+        int base = row * k;
+        int count = Math.min(n, k);
+        System.arraycopy(ids, 0, neighborIds, base, count);
+        System.arraycopy(scores, 0, neighborScores, base, count);
+        counts[row] = count;
+    }
+
+    /**
+     * Offers {@code candidateId} with its new score as a neighbour of {@code productId}.
+     * An existing entry for the candidate is replaced so the list stays sorted by score.
+     */
+    void offer(long productId, long candidateId, float score) {
+        Integer row = rowById.get(productId);
+        if (row == null) {
+            return;
+        }
+        int base = row * k;
+        removeAt(row, indexOf(row, candidateId));
+        int count = counts[row];
+        if (count == k && score <= neighborScores[base + k - 1]) {
+            return;
+        }
+        int pos = count == k ? k - 1 : count;
+        while (pos > 0 && neighborScores[base + pos - 1] < score) {
+            neighborIds[base + pos] = neighborIds[base + pos - 1];
+            neighborScores[base + pos] = neighborScores[base + pos - 1];
+            pos--;
+        }
+        neighborIds[base + pos] = candidateId;
+        neighborScores[base + pos] = score;
+        if (count < k) {
+            counts[row] = count + 1;
+        }
+    }
+
+    /**
+     * Drops {@code candidateId} from the neighbour list of {@code productId}.
+     * Returns {@code true} when an entry was removed and the list now has a free slot.
+     */
+    boolean removeNeighbor(long productId, long candidateId) {
+        Integer row = rowById.get(productId);
+        if (row == null) {
+            return false;
+        }
+        return removeAt(row, indexOf(row, candidateId));
+    }
+
+    void removeRow(long productId) {
+        Integer row = rowById.remove(productId);
+        if (row != null) {
+            counts[row] = 0;
+            productIds[row] = -1L;
+        }
+    }
+
+    private int indexOf(int row, long candidateId) {
+        int base = row * k;
+        for (int i = 0; i < counts[row]; i++) {
+            if (neighborIds[base + i] == candidateId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean removeAt(int row, int index) {
+        if (index < 0) {
+            return false;
+        }
+        int base = row * k;
+        int tail = counts[row] - index - 1;
+        System.arraycopy(neighborIds, base + index + 1, neighborIds, base + index, tail);
+        System.arraycopy(neighborScores, base + index + 1, neighborScores, base + index, tail);
+        counts[row]--;
+        return true;
+    }
+
+    private int rowFor(long productId) {
+        Integer row = rowById.get(productId);
+        if (row != null) {
+            return row;
+        }
+        if (rowCount == productIds.length) {
+            int capacity = Math.max(16, rowCount + (rowCount >> 1));
+            productIds = Arrays.copyOf(productIds, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+            neighborIds = Arrays.copyOf(neighborIds, capacity * k);
+            neighborScores = Arrays.copyOf(neighborScores, capacity * k);
+        }
+        int newRow = rowCount++;
+        productIds[newRow] = productId;
+        counts[newRow] = 0;
+        rowById.put(productId, newRow);
+        return newRow;
+    }
+
+    public void writeTo(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(fingerprint);
+            out.writeInt(k);
+            out.writeInt(rowById.size());
+            for (int row = 0; row < rowCount; row++) {
+                if (productIds[row] < 0) {
+                    continue;
+                }
+                out.writeLong(productIds[row]);
+                out.writeInt(counts[row]);
+                int base = row * k;
+                for (int i = 0; i < counts[row]; i++) {
+                    out.writeLong(neighborIds[base + i]);
+                    out.writeFloat(neighborScores[base + i]);
+                }
+            }
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads a persisted index, or returns {@code null} when the file is missing, unreadable
+     * or was built for a different catalog / K.
+     */
+    public static TopKNeighborIndex readFrom(Path path, int expectedK, long expectedFingerprint) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            long fingerprint = in.readLong();
+            int k = in.readInt();
+            if (fingerprint != expectedFingerprint || k != expectedK) {
+                return null;
+            }
+            int rows = in.readInt();
+            long[] productIds = new long[rows];
+            int[] counts = new int[rows];
+            long[] neighborIds = new long[rows * k];
+            float[] neighborScores = new float[rows * k];
+            for (int row = 0; row < rows; row++) {
+                productIds[row] = in.readLong();
+                counts[row] = in.readInt();
+                int base = row * k;
+                for (int i = 0; i < counts[row]; i++) {
+                    neighborIds[base + i] = in.readLong();
+                    neighborScores[base + i] = in.readFloat();
+                }
+            }
+            return new TopKNeighborIndex(k, fingerprint, productIds, counts, neighborIds, neighborScores);
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package com.trash.ecommerce.repository;
 
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param; // <--- SỬA IMPORT NÀY
 import org.springframework.stereotype.Repository;
+import com.trash.ecommerce.dto.CheckoutLineDTO;
 import com.trash.ecommerce.entity.Cart;
 
 @Repository
@@ -16,4 +19,9 @@ public interface CartRepository extends JpaRepository<Cart, Long> {
             nativeQuery = true
     )
     int deleteCartItems(@Param("id") Long id);
+
+    // Một query cho cả giỏ hàng lúc checkout, không kéo Cart/Product/Users vào persistence context
+    @Query("SELECT new com.trash.ecommerce.dto.CheckoutLineDTO(c.id, p.id, p.productName, p.price, p.quantity, p.hotSku, ci.quantity) " +
+            "FROM CartItem ci JOIN ci.cart c JOIN ci.product p WHERE c.user.id = :userId ORDER BY p.id")
+    List<CheckoutLineDTO> findCheckoutLines(@Param("userId") Long userId);
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.trash.ecommerce.repository;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.trash.ecommerce.entity.EmailOutbox;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    // SKIP LOCKED để nhiều instance cùng chạy dispatcher không lấy trùng mail
+    @Query(value = "SELECT * FROM email_outbox WHERE status = 'PENDING' AND next_attempt_at <= :now " +
+            "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<EmailOutbox> lockDue(@Param("now") Date now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("DELETE FROM EmailOutbox e WHERE e.status = com.trash.ecommerce.entity.EmailStatus.SENT AND e.sentAt < :before")
+    int deleteSentBefore(@Param("before") Date before);
+}
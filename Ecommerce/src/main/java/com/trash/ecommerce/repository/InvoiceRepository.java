@@ -7,5 +7,6 @@ import com.trash.ecommerce.entity.Invoice;
 
 @Repository
 public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
+    boolean existsByOrderId(Long orderId);
 
 }
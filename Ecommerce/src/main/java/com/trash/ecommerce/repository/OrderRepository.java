@@ -1,22 +1,67 @@
 package com.trash.ecommerce.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.trash.ecommerce.dto.OrderSummaryDTO;
 import com.trash.ecommerce.entity.Order;
+import com.trash.ecommerce.entity.OrderStatus;
 
+import jakarta.persistence.LockModeType;
+
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
-    List<Order> findByUserIdOrderByCreateAtDesc(Long userId);
-    
+    // Đếm số dòng bằng subquery thay vì GROUP BY để MySQL dừng ngay sau LIMIT trên idx_orders_user_created
+    String SUMMARY_SELECT = "SELECT new com.trash.ecommerce.dto.OrderSummaryDTO(o.id, o.createAt, o.status, o.totalPrice, " +
+            "pm.methodName, " +
+            "CASE WHEN o.status = com.trash.ecommerce.entity.OrderStatus.PENDING_PAYMENT " +
+            "AND o.paymentUrlExpiresAt > CURRENT_TIMESTAMP THEN o.paymentUrl END, " +
+            "(SELECT COUNT(oi) FROM OrderItem oi WHERE oi.order = o)) " +
+            "FROM Order o LEFT JOIN o.paymentMethod pm ";
+
+    @Query(SUMMARY_SELECT + "WHERE o.user.id = :userId ORDER BY o.createAt DESC, o.id DESC")
+    List<OrderSummaryDTO> findSummariesByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE o.user.id = :userId " +
+            "AND (o.createAt < :createAt OR (o.createAt = :createAt AND o.id < :id)) " +
+            "ORDER BY o.createAt DESC, o.id DESC")
+    List<OrderSummaryDTO> findSummariesByUserIdBefore(@Param("userId") Long userId, @Param("createAt") Date createAt,
+                                                      @Param("id") Long id, Pageable pageable);
+
     @Query("SELECT COUNT(o) > 0 FROM Order o " +
            "JOIN o.orderItems oi " +
            "WHERE o.user.id = :userId " +
            "AND oi.product.id = :productId " +
            "AND o.status IN (com.trash.ecommerce.entity.OrderStatus.PAID, com.trash.ecommerce.entity.OrderStatus.PLACED)")
     boolean existsByUserIdAndProductIdAndStatusPaid(@Param("userId") Long userId, @Param("productId") Long productId);
+
+    @Modifying
+    @Query("UPDATE Order o SET o.status = com.trash.ecommerce.entity.OrderStatus.CANCELLED " +
+           "WHERE o.id = :orderId AND o.status = com.trash.ecommerce.entity.OrderStatus.PENDING_PAYMENT")
+    int cancelIfPendingPayment(@Param("orderId") Long orderId);
+
+    @Modifying
+    @Query("UPDATE Order o SET o.status = com.trash.ecommerce.entity.OrderStatus.PAID " +
+           "WHERE o.id = :orderId AND o.status = com.trash.ecommerce.entity.OrderStatus.PENDING_PAYMENT")
+    int markPaidIfPendingPayment(@Param("orderId") Long orderId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.id = :id")
+    Optional<Order> lockById(@Param("id") Long id);
+
+    @Query("SELECT o.id FROM Order o WHERE o.createAt >= :from AND o.createAt < :before " +
+           "AND o.status IN :statuses " +
+           "AND NOT EXISTS (SELECT i.id FROM Invoice i WHERE i.order = o) ORDER BY o.createAt, o.id")
+    List<Long> findIdsWithoutInvoice(@Param("statuses") Collection<OrderStatus> statuses, @Param("from") Date from,
+                                     @Param("before") Date before, Pageable pageable);
 }
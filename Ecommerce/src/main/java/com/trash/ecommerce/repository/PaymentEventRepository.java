@@ -0,0 +1,29 @@
+package com.trash.ecommerce.repository;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.trash.ecommerce.entity.PaymentEvent;
+
+import jakarta.persistence.LockModeType;
+
+@Repository
+public interface PaymentEventRepository extends JpaRepository<PaymentEvent, Long> {
+    boolean existsByTxnRef(String txnRef);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM PaymentEvent e WHERE e.id = :id")
+    Optional<PaymentEvent> lockById(@Param("id") Long id);
+
+    @Query("SELECT e.id FROM PaymentEvent e " +
+            "WHERE e.status = com.trash.ecommerce.entity.PaymentEventStatus.RECEIVED AND e.createdAt < :before ORDER BY e.id")
+    List<Long> findReceivedIdsBefore(@Param("before") Date before, Pageable pageable);
+}
@@ -1,26 +1,57 @@
 package com.trash.ecommerce.repository;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.trash.ecommerce.dto.ProductCategoryDTO;
+import com.trash.ecommerce.dto.ProductSummaryDTO;
+import com.trash.ecommerce.dto.ProductTextDTO;
 import com.trash.ecommerce.entity.Product;
 @Repository
 public interface ProductRepository extends JpaRepository <Product, Long> {
-    @Query(
-        value = " SELECT * FROM product " + 
-        "WHERE product_name LIKE CONCAT('%', :name, '%') ",
-        nativeQuery = true
-    )
-    Page<Product> findProductsByName(@Param("name") String name, PageRequest pageRequest);
-
-    @Modifying
-    @Query(value = "UPDATE product p SET p.quantity = p.quantity - :amount " +
-            "WHERE p.id = :id AND p.quantity >= :amount",
-            nativeQuery = true)
-    int decreaseStock(@Param("id") Long id, @Param("amount") Long amount);
+    String SUMMARY_SELECT = "SELECT new com.trash.ecommerce.dto.ProductSummaryDTO(p.id, p.productName, p.price, " +
+            "p.quantity, p.category, p.image, p.ratingCount, p.rating) ";
+
+    // Trả về List thay vì Page nên không chạy thêm COUNT(*)
+    @Query(SUMMARY_SELECT + "FROM Product p WHERE p.productName LIKE CONCAT('%', :name, '%') ORDER BY p.id")
+    List<ProductSummaryDTO> findProductsByName(@Param("name") String name, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "FROM Product p ORDER BY p.id")
+    List<ProductSummaryDTO> findSummaries(Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "FROM Product p WHERE p.id IN :ids")
+    List<ProductSummaryDTO> findSummariesByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT new com.trash.ecommerce.dto.ProductTextDTO(p.id, p.productName, p.category, p.description) " +
+            "FROM Product p WHERE p.id > :afterId ORDER BY p.id")
+    List<ProductTextDTO> findProductTextsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "FROM Product p WHERE p.id > :afterId ORDER BY p.id")
+    List<ProductSummaryDTO> findPageAfterId(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "FROM Product p ORDER BY p.price, p.id")
+    List<ProductSummaryDTO> findFirstPageByPrice(Pageable pageable);
+
+    // Viết dạng price >= :price để MySQL dùng range trên idx_product_price_id thay vì quét cả bảng
+    @Query(SUMMARY_SELECT + "FROM Product p WHERE p.price >= :price AND (p.price > :price OR p.id > :afterId) " +
+            "ORDER BY p.price, p.id")
+    List<ProductSummaryDTO> findPageByPriceAfter(@Param("price") BigDecimal price, @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT new com.trash.ecommerce.dto.ProductTextDTO(p.id, p.productName, p.category, p.description) " +
+            "FROM Product p WHERE p.id = :id")
+    Optional<ProductTextDTO> findProductTextById(@Param("id") Long id);
+
+    @Query("SELECT p.id FROM Product p ORDER BY p.ratingCount DESC, p.rating DESC, p.id")
+    List<Long> findPopularIds(Pageable pageable);
+
+    @Query("SELECT new com.trash.ecommerce.dto.ProductCategoryDTO(p.id, p.category) FROM Product p WHERE p.id IN :ids")
+    List<ProductCategoryDTO> findCategoriesByIds(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,34 @@
+package com.trash.ecommerce.repository;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.trash.ecommerce.entity.ReservationStatus;
+import com.trash.ecommerce.entity.StockReservation;
+
+import jakarta.persistence.LockModeType;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM StockReservation r WHERE r.orderId = :orderId AND r.status = :status ORDER BY r.id")
+    List<StockReservation> lockByOrderIdAndStatus(@Param("orderId") Long orderId, @Param("status") ReservationStatus status);
+
+    @Modifying
+    @Query("UPDATE StockReservation r SET r.status = com.trash.ecommerce.entity.ReservationStatus.COMMITTED " +
+            "WHERE r.orderId = :orderId AND r.status = com.trash.ecommerce.entity.ReservationStatus.HELD")
+    int commitByOrderId(@Param("orderId") Long orderId);
+
+    @Query("SELECT DISTINCT r.orderId FROM StockReservation r " +
+            "WHERE r.status = com.trash.ecommerce.entity.ReservationStatus.HELD AND r.expiresAt < :now")
+    List<Long> findExpiredOrderIds(@Param("now") Date now, Pageable pageable);
+}
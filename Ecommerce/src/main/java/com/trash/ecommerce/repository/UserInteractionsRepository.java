@@ -1,7 +1,11 @@
 package com.trash.ecommerce.repository;
 
+import com.trash.ecommerce.dto.RecentInteractionDTO;
 import com.trash.ecommerce.entity.UserInteractions;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,4 +15,8 @@ public interface UserInteractionsRepository extends JpaRepository<UserInteractio
     List<UserInteractions> findByUserId(Long userId);
     List<UserInteractions> findByProductId(Long productId);
     List<UserInteractions> findByUserIdAndProductId(Long userId, Long productId);
+
+    @Query("SELECT new com.trash.ecommerce.dto.RecentInteractionDTO(ui.product.id, ui.createdAt) " +
+           "FROM UserInteractions ui WHERE ui.user.id = :userId ORDER BY ui.createdAt DESC, ui.id DESC")
+    List<RecentInteractionDTO> findRecentByUserId(@Param("userId") Long userId, Pageable pageable);
 }
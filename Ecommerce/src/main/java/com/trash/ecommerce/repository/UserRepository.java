@@ -1,13 +1,31 @@
 package com.trash.ecommerce.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.trash.ecommerce.dto.UserRoleRowDTO;
 import com.trash.ecommerce.entity.Users;
 
 @Repository
 public interface UserRepository extends JpaRepository <Users, Long>  {
     public Optional<Users> findByEmail(String email);
+
+    @Query("SELECT u.address FROM Users u WHERE u.id = :id")
+    public Optional<String> findAddressById(@Param("id") Long id);
+
+    // Phân trang trên id trước: LIMIT trên các dòng (user, role) sẽ cắt ngang roles của một user
+    @Query("SELECT u.id FROM Users u WHERE u.id > :afterId ORDER BY u.id")
+    public List<Long> findIdPageAfterId(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT new com.trash.ecommerce.dto.UserRoleRowDTO(u.id, u.email, u.address, r.roleName) " +
+            "FROM Users u LEFT JOIN u.roles r WHERE u.id IN :ids ORDER BY u.id")
+    public List<UserRoleRowDTO> findProfileRowsByIdIn(@Param("ids") Collection<Long> ids);
 }
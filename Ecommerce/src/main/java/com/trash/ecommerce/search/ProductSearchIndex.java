@@ -0,0 +1,316 @@
+package com.trash.ecommerce.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.trash.ecommerce.dto.ProductTextDTO;
+
+/**
+ * In-memory inverted index over product name, category and description ranked with BM25.
+ * Fields are weighted (name > category > description) by scaling term frequencies.
+ * <p>
+ * Updates never rewrite postings in place: the old document slot is tombstoned and a new slot
+ * appended, the same way Lucene handles deletes. Dead postings are skipped at query time and
+ * dropped when the owner rebuilds the index (see {@link #deletedRatio()}).
+ */
+public final class ProductSearchIndex {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final float NAME_WEIGHT = 3f;
+    private static final float CATEGORY_WEIGHT = 2f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+    private static final float PREFIX_PENALTY = 0.7f;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+    // Mỗi Scratch tốn ~16 byte/slot: chỉ giữ lại vài cái, query vượt quá số này dùng buffer tạm
+    private static final int SCRATCH_POOL_SIZE = Math.min(Runtime.getRuntime().availableProcessors(), 8);
+
+    private final NavigableMap<String, Postings> terms = new TreeMap<>();
+    private final Map<Long, Integer> slotById = new HashMap<>();
+    private long[] productIds = new long[1024];
+    private float[] docLengths = new float[1024];
+    private int slotCount;
+    private int liveCount;
+    private double totalLength;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final BlockingQueue<Scratch> scratchPool = new ArrayBlockingQueue<>(SCRATCH_POOL_SIZE);
+
+    public static ProductSearchIndex build(List<ProductTextDTO> products) {
+        ProductSearchIndex index = new ProductSearchIndex();
+        for (ProductTextDTO product : products) {
+            index.add(product);
+        }
+        return index;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Share of document slots that belong to deleted or superseded products.
+     */
+    public double deletedRatio() {
+        lock.readLock().lock();
+        try {
+            return slotCount == 0 ? 0 : (double) (slotCount - liveCount) / slotCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void upsert(ProductTextDTO product) {
+        lock.writeLock().lock();
+        try {
+            delete(product.getId());
+            add(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long productId) {
+        lock.writeLock().lock();
+        try {
+            delete(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public record Hit(long productId, float score) {
+    }
+
+    /**
+     * Returns the ids of the products matching every query term, best first, skipping
+     * {@code offset} hits. The last term also matches as a prefix to support search-as-you-type.
+     */
+    public List<Long> search(String query, int offset, int limit) {
+        if (limit <= 0 || offset < 0) {
+            return List.of();
+        }
+        List<Hit> hits = rank(query, offset + limit, Float.NaN, 0L);
+        List<Long> result = new ArrayList<>(Math.max(0, hits.size() - offset));
+        for (int i = offset; i < hits.size(); i++) {
+            result.add(hits.get(i).productId());
+        }
+        return result;
+    }
+
+    /**
+     * Keyset variant of {@link #search}: returns the hits ranked strictly after
+     * {@code (afterScore, afterId)} in (score desc, id asc) order, so the cost of a page does not
+     * grow with its depth. Pass {@code Float.NaN} for the first page.
+     */
+    public List<Hit> searchAfter(String query, float afterScore, long afterId, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        return rank(query, limit, afterScore, afterId);
+    }
+
+    private List<Hit> rank(String query, int capacity, float afterScore, long afterId) {
+        List<String> tokens = SearchAnalyzer.tokenize(query);
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Scratch s = borrowScratch();
+            try {
+                float avgLength = liveCount == 0 ? 1f : (float) (totalLength / liveCount);
+                List<String> distinct = tokens.stream().distinct().toList();
+                for (int group = 0; group < distinct.size(); group++) {
+                    String token = distinct.get(group);
+                    Postings exact = terms.get(token);
+                    if (exact != null) {
+                        score(exact, group, 1f, avgLength, s);
+                    }
+                    if (group == distinct.size() - 1) {
+                        int expansions = 0;
+                        for (Map.Entry<String, Postings> e : terms.subMap(token, false, token + Character.MAX_VALUE, false).entrySet()) {
+                            if (++expansions > MAX_PREFIX_EXPANSIONS) {
+                                break;
+                            }
+                            score(e.getValue(), group, PREFIX_PENALTY, avgLength, s);
+                        }
+                    }
+                }
+                return top(s, distinct.size(), capacity, afterScore, afterId);
+            } finally {
+                s.reset();
+                returnScratch(s);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void score(Postings postings, int group, float boost, float avgLength, Scratch s) {
+        float idf = (float) Math.log(1 + (liveCount - postings.size + 0.5) / (postings.size + 0.5));
+        if (idf <= 0f) {
+            idf = 1e-3f;
+        }
+        for (int p = 0; p < postings.size; p++) {
+            int slot = postings.slots[p];
+            if (productIds[slot] < 0) {
+                continue;
+            }
+            float tf = postings.freqs[p];
+            float norm = K1 * (1 - B + B * docLengths[slot] / avgLength);
+            float value = boost * idf * tf * (K1 + 1) / (tf + norm);
+            if (s.lastGroup[slot] != group + 1) {
+                if (s.lastGroup[slot] == 0) {
+                    s.touched[s.touchedCount++] = slot;
+                }
+                s.lastGroup[slot] = group + 1;
+                s.groups[slot]++;
+            }
+            s.scores[slot] += value;
+        }
+    }
+
+    private List<Hit> top(Scratch s, int groupCount, int capacity, float afterScore, long afterId) {
+        // min-heap ordered worst first: lower score, then higher id
+        Comparator<Integer> worstFirst = (a, b) -> {
+            int cmp = Float.compare(s.scores[a], s.scores[b]);
+            return cmp != 0 ? cmp : Long.compare(productIds[b], productIds[a]);
+        };
+        PriorityQueue<Integer> heap = new PriorityQueue<>(capacity, worstFirst);
+        boolean seek = !Float.isNaN(afterScore);
+        for (int i = 0; i < s.touchedCount; i++) {
+            int slot = s.touched[i];
+            if (s.groups[slot] != groupCount) {
+                continue;
+            }
+            float score = s.scores[slot];
+            if (seek && (score > afterScore || (score == afterScore && productIds[slot] <= afterId))) {
+                continue;
+            }
+            if (heap.size() < capacity) {
+                heap.add(slot);
+            } else if (worstFirst.compare(slot, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(slot);
+            }
+        }
+        Hit[] ordered = new Hit[heap.size()];
+        for (int i = ordered.length - 1; i >= 0; i--) {
+            int slot = heap.poll();
+            ordered[i] = new Hit(productIds[slot], s.scores[slot]);
+        }
+        return Arrays.asList(ordered);
+    }
+
+    private void add(ProductTextDTO product) {
+        Map<String, float[]> freqs = new HashMap<>();
+        float length = addField(freqs, product.getProductName(), NAME_WEIGHT)
+                + addField(freqs, product.getCategory(), CATEGORY_WEIGHT)
+                + addField(freqs, product.getDescription(), DESCRIPTION_WEIGHT);
+        if (slotCount == productIds.length) {
+            productIds = Arrays.copyOf(productIds, slotCount * 2);
+            docLengths = Arrays.copyOf(docLengths, slotCount * 2);
+        }
+        int slot = slotCount++;
+        productIds[slot] = product.getId();
+        docLengths[slot] = length;
+        slotById.put(product.getId(), slot);
+        liveCount++;
+        totalLength += length;
+        for (Map.Entry<String, float[]> e : freqs.entrySet()) {
+            terms.computeIfAbsent(e.getKey(), t -> new Postings()).add(slot, e.getValue()[0]);
+        }
+    }
+
+    private static float addField(Map<String, float[]> freqs, String text, float weight) {
+        List<String> tokens = SearchAnalyzer.tokenize(text);
+        for (String token : tokens) {
+            freqs.computeIfAbsent(token, t -> new float[1])[0] += weight;
+        }
+        return tokens.size() * weight;
+    }
+
+    private void delete(long productId) {
+        Integer slot = slotById.remove(productId);
+        if (slot != null) {
+            productIds[slot] = -1L;
+            liveCount--;
+            totalLength -= docLengths[slot];
+        }
+    }
+
+    /**
+     * Buffers live in a small pool owned by this index instead of one per thread, so their
+     * number is bounded and they are dropped together with the index after a rebuild.
+     * Called under the read lock: {@code slotCount} cannot grow while the buffer is in use.
+     */
+    private Scratch borrowScratch() {
+        Scratch s = scratchPool.poll();
+        // Buffer cũ hơn số slot hiện tại thì bỏ, GC sẽ thu hồi
+        while (s != null && s.scores.length < slotCount) {
+            s = scratchPool.poll();
+        }
+        return s != null ? s : new Scratch(productIds.length);
+    }
+
+    private void returnScratch(Scratch s) {
+        scratchPool.offer(s);
+    }
+
+    private static final class Postings {
+        int[] slots = new int[4];
+        float[] freqs = new float[4];
+        int size;
+
+        void add(int slot, float freq) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            slots[size] = slot;
+            freqs[size] = freq;
+            size++;
+        }
+    }
+
+    private static final class Scratch {
+        final float[] scores;
+        final int[] groups;
+        final int[] lastGroup;
+        final int[] touched;
+        int touchedCount;
+
+        Scratch(int slots) {
+            this.scores = new float[slots];
+            this.groups = new int[slots];
+            this.lastGroup = new int[slots];
+            this.touched = new int[slots];
+        }
+
+        void reset() {
+            for (int i = 0; i < touchedCount; i++) {
+                int slot = touched[i];
+                scores[slot] = 0f;
+                groups[slot] = 0;
+                lastGroup[slot] = 0;
+            }
+            touchedCount = 0;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.trash.ecommerce.service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.trash.ecommerce.config.EmailOutboxConfig;
+import com.trash.ecommerce.entity.EmailOutbox;
+import com.trash.ecommerce.entity.EmailStatus;
+import com.trash.ecommerce.repository.EmailOutboxRepository;
+
+/**
+ * Delivers queued mail in batches. A batch is claimed in a short transaction (the rows get a
+ * lease in {@code next_attempt_at}), sent over a single SMTP connection, and the outcome of each
+ * message is written back: SENT, retried with exponential backoff, or FAILED after the last attempt.
+ * Sending is at-least-once: a crash between sending and recording re-sends after the lease.
+ */
+@Component
+public class EmailOutboxDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxDispatcher.class);
+    private static final long WINDOW_MS = 60_000;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+    @Autowired
+    private JavaMailSender mailSender;
+    @Autowired
+    private EmailOutboxConfig emailOutboxConfig;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Chỉ scheduler thread chạm vào, giới hạn theo từng instance
+    private final Map<String, DomainWindow> windows = new HashMap<>();
+
+    @Scheduled(fixedDelayString = "${email.outbox.dispatch-interval-ms:2000}")
+    public void dispatch() {
+        try {
+            List<EmailOutbox> batch;
+            do {
+                batch = claim();
+                if (!batch.isEmpty()) {
+                    deliver(batch);
+                }
+            } while (batch.size() == emailOutboxConfig.getBatchSize());
+        } catch (Exception e) {
+            logger.warn("Email dispatch failed: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${email.outbox.purge-cron:0 30 3 * * *}")
+    public void purgeSent() {
+        Date before = new Date(System.currentTimeMillis() - emailOutboxConfig.getRetentionDays() * 24L * 3600 * 1000);
+        Integer deleted = new TransactionTemplate(transactionManager).execute(status -> emailOutboxRepository.deleteSentBefore(before));
+        logger.info("Purged {} sent emails from the outbox", deleted);
+    }
+
+    private List<EmailOutbox> claim() {
+        Date now = new Date();
+        Date leaseUntil = new Date(now.getTime() + emailOutboxConfig.getLeaseSeconds() * 1000);
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            List<EmailOutbox> rows = emailOutboxRepository.lockDue(now, emailOutboxConfig.getBatchSize());
+            for (EmailOutbox row : rows) {
+                row.setNextAttemptAt(leaseUntil);
+            }
+            return rows;
+        });
+    }
+
+    private void deliver(List<EmailOutbox> batch) {
+        long now = System.currentTimeMillis();
+        List<EmailOutbox> sending = new ArrayList<>(batch.size());
+        for (EmailOutbox row : batch) {
+            DomainWindow window = windowOf(domainOf(row.getRecipient()), now);
+            if (window.count < emailOutboxConfig.getDomainRatePerMinute()) {
+                window.count++;
+                sending.add(row);
+            } else {
+                // Hết hạn mức của domain trong phút này, để lại cho cửa sổ sau
+                row.setNextAttemptAt(new Date(window.start + WINDOW_MS));
+            }
+        }
+
+        SimpleMailMessage[] messages = new SimpleMailMessage[sending.size()];
+        for (int i = 0; i < messages.length; i++) {
+            EmailOutbox row = sending.get(i);
+            messages[i] = new SimpleMailMessage();
+            messages[i].setTo(row.getRecipient());
+            messages[i].setSubject(row.getSubject());
+            messages[i].setText(row.getBody());
+        }
+        Map<Object, Exception> failed = Map.of();
+        Exception batchError = null;
+        if (messages.length > 0) {
+            try {
+                mailSender.send(messages);
+            } catch (MailSendException e) {
+                failed = e.getFailedMessages();
+                batchError = failed.isEmpty() ? e : null;
+            } catch (MailException e) {
+                batchError = e;
+            }
+        }
+
+        Date done = new Date();
+        for (int i = 0; i < messages.length; i++) {
+            EmailOutbox row = sending.get(i);
+            Exception error = batchError != null ? batchError : failed.get(messages[i]);
+            if (error == null) {
+                row.setStatus(EmailStatus.SENT);
+                row.setSentAt(done);
+                continue;
+            }
+            row.setAttempts(row.getAttempts() + 1);
+            String message = String.valueOf(error.getMessage());
+            row.setLastError(message.substring(0, Math.min(message.length(), 500)));
+            if (row.getAttempts() >= emailOutboxConfig.getMaxAttempts()) {
+                row.setStatus(EmailStatus.FAILED);
+                logger.error("Giving up email {} to {} after {} attempts: {}", row.getId(), row.getRecipient(),
+                        row.getAttempts(), message);
+            } else {
+                long backoff = emailOutboxConfig.getRetryBaseSeconds() * 1000L << (row.getAttempts() - 1);
+                row.setNextAttemptAt(new Date(done.getTime() + backoff));
+            }
+        }
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> emailOutboxRepository.saveAll(batch));
+    }
+
+    private DomainWindow windowOf(String domain, long now) {
+        if (windows.size() > 10_000) {
+            windows.clear();
+        }
+        DomainWindow window = windows.computeIfAbsent(domain, d -> new DomainWindow());
+        if (now - window.start >= WINDOW_MS) {
+            window.start = now;
+            window.count = 0;
+        }
+        return window;
+    }
+
+    private static String domainOf(String recipient) {
+        int at = recipient.lastIndexOf('@');
+        return at < 0 ? "" : recipient.substring(at + 1).toLowerCase();
+    }
+
+    private static final class DomainWindow {
+        long start;
+        int count;
+    }
+}
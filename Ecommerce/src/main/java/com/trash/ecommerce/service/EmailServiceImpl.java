@@ -1,28 +1,26 @@
 package com.trash.ecommerce.service;
+import java.util.Date;
+
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+
+import com.trash.ecommerce.entity.EmailOutbox;
+import com.trash.ecommerce.entity.EmailStatus;
+import com.trash.ecommerce.repository.EmailOutboxRepository;
 
 @Service
 public class EmailServiceImpl implements EmailService {
-    private static final Logger logger = LoggerFactory.getLogger(EmailServiceImpl.class);
 
     @Autowired
-    private JavaMailSender mailSender;
+    private EmailOutboxRepository emailOutboxRepository;
 
+    /**
+     * Queues the mail in the outbox, inside the caller's transaction when there is one, and returns
+     * without talking to the SMTP server. {@link EmailOutboxDispatcher} delivers it.
+     */
     @Override
     public void sendEmail(String to, String subject, String body) {
-        try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setTo(to);
-            message.setSubject(subject);
-            message.setText(body);
-            mailSender.send(message);
-        } catch (org.springframework.mail.MailException e) {
-            logger.error("Failed to send email to {}: {}", to, e.getMessage());
-        }
+        Date now = new Date();
+        emailOutboxRepository.save(new EmailOutbox(null, to, subject, body, EmailStatus.PENDING, 0, now, null, now, null));
     }
 }
@@ -0,0 +1,13 @@
+package com.trash.ecommerce.service;
+
+import java.util.Map;
+
+import com.trash.ecommerce.dto.ProductResponseDTO;
+
+public interface HotStockService {
+    public boolean isHot(Long productId);
+    public Map<Long, Long> decrement(Map<Long, Long> quantitiesByProductId);
+    public Map<Long, Long> increment(Map<Long, Long> quantitiesByProductId);
+    public ProductResponseDTO setHot(Long productId, boolean hot);
+    public void reconcile();
+}
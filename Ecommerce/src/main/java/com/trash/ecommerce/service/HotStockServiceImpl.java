@@ -0,0 +1,543 @@
+package com.trash.ecommerce.service;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.trash.ecommerce.dto.ProductResponseDTO;
+import com.trash.ecommerce.dto.StockShortage;
+import com.trash.ecommerce.event.ProductChangedEvent;
+import com.trash.ecommerce.exception.InsufficientStockException;
+import com.trash.ecommerce.exception.ProductFingdingException;
+
+/**
+ * Stock of products flagged {@code hot_sku} lives in a Redis counter ({@code stock:hot:<id>}) while the
+ * flag is on. Checkouts check and decrement the counters of all their hot lines in one Lua script, so
+ * a flash sale never waits on the product row lock. Every change is also added to
+ * {@code stock:hot:delta:<id>}. The reconciler moves the deltas into an in-flight claim
+ * ({@code stock:hot:inflight:<claimId>}, leased in the {@code stock:hot:inflight} sorted set), writes
+ * them back to {@code product.quantity} in one transaction together with a {@code hot_stock_writeback}
+ * marker per product, and deletes the claim only after that commit. A claim left behind by a crash is
+ * replayed when its lease runs out or at startup; the markers make a replay apply each product once.
+ * At any time {@code quantity + delta + in-flight == counter}.
+ * A counter is created lazily from {@code product.quantity} the first time a hot product is sold.
+ */
+@Service
+public class HotStockServiceImpl implements HotStockService {
+    private static final Logger logger = LoggerFactory.getLogger(HotStockServiceImpl.class);
+
+    private static final String COUNTER_PREFIX = "stock:hot:";
+    private static final String DELTA_PREFIX = "stock:hot:delta:";
+    private static final String DIRTY_KEY = "stock:hot:dirty";
+    private static final String INFLIGHT_KEY = "stock:hot:inflight";
+    private static final String CLAIM_PREFIX = "stock:hot:inflight:";
+    // Marker chỉ cần sống lâu hơn mọi claim còn có thể được replay
+    private static final long WRITEBACK_RETENTION_MS = 7L * 24 * 3600 * 1000;
+
+    private static final long OK = 0;
+    private static final long SHORT = 2;
+
+    // KEYS = counters[1..n], deltas[n+1..2n], dirty; ARGV = ids[1..n], quantities[n+1..2n]
+    // Trả về {0} nếu đã trừ, {1, i...} nếu thiếu counter, {2, i, available...} nếu không đủ hàng
+    private static final DefaultRedisScript<List> DECREMENT_SCRIPT = new DefaultRedisScript<>("""
+            local n = #ARGV / 2
+            local missing = {1}
+            for i = 1, n do
+              if redis.call('EXISTS', KEYS[i]) == 0 then missing[#missing + 1] = i end
+            end
+            if #missing > 1 then return missing end
+            local short = {2}
+            for i = 1, n do
+              local available = tonumber(redis.call('GET', KEYS[i]))
+              if available < tonumber(ARGV[n + i]) then
+                short[#short + 1] = i
+                short[#short + 1] = available
+              end
+            end
+            if #short > 1 then return short end
+            for i = 1, n do
+              redis.call('DECRBY', KEYS[i], ARGV[n + i])
+              redis.call('DECRBY', KEYS[n + i], ARGV[n + i])
+              redis.call('SADD', KEYS[2 * n + 1], ARGV[i])
+            end
+            return {0}
+            """, List.class);
+
+    // Cộng delta có dấu vào các counter đang tồn tại; trả về {1, i...} cho các counter không còn
+    private static final DefaultRedisScript<List> ADJUST_SCRIPT = new DefaultRedisScript<>("""
+            local n = #ARGV / 2
+            local missing = {1}
+            for i = 1, n do
+              if redis.call('EXISTS', KEYS[i]) == 1 then
+                redis.call('INCRBY', KEYS[i], ARGV[n + i])
+                redis.call('INCRBY', KEYS[n + i], ARGV[n + i])
+                redis.call('SADD', KEYS[2 * n + 1], ARGV[i])
+              else
+                missing[#missing + 1] = i
+              end
+            end
+            return missing
+            """, List.class);
+
+    // Chuyển delta sang claim thay vì xóa, để crash trước khi ghi MySQL không làm mất delta
+    // KEYS = deltas[1..n], dirty, inflight, claim; ARGV = ids[1..n], claimId, leaseUntil
+    // Trả về {id, delta, ...} của các delta khác 0 đã chuyển vào claim
+    private static final DefaultRedisScript<List> TAKE_DELTAS_SCRIPT = new DefaultRedisScript<>("""
+            local n = #ARGV - 2
+            local taken = {}
+            for i = 1, n do
+              local delta = tonumber(redis.call('GET', KEYS[i]) or '0')
+              redis.call('DEL', KEYS[i])
+              redis.call('SREM', KEYS[n + 1], ARGV[i])
+              if delta ~= 0 then
+                redis.call('HINCRBY', KEYS[n + 3], ARGV[i], delta)
+                taken[#taken + 1] = tonumber(ARGV[i])
+                taken[#taken + 1] = delta
+              end
+            end
+            if #taken > 0 then redis.call('ZADD', KEYS[n + 2], ARGV[n + 2], ARGV[n + 1]) end
+            return taken
+            """, List.class);
+
+    // Gia hạn claim nếu lease đã hết; KEYS = inflight; ARGV = claimId, now, leaseUntil
+    private static final DefaultRedisScript<Long> LEASE_SCRIPT = new DefaultRedisScript<>("""
+            local lease = redis.call('ZSCORE', KEYS[1], ARGV[1])
+            if lease and tonumber(lease) <= tonumber(ARGV[2]) then
+              redis.call('ZADD', KEYS[1], ARGV[3], ARGV[1])
+              return 1
+            end
+            return 0
+            """, Long.class);
+
+    // KEYS = inflight, claim; ARGV = claimId
+    private static final DefaultRedisScript<Long> FINISH_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('DEL', KEYS[2])
+            return redis.call('ZREM', KEYS[1], ARGV[1])
+            """, Long.class);
+
+    // KEYS = counter, delta, dirty; ARGV = id
+    private static final DefaultRedisScript<Long> DRAIN_SCRIPT = new DefaultRedisScript<>("""
+            local delta = tonumber(redis.call('GET', KEYS[2]) or '0')
+            redis.call('DEL', KEYS[1], KEYS[2])
+            redis.call('SREM', KEYS[3], ARGV[1])
+            return delta
+            """, Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Value("${inventory.hot-sku-claim-lease-ms:30000}")
+    private long claimLeaseMs;
+
+    private volatile Set<Long> hotIds = Set.of();
+
+    @Override
+    public boolean isHot(Long productId) {
+        return hotIds.contains(productId);
+    }
+
+    // Các instance khác thấy thay đổi cờ hot sau tối đa một chu kỳ; đường MySQL vẫn kiểm tra lại cờ dưới row lock
+    @Scheduled(fixedDelayString = "${inventory.hot-sku-refresh-interval-ms:5000}")
+    public void refreshHotIds() {
+        try {
+            hotIds = Set.copyOf(jdbcTemplate.queryForList("SELECT id FROM product WHERE hot_sku = 1", Long.class));
+        } catch (Exception e) {
+            logger.warn("Could not refresh hot product ids: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Atomically checks and decrements the counters of every line, or throws
+     * {@link InsufficientStockException} without touching any of them. Lines whose product turns out
+     * not to be hot are returned so the caller can take them from MySQL. Inside a transaction the
+     * decrement is undone when the transaction rolls back.
+     */
+    @Override
+    public Map<Long, Long> decrement(Map<Long, Long> quantitiesByProductId) {
+        TreeMap<Long, Long> lines = new TreeMap<>(quantitiesByProductId);
+        Map<Long, Long> cold = new TreeMap<>();
+        // Chạy lại sau khi tạo counter còn thiếu hoặc chuyển các dòng không còn hot sang MySQL
+        for (int attempt = 0; attempt < 3 && !lines.isEmpty(); attempt++) {
+            List<Long> ids = new ArrayList<>(lines.keySet());
+            List<Long> result = execute(DECREMENT_SCRIPT, ids, lines.values());
+            long status = result.get(0);
+            if (status == OK) {
+                // Rollback cộng lại đúng số vừa trừ
+                undoOnRollback(new TreeMap<>(lines));
+                return cold;
+            }
+            if (status == SHORT) {
+                throw new InsufficientStockException(shortages(ids, lines, result));
+            }
+            List<Long> missing = new ArrayList<>();
+            for (int i = 1; i < result.size(); i++) {
+                missing.add(ids.get(result.get(i).intValue() - 1));
+            }
+            Set<Long> stillHot = createCounters(missing);
+            for (Long id : missing) {
+                if (!stillHot.contains(id)) {
+                    cold.put(id, lines.remove(id));
+                }
+            }
+        }
+        if (!lines.isEmpty()) {
+            throw new IllegalStateException("Hot stock counters are not available for products " + lines.keySet());
+        }
+        return cold;
+    }
+
+    /**
+     * Gives stock back to the counters. Lines whose product is no longer hot are returned so the
+     * caller can add them to MySQL.
+     */
+    @Override
+    public Map<Long, Long> increment(Map<Long, Long> quantitiesByProductId) {
+        TreeMap<Long, Long> lines = new TreeMap<>(quantitiesByProductId);
+        Map<Long, Long> missing = adjust(lines);
+        Map<Long, Long> undo = new TreeMap<>();
+        lines.forEach((id, quantity) -> {
+            if (!missing.containsKey(id)) {
+                undo.put(id, -quantity);
+            }
+        });
+        undoOnRollback(undo);
+        return missing;
+    }
+
+    /**
+     * Turns hot-SKU mode on or off. Turning it off folds the pending and in-flight deltas back into
+     * {@code product.quantity} under the row lock and drops the counter, so MySQL never resumes
+     * selling from a quantity that does not yet include every Redis sale.
+     */
+    @Override
+    @Transactional
+    public ProductResponseDTO setHot(Long productId, boolean hot) {
+        List<Boolean> current = jdbcTemplate.queryForList(
+                "SELECT hot_sku FROM product WHERE id = ? FOR UPDATE", Boolean.class, productId);
+        if (current.isEmpty()) {
+            throw new ProductFingdingException("Product is not found");
+        }
+        if (Boolean.TRUE.equals(current.get(0)) == hot) {
+            return new ProductResponseDTO(hot ? "Product is already hot" : "Product is not hot");
+        }
+        jdbcTemplate.update("UPDATE product SET hot_sku = ? WHERE id = ?", hot, productId);
+        if (hot) {
+            Set<Long> ids = new HashSet<>(hotIds);
+            ids.add(productId);
+            hotIds = Set.copyOf(ids);
+            return new ProductResponseDTO("Hot-SKU mode is enabled");
+        }
+
+        boolean changed = settleInFlight(productId);
+        Long delta = stringRedisTemplate.execute(DRAIN_SCRIPT,
+                List.of(COUNTER_PREFIX + productId, DELTA_PREFIX + productId, DIRTY_KEY), productId.toString());
+        if (delta != null && delta != 0) {
+            jdbcTemplate.update("UPDATE product SET quantity = quantity + ? WHERE id = ?", delta, productId);
+            changed = true;
+        }
+        if (changed) {
+            eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.Type.STOCK_CHANGED));
+        }
+        Set<Long> ids = new HashSet<>(hotIds);
+        ids.remove(productId);
+        hotIds = Set.copyOf(ids);
+        return new ProductResponseDTO("Hot-SKU mode is disabled");
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${inventory.hot-sku-reconcile-interval-ms:1000}")
+    public void reconcile() {
+        Set<String> dirty;
+        try {
+            replayClaims(false);
+            dirty = stringRedisTemplate.opsForSet().members(DIRTY_KEY);
+        } catch (Exception e) {
+            logger.warn("Could not read hot stock deltas: {}", e.getMessage());
+            return;
+        }
+        if (dirty == null || dirty.isEmpty()) {
+            return;
+        }
+        String claimId = UUID.randomUUID().toString();
+        List<String> keys = new ArrayList<>(dirty.size() + 3);
+        List<Object> args = new ArrayList<>(dirty.size() + 2);
+        for (String member : dirty) {
+            keys.add(DELTA_PREFIX + member);
+            args.add(member);
+        }
+        keys.add(DIRTY_KEY);
+        keys.add(INFLIGHT_KEY);
+        keys.add(CLAIM_PREFIX + claimId);
+        args.add(claimId);
+        args.add(Long.toString(System.currentTimeMillis() + claimLeaseMs));
+        List<Long> taken = stringRedisTemplate.execute(TAKE_DELTAS_SCRIPT, keys, args.toArray());
+
+        Map<Long, Long> deltas = new TreeMap<>();
+        for (int i = 0; i + 1 < taken.size(); i += 2) {
+            deltas.put(taken.get(i), taken.get(i + 1));
+        }
+        if (!deltas.isEmpty()) {
+            settle(claimId, deltas);
+        }
+    }
+
+    /**
+     * Replays every in-flight claim, including ones another instance still holds a lease on; the
+     * write-back markers keep a claim that is applied twice from changing stock twice.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void replayInFlight() {
+        try {
+            replayClaims(true);
+        } catch (Exception e) {
+            logger.warn("Could not replay in-flight hot stock claims: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.hot-sku-writeback-purge-interval-ms:3600000}")
+    public void purgeWritebackMarkers() {
+        try {
+            jdbcTemplate.update("DELETE FROM hot_stock_writeback WHERE applied_at < ?",
+                    new Timestamp(System.currentTimeMillis() - WRITEBACK_RETENTION_MS));
+        } catch (Exception e) {
+            logger.warn("Could not purge hot stock write-back markers: {}", e.getMessage());
+        }
+    }
+
+    private void replayClaims(boolean force) {
+        long now = System.currentTimeMillis();
+        Set<String> claims = force
+                ? stringRedisTemplate.opsForZSet().range(INFLIGHT_KEY, 0, -1)
+                : stringRedisTemplate.opsForZSet().rangeByScore(INFLIGHT_KEY, 0, now);
+        if (claims == null) {
+            return;
+        }
+        for (String claimId : claims) {
+            Long leased = stringRedisTemplate.execute(LEASE_SCRIPT, List.of(INFLIGHT_KEY), claimId,
+                    Long.toString(force ? Long.MAX_VALUE : now), Long.toString(now + claimLeaseMs));
+            if (leased == null || leased != 1) {
+                continue;
+            }
+            Map<Long, Long> deltas = new TreeMap<>();
+            stringRedisTemplate.opsForHash().entries(CLAIM_PREFIX + claimId).forEach((id, delta) ->
+                    deltas.put(Long.valueOf(id.toString()), Long.valueOf(delta.toString())));
+            logger.info("Replaying hot stock claim {} for products {}", claimId, deltas.keySet());
+            settle(claimId, deltas);
+        }
+    }
+
+    /**
+     * Writes a claim back to MySQL and then deletes it from Redis. When the write fails the claim
+     * stays in flight and is replayed once its lease runs out.
+     */
+    private void settle(String claimId, Map<Long, Long> deltas) {
+        Set<Long> applied;
+        try {
+            applied = new TransactionTemplate(transactionManager).execute(status -> applyClaim(claimId, deltas));
+        } catch (Exception e) {
+            logger.warn("Could not write hot stock claim {} back to MySQL, it is retried after its lease: {}",
+                    claimId, e.getMessage());
+            return;
+        }
+        stringRedisTemplate.execute(FINISH_SCRIPT, List.of(INFLIGHT_KEY, CLAIM_PREFIX + claimId), claimId);
+        for (Long productId : applied) {
+            eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.Type.STOCK_CHANGED));
+        }
+    }
+
+    /**
+     * Applies the deltas of a claim that have no write-back marker yet and inserts their markers.
+     * Quantities are updated before the markers are written, the same lock order as
+     * {@link #settleInFlight}, so a concurrent settle of one product makes this transaction roll back
+     * instead of deadlocking.
+     */
+    private Set<Long> applyClaim(String claimId, Map<Long, Long> deltas) {
+        Map<Long, Long> pending = new TreeMap<>(deltas);
+        jdbcTemplate.queryForList("SELECT product_id FROM hot_stock_writeback WHERE claim_id = ?", Long.class, claimId)
+                .forEach(pending::remove);
+        if (pending.isEmpty()) {
+            return Set.of();
+        }
+        applyDeltas(pending);
+        StringBuilder sql = new StringBuilder("INSERT IGNORE INTO hot_stock_writeback (claim_id, product_id, applied_at) VALUES ");
+        List<Object> args = new ArrayList<>(pending.size() * 3);
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        for (Long productId : pending.keySet()) {
+            sql.append(args.isEmpty() ? "(?, ?, ?)" : ", (?, ?, ?)");
+            args.add(claimId);
+            args.add(productId);
+            args.add(now);
+        }
+        int inserted = jdbcTemplate.update(sql.toString(), args.toArray());
+        if (inserted != pending.size()) {
+            throw new IllegalStateException("Hot stock claim " + claimId + " was partly settled concurrently");
+        }
+        return pending.keySet();
+    }
+
+    /**
+     * Folds the in-flight deltas of one product into {@code product.quantity}. Runs inside
+     * {@link #setHot} under the product row lock.
+     */
+    private boolean settleInFlight(Long productId) {
+        Set<String> claims = stringRedisTemplate.opsForZSet().range(INFLIGHT_KEY, 0, -1);
+        if (claims == null) {
+            return false;
+        }
+        boolean changed = false;
+        for (String claimId : claims) {
+            Object delta = stringRedisTemplate.opsForHash().get(CLAIM_PREFIX + claimId, productId.toString());
+            if (delta == null) {
+                continue;
+            }
+            int inserted = jdbcTemplate.update(
+                    "INSERT IGNORE INTO hot_stock_writeback (claim_id, product_id, applied_at) VALUES (?, ?, ?)",
+                    claimId, productId, new Timestamp(System.currentTimeMillis()));
+            if (inserted == 1) {
+                jdbcTemplate.update("UPDATE product SET quantity = quantity + ? WHERE id = ?",
+                        Long.valueOf(delta.toString()), productId);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private void applyDeltas(Map<Long, Long> deltas) {
+        String placeholders = String.join(",", Collections.nCopies(deltas.size(), "?"));
+        StringBuilder sql = new StringBuilder("UPDATE product SET quantity = quantity + CASE id");
+        List<Object> args = new ArrayList<>(deltas.size() * 3);
+        for (Map.Entry<Long, Long> line : deltas.entrySet()) {
+            sql.append(" WHEN ? THEN ?");
+            args.add(line.getKey());
+            args.add(line.getValue());
+        }
+        sql.append(" END WHERE id IN (").append(placeholders).append(")");
+        args.addAll(deltas.keySet());
+        jdbcTemplate.update(sql.toString(), args.toArray());
+    }
+
+    /**
+     * Creates the missing counters from {@code product.quantity} and returns the ids that are hot.
+     * The locking read waits for a concurrent {@link #setHot} that is folding a delta back, so a
+     * counter is never seeded from a quantity that is about to change.
+     */
+    private Set<Long> createCounters(List<Long> productIds) {
+        String placeholders = String.join(",", Collections.nCopies(productIds.size(), "?"));
+        Set<Long> hot = new HashSet<>();
+        jdbcTemplate.query(
+                "SELECT id, quantity FROM product WHERE id IN (" + placeholders + ") AND hot_sku = 1 ORDER BY id FOR UPDATE",
+                rs -> {
+                    long id = rs.getLong("id");
+                    stringRedisTemplate.opsForValue().setIfAbsent(COUNTER_PREFIX + id, Long.toString(rs.getLong("quantity")));
+                    hot.add(id);
+                },
+                productIds.toArray());
+        return hot;
+    }
+
+    private Map<Long, Long> adjust(Map<Long, Long> deltas) {
+        List<Long> ids = new ArrayList<>(deltas.keySet());
+        List<Long> result = execute(ADJUST_SCRIPT, ids, deltas.values());
+        Map<Long, Long> missing = new TreeMap<>();
+        for (int i = 1; i < result.size(); i++) {
+            Long id = ids.get(result.get(i).intValue() - 1);
+            missing.put(id, deltas.get(id));
+        }
+        return missing;
+    }
+
+    private void undoOnRollback(Map<Long, Long> deltas) {
+        if (deltas.isEmpty() || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_ROLLED_BACK) {
+                    return;
+                }
+                try {
+                    // Counter đã bị tắt trong lúc đó: delta đã được ghi vào MySQL nên hoàn lại trực tiếp ở đó
+                    Map<Long, Long> dropped = adjust(deltas);
+                    if (!dropped.isEmpty()) {
+                        applyDeltas(dropped);
+                    }
+                } catch (Exception e) {
+                    logger.error("Could not undo hot stock change {}", deltas, e);
+                }
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> execute(DefaultRedisScript<List> script, List<Long> ids, Collection<Long> values) {
+        List<String> keys = new ArrayList<>(ids.size() * 2 + 1);
+        Object[] args = new Object[ids.size() * 2];
+        for (Long id : ids) {
+            keys.add(COUNTER_PREFIX + id);
+        }
+        for (Long id : ids) {
+            keys.add(DELTA_PREFIX + id);
+        }
+        keys.add(DIRTY_KEY);
+        int i = 0;
+        for (Long id : ids) {
+            args[i++] = id.toString();
+        }
+        for (Long value : values) {
+            args[i++] = value.toString();
+        }
+        return stringRedisTemplate.execute(script, keys, args);
+    }
+
+    private List<StockShortage> shortages(List<Long> ids, Map<Long, Long> lines, List<Long> result) {
+        Map<Long, Long> available = new HashMap<>();
+        for (int i = 1; i + 1 < result.size(); i += 2) {
+            available.put(ids.get(result.get(i).intValue() - 1), result.get(i + 1));
+        }
+        String placeholders = String.join(",", Collections.nCopies(available.size(), "?"));
+        Map<Long, String> names = new HashMap<>();
+        jdbcTemplate.query("SELECT id, product_name FROM product WHERE id IN (" + placeholders + ")",
+                rs -> {
+                    names.put(rs.getLong("id"), rs.getString("product_name"));
+                },
+                available.keySet().toArray());
+        List<StockShortage> shortages = new ArrayList<>(available.size());
+        for (Map.Entry<Long, Long> entry : new TreeMap<>(available).entrySet()) {
+            shortages.add(new StockShortage(entry.getKey(), names.get(entry.getKey()),
+                    lines.get(entry.getKey()), entry.getValue()));
+        }
+        return shortages;
+    }
+}
@@ -0,0 +1,165 @@
+package com.trash.ecommerce.service;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.trash.ecommerce.cache.RecentInteractionsCache;
+import com.trash.ecommerce.cache.RecentInteractionsCache.View;
+import com.trash.ecommerce.config.InteractionBufferConfig;
+import com.trash.ecommerce.dto.InteractionBufferStatsDTO;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Write-behind buffer for product views. {@link #offer} is a CAS on the pending counter plus a
+ * non-blocking enqueue; rows reach user_interactions in JDBC batches once {@code batchSize} events
+ * are waiting or every {@code flushIntervalMs}. A full buffer rejects the event instead of blocking
+ * the request thread, and the rejection is counted.
+ */
+@Component
+public class InteractionBuffer {
+    private static final Logger logger = LoggerFactory.getLogger(InteractionBuffer.class);
+    // IGNORE: sản phẩm đã bị xóa hoặc id không tồn tại chỉ làm mất dòng đó, không làm hỏng cả batch
+    private static final String INSERT_SQL =
+            "INSERT IGNORE INTO user_interactions (user_id, product_id, created_at) VALUES (?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private InteractionBufferConfig config;
+    @Autowired
+    private RecentInteractionsCache recentInteractionsCache;
+    @Autowired
+    private PersonalRecommendationService personalRecommendationService;
+    @Autowired
+    private TrendingService trendingService;
+    @Autowired
+    @Qualifier("interactionExecutor")
+    private TaskExecutor interactionExecutor;
+
+    private record Key(long userId, long productId) {
+    }
+
+    private final ConcurrentLinkedQueue<View> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Map<Key, Long> lastSeen = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushing = new AtomicBoolean();
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder flushed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    /**
+     * Queues a view. Returns false only when the buffer is full; repeat views inside the dedupe
+     * window are absorbed and reported as accepted.
+     */
+    public boolean offer(Long userId, Long productId) {
+        long now = System.currentTimeMillis();
+        Key key = new Key(userId, productId);
+        long window = config.getDedupeWindowMs();
+        Long previous = lastSeen.get(key);
+        if (previous != null && now - previous < window) {
+            deduplicated.increment();
+            return true;
+        }
+        lastSeen.put(key, now);
+
+        if (pending.incrementAndGet() > config.getCapacity()) {
+            pending.decrementAndGet();
+            // Không giữ mốc dedupe cho event chưa được ghi, client thử lại sẽ được nhận
+            lastSeen.remove(key, now);
+            dropped.increment();
+            return false;
+        }
+        queue.offer(new View(userId, productId, now));
+        accepted.increment();
+
+        if (pending.get() >= config.getBatchSize() && !flushing.get()) {
+            try {
+                interactionExecutor.execute(this::flush);
+            } catch (TaskRejectedException e) {
+                // Flush theo thời gian sẽ ghi số event này
+            }
+        }
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${interaction.buffer.flush-interval-ms:1000}")
+    public void flush() {
+        if (!flushing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int batchSize = config.getBatchSize();
+            List<View> batch = new ArrayList<>(batchSize);
+            while (true) {
+                View interaction;
+                while (batch.size() < batchSize && (interaction = queue.poll()) != null) {
+                    batch.add(interaction);
+                }
+                if (batch.isEmpty()) {
+                    break;
+                }
+                pending.addAndGet(-batch.size());
+                write(batch);
+                batch.clear();
+            }
+            long expiredBefore = System.currentTimeMillis() - config.getDedupeWindowMs();
+            lastSeen.values().removeIf(seenAt -> seenAt < expiredBefore);
+        } finally {
+            flushing.set(false);
+        }
+    }
+
+    private void write(List<View> batch) {
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, interaction) -> {
+                ps.setLong(1, interaction.userId());
+                ps.setLong(2, interaction.productId());
+                ps.setTimestamp(3, new Timestamp(interaction.viewedAt()));
+            });
+            flushed.add(batch.size());
+        } catch (Exception e) {
+            failed.add(batch.size());
+            logger.warn("Could not write {} user interactions: {}", batch.size(), e.getMessage());
+        }
+        recentInteractionsCache.recordAll(batch);
+        trendingService.recordAll(batch);
+        Set<Long> userIds = new HashSet<>();
+        for (View view : batch) {
+            userIds.add(view.userId());
+        }
+        personalRecommendationService.markStale(userIds);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    public InteractionBufferStatsDTO stats() {
+        return new InteractionBufferStatsDTO(accepted.sum(), deduplicated.sum(), dropped.sum(), flushed.sum(),
+                failed.sum(), pending.get());
+    }
+}
@@ -0,0 +1,15 @@
+package com.trash.ecommerce.service;
+
+import java.util.Collection;
+import java.util.Map;
+
+import com.trash.ecommerce.entity.OrderItem;
+
+public interface InventoryService {
+    public void decreaseStock(Map<Long, Long> quantitiesByProductId);
+    public void decreaseStockForOrderItems(Collection<OrderItem> orderItems);
+    public void reserveForOrder(Long orderId, Collection<OrderItem> orderItems);
+    public void commitReservation(Long orderId, Collection<OrderItem> orderItems);
+    public int releaseReservation(Long orderId);
+    public int releaseExpiredReservation(Long orderId);
+}
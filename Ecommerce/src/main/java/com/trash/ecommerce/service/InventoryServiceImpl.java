@@ -0,0 +1,251 @@
+package com.trash.ecommerce.service;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.trash.ecommerce.dto.StockShortage;
+import com.trash.ecommerce.entity.OrderItem;
+import com.trash.ecommerce.entity.ReservationStatus;
+import com.trash.ecommerce.entity.StockReservation;
+import com.trash.ecommerce.event.ProductChangedEvent;
+import com.trash.ecommerce.exception.InsufficientStockException;
+import com.trash.ecommerce.repository.OrderRepository;
+import com.trash.ecommerce.repository.StockReservationRepository;
+
+@Service
+public class InventoryServiceImpl implements InventoryService {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private HotStockService hotStockService;
+    // Giữ hàng lâu hơn vnp_ExpireDate của link: IPN của lần thanh toán sát giờ hết hạn vẫn tới kịp
+    @Value("${inventory.payment-url-ttl-minutes:15}")
+    private long paymentUrlTtlMinutes;
+    @Value("${inventory.reservation-grace-minutes:5}")
+    private long reservationGraceMinutes;
+
+    @Override
+    @Transactional
+    public void decreaseStockForOrderItems(Collection<OrderItem> orderItems) {
+        decreaseStock(quantitiesByProduct(orderItems));
+    }
+
+    /**
+     * Takes the stock of a VnPay order out of the sellable quantity right away and records a
+     * HELD reservation that expires a grace period after the payment link.
+     */
+    @Override
+    @Transactional
+    public void reserveForOrder(Long orderId, Collection<OrderItem> orderItems) {
+        Map<Long, Long> quantities = quantitiesByProduct(orderItems);
+        decreaseStock(quantities);
+        Date now = new Date();
+        Date expiresAt = new Date(now.getTime() + (paymentUrlTtlMinutes + reservationGraceMinutes) * 60 * 1000);
+        // IDENTITY tắt batch insert của Hibernate, ghi thẳng một batch JDBC cho mọi dòng
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO stock_reservation (order_id, product_id, quantity, status, expires_at, created_at) " +
+                        "VALUES (?, ?, ?, ?, ?, ?)",
+                new ArrayList<>(quantities.entrySet()), quantities.size(), (ps, line) -> {
+                    ps.setLong(1, orderId);
+                    ps.setLong(2, line.getKey());
+                    ps.setLong(3, line.getValue());
+                    ps.setString(4, ReservationStatus.HELD.name());
+                    ps.setTimestamp(5, new Timestamp(expiresAt.getTime()));
+                    ps.setTimestamp(6, new Timestamp(now.getTime()));
+                });
+    }
+
+    /**
+     * Turns the HELD reservation of a paid order into a sale. When the sweeper already released it
+     * (payment arrived after expiry) the stock is taken again, which may fail if it was resold.
+     */
+    @Override
+    @Transactional
+    public void commitReservation(Long orderId, Collection<OrderItem> orderItems) {
+        if (stockReservationRepository.commitByOrderId(orderId) == 0) {
+            decreaseStock(quantitiesByProduct(orderItems));
+        }
+    }
+
+    @Override
+    @Transactional
+    public int releaseReservation(Long orderId) {
+        List<StockReservation> held = stockReservationRepository.lockByOrderIdAndStatus(orderId, ReservationStatus.HELD);
+        if (held.isEmpty()) {
+            return 0;
+        }
+        Map<Long, Long> quantities = new TreeMap<>();
+        for (StockReservation reservation : held) {
+            reservation.setStatus(ReservationStatus.RELEASED);
+            quantities.merge(reservation.getProductId(), reservation.getQuantity(), Long::sum);
+        }
+        increaseStock(quantities);
+        return held.size();
+    }
+
+    /**
+     * Cancels the order when it is still waiting for payment and only then gives its stock back.
+     * The order row is locked before the reservations, the same order as
+     * {@code PaymentEventProcessor.apply}, so a sweep racing a late IPN cannot deadlock with it.
+     */
+    @Override
+    @Transactional
+    public int releaseExpiredReservation(Long orderId) {
+        // IPN thắng (đơn đã PAID) thì reservation thuộc về giao dịch thanh toán, không trả lại
+        if (orderRepository.cancelIfPendingPayment(orderId) == 0) {
+            return 0;
+        }
+        return releaseReservation(orderId);
+    }
+
+    private static Map<Long, Long> quantitiesByProduct(Collection<OrderItem> orderItems) {
+        Map<Long, Long> quantities = new HashMap<>();
+        for (OrderItem orderItem : orderItems) {
+            if (orderItem == null || orderItem.getProduct() == null) {
+                continue;
+            }
+            Long quantity = orderItem.getQuantity();
+            if (quantity == null || quantity <= 0) {
+                continue;
+            }
+            quantities.merge(orderItem.getProduct().getId(), quantity, Long::sum);
+        }
+        return quantities;
+    }
+
+    private void increaseStock(Map<Long, Long> requested) {
+        Map<Long, Long> quantities = new TreeMap<>();
+        Map<Long, Long> hot = new TreeMap<>();
+        for (Map.Entry<Long, Long> line : requested.entrySet()) {
+            (hotStockService.isHot(line.getKey()) ? hot : quantities).put(line.getKey(), line.getValue());
+        }
+        if (!hot.isEmpty()) {
+            quantities.putAll(hotStockService.increment(hot));
+        }
+        if (quantities.isEmpty()) {
+            return;
+        }
+        String placeholders = String.join(",", Collections.nCopies(quantities.size(), "?"));
+        StringBuilder sql = new StringBuilder("UPDATE product SET quantity = quantity + CASE id");
+        List<Object> args = new ArrayList<>(quantities.size() * 3);
+        for (Map.Entry<Long, Long> line : quantities.entrySet()) {
+            sql.append(" WHEN ? THEN ?");
+            args.add(line.getKey());
+            args.add(line.getValue());
+        }
+        sql.append(" END WHERE id IN (").append(placeholders).append(")");
+        args.addAll(quantities.keySet());
+        jdbcTemplate.update(sql.toString(), args.toArray());
+        for (Long productId : quantities.keySet()) {
+            eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.Type.STOCK_CHANGED));
+        }
+    }
+
+    /**
+     * Decrements stock for every line in two statements: one {@code SELECT ... FOR UPDATE} that
+     * locks the rows in ascending id order, and one multi-row {@code UPDATE}. Concurrent checkouts
+     * therefore always lock in the same order and cannot deadlock on each other. Nothing is
+     * written when any line is short; the exception lists every short line.
+     * Lines of hot products are taken from their Redis counters instead, see {@link HotStockService}.
+     */
+    @Override
+    @Transactional
+    public void decreaseStock(Map<Long, Long> quantitiesByProductId) {
+        TreeMap<Long, Long> requested = new TreeMap<>();
+        for (Map.Entry<Long, Long> line : quantitiesByProductId.entrySet()) {
+            if (line.getKey() == null || line.getValue() == null || line.getValue() <= 0) {
+                throw new IllegalArgumentException("Invalid stock line: " + line);
+            }
+            requested.merge(line.getKey(), line.getValue(), Long::sum);
+        }
+        // Sản phẩm hot được trừ trên Redis trước; nếu phần MySQL thiếu hàng thì rollback sẽ hoàn lại Redis
+        TreeMap<Long, Long> hot = new TreeMap<>();
+        for (Long productId : requested.keySet()) {
+            if (hotStockService.isHot(productId)) {
+                hot.put(productId, requested.get(productId));
+            }
+        }
+        if (!hot.isEmpty()) {
+            requested.keySet().removeAll(hot.keySet());
+            requested.putAll(hotStockService.decrement(hot));
+        }
+        if (requested.isEmpty()) {
+            return;
+        }
+
+        String placeholders = String.join(",", Collections.nCopies(requested.size(), "?"));
+        Map<Long, Long> available = new HashMap<>();
+        Map<Long, String> names = new HashMap<>();
+        Map<Long, Long> becameHot = new TreeMap<>();
+        jdbcTemplate.query(
+                "SELECT id, product_name, quantity, hot_sku FROM product WHERE id IN (" + placeholders + ") ORDER BY id FOR UPDATE",
+                rs -> {
+                    if (rs.getBoolean("hot_sku")) {
+                        becameHot.put(rs.getLong("id"), requested.get(rs.getLong("id")));
+                        return;
+                    }
+                    available.put(rs.getLong("id"), rs.getLong("quantity"));
+                    names.put(rs.getLong("id"), rs.getString("product_name"));
+                },
+                requested.keySet().toArray());
+        // Cờ hot vừa được bật ở instance khác: danh sách local chưa kịp cập nhật
+        if (!becameHot.isEmpty()) {
+            requested.keySet().removeAll(becameHot.keySet());
+            Map<Long, Long> cold = hotStockService.decrement(becameHot);
+            if (!cold.isEmpty()) {
+                throw new IllegalStateException("Hot-SKU flag changed during checkout for products " + cold.keySet());
+            }
+            if (requested.isEmpty()) {
+                return;
+            }
+            placeholders = String.join(",", Collections.nCopies(requested.size(), "?"));
+        }
+
+        List<StockShortage> shortages = new ArrayList<>();
+        for (Map.Entry<Long, Long> line : requested.entrySet()) {
+            long inStock = available.getOrDefault(line.getKey(), 0L);
+            if (inStock < line.getValue()) {
+                shortages.add(new StockShortage(line.getKey(), names.get(line.getKey()), line.getValue(), inStock));
+            }
+        }
+        if (!shortages.isEmpty()) {
+            throw new InsufficientStockException(shortages);
+        }
+
+        StringBuilder sql = new StringBuilder("UPDATE product SET quantity = quantity - CASE id");
+        List<Object> args = new ArrayList<>(requested.size() * 3);
+        for (Map.Entry<Long, Long> line : requested.entrySet()) {
+            sql.append(" WHEN ? THEN ?");
+            args.add(line.getKey());
+            args.add(line.getValue());
+        }
+        sql.append(" END WHERE id IN (").append(placeholders).append(")");
+        args.addAll(requested.keySet());
+        jdbcTemplate.update(sql.toString(), args.toArray());
+
+        for (Long productId : requested.keySet()) {
+            eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.Type.STOCK_CHANGED));
+        }
+    }
+}
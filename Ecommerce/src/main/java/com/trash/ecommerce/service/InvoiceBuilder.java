@@ -0,0 +1,82 @@
+package com.trash.ecommerce.service;
+
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.trash.ecommerce.entity.OrderStatus;
+import com.trash.ecommerce.event.OrderPlacedEvent;
+import com.trash.ecommerce.repository.OrderRepository;
+
+/**
+ * Produces invoices for committed orders off the checkout thread. Orders whose invoice was not
+ * built, because the queue was full, the app restarted or an attempt failed, are found again by
+ * {@link #sweepMissing()}.
+ */
+@Component
+public class InvoiceBuilder {
+    private static final Logger logger = LoggerFactory.getLogger(InvoiceBuilder.class);
+    private static final int BATCH_SIZE = 100;
+    private static final Set<OrderStatus> INVOICED_STATUSES =
+            EnumSet.of(OrderStatus.PLACED, OrderStatus.PAID, OrderStatus.SHIPPED, OrderStatus.FINISHED);
+
+    @Autowired
+    private InvoiceService invoiceService;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    @Qualifier("invoiceExecutor")
+    private TaskExecutor invoiceExecutor;
+    @Value("${invoice.sweep-interval-ms:60000}")
+    private long sweepIntervalMs;
+    @Value("${invoice.sweep-lookback-days:7}")
+    private long sweepLookbackDays;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        submit(event.getOrderId());
+    }
+
+    @Scheduled(initialDelayString = "${invoice.sweep-interval-ms:60000}",
+            fixedDelayString = "${invoice.sweep-interval-ms:60000}")
+    public void sweepMissing() {
+        long now = System.currentTimeMillis();
+        // Bỏ qua đơn vừa tạo, event của chúng có thể vẫn đang nằm trong hàng đợi
+        Date before = new Date(now - sweepIntervalMs);
+        Date from = new Date(now - sweepLookbackDays * 24 * 60 * 60 * 1000);
+        List<Long> orderIds = orderRepository.findIdsWithoutInvoice(INVOICED_STATUSES, from, before,
+                PageRequest.of(0, BATCH_SIZE));
+        for (Long orderId : orderIds) {
+            submit(orderId);
+        }
+    }
+
+    private void submit(Long orderId) {
+        try {
+            invoiceExecutor.execute(() -> build(orderId));
+        } catch (TaskRejectedException e) {
+            logger.warn("Invoice queue is full, order {} will be picked up by the sweeper", orderId);
+        }
+    }
+
+    private void build(Long orderId) {
+        try {
+            invoiceService.createInvoiceForOrder(orderId);
+        } catch (Exception e) {
+            logger.warn("Could not build invoice of order {}: {}", orderId, e.getMessage());
+        }
+    }
+}
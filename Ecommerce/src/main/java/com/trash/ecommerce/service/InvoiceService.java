@@ -4,5 +4,6 @@ import com.trash.ecommerce.dto.InvoiceResponse;
 
 public interface InvoiceService {
     public InvoiceResponse createInvoice(Long userId, Long orderId, Long paymentMethodId);
+    public void createInvoiceForOrder(Long orderId);
     public void deleteInvoice(Long userId, Long invoiceId);
 }
@@ -12,6 +12,7 @@ import com.trash.ecommerce.repository.OrderRepository;
 import com.trash.ecommerce.repository.PaymentMethodRepository;
 import com.trash.ecommerce.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -34,6 +35,8 @@ public class InvoiceServiceImpl implements InvoiceService {
     private PaymentMethodRepository paymentMethodRepository;
     @Autowired
     private InvoiceMapper invoiceMapper;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
 
     @Override
     @Transactional
@@ -77,6 +80,37 @@ public class InvoiceServiceImpl implements InvoiceService {
         return invoiceMapper.MapToDTO(invoice);
     }
 
+    /**
+     * Builds the invoice of a placed or paid order unless it already has one. The order row lock
+     * serialises the async builder, its sweeper and payment processing, and the items are copied
+     * from order_items by a single INSERT ... SELECT instead of one insert per line.
+     */
+    @Override
+    @Transactional
+    public void createInvoiceForOrder(Long orderId) {
+        Order order = orderRepository.lockById(orderId)
+                .orElseThrow(() -> new OrderExistsException("Order not found"));
+        if (invoiceRepository.existsByOrderId(orderId)) {
+            return;
+        }
+
+        Invoice invoice = new Invoice();
+        invoice.setOrder(order);
+        invoice.setUser(order.getUser());
+        invoice.setPaymentMethod(order.getPaymentMethod());
+        invoice.setPrice(order.getTotalPrice());
+        invoice.setCreatedAt(new Date());
+        invoiceRepository.save(invoice);
+
+        int items = jdbcTemplate.update(
+                "INSERT INTO invoice_items (invoice_id, product_id, quantity, price, total) " +
+                        "SELECT ?, product_id, quantity, price, price * quantity FROM order_items WHERE order_id = ?",
+                invoice.getId(), orderId);
+        if (items == 0) {
+            throw new OrderExistsException("Order has no items");
+        }
+    }
+
     @Override
     @Transactional
     public void deleteInvoice(Long userId, Long invoiceId) {
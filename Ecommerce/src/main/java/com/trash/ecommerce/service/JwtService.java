@@ -1,11 +1,16 @@
 package com.trash.ecommerce.service;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -13,21 +18,66 @@ import java.util.stream.Collectors;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
 
+import com.trash.ecommerce.dto.JwtPrincipal;
 import com.trash.ecommerce.dto.Token;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService; // Thêm import này
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 
 @Service
 public class JwtService {
+    private static final Logger logger = LoggerFactory.getLogger(JwtService.class);
+    private static final long ACCESS_TOKEN_TTL_MS = 3 * 60 * 60 * 1000L;
+    private static final int VERIFIED_CACHE_MAX_SIZE = 50000;
+    private static final String DENY_KEY_PREFIX = "jwt:deny:";
+    private static final String REVOKED_BEFORE_KEY_PREFIX = "jwt:revoked-before:";
+    private static final String REFRESH_KEY_PREFIX = "refresh:";
+    private static final String ADMIN_AUTHORITY = "ADMIN";
+    public static final String PRINCIPAL_ATTRIBUTE = JwtService.class.getName() + ".principal";
+    public static final String TOKEN_ATTRIBUTE = JwtService.class.getName() + ".token";
+
     private String secretKey = "Banana";
+    private final SecretKey signingKey;
+    private final JwtParser jwtParser;
+
+    // Token đã verify chữ ký, key là SHA-256 của token; entry hết hạn cùng token.
+    // Caffeine đọc không khóa, nên cache trên đường nóng không thành điểm tranh chấp giữa các request
+    private final Cache<String, JwtPrincipal> verifiedTokens = Caffeine.newBuilder()
+            .maximumSize(VERIFIED_CACHE_MAX_SIZE)
+            .expireAfter(new Expiry<String, JwtPrincipal>() {
+                @Override
+                public long expireAfterCreate(String key, JwtPrincipal principal, long currentTime) {
+                    return TimeUnit.MILLISECONDS.toNanos(Math.max(0, principal.getExpiresAt() - System.currentTimeMillis()));
+                }
+
+                @Override
+                public long expireAfterUpdate(String key, JwtPrincipal principal, long currentTime, long currentDuration) {
+                    return expireAfterCreate(key, principal, currentTime);
+                }
+
+                @Override
+                public long expireAfterRead(String key, JwtPrincipal principal, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .build();
 
     // 1. XÓA dòng private UserDetails userDetails; (Nguy hiểm, gây lỗi Null và lỗi luồng)
 
@@ -46,6 +96,9 @@ public class JwtService {
         } catch (NoSuchAlgorithmException e) {
             throw new RuntimeException(e);
         }
+        // Key và parser đều immutable, dựng một lần thay vì decode lại secret ở mỗi lần parse
+        signingKey = Keys.hmacShaKeyFor(Base64.getDecoder().decode(secretKey));
+        jwtParser = Jwts.parser().verifyWith(signingKey).build();
     }
 
     public Token generateToken(UserDetails userDetails, Long id) {
@@ -83,14 +136,13 @@ public class JwtService {
         );
         String refreshTokenValue = token.getRefresh();
         if (refreshTokenValue != null) {
-            redisTemplate.opsForValue().set("refresh:" + String.valueOf(id), refreshTokenValue, 3 * 60 * 60, TimeUnit.SECONDS);
+            redisTemplate.opsForValue().set(REFRESH_KEY_PREFIX + id, refreshTokenValue, 3 * 60 * 60, TimeUnit.SECONDS);
         }
         return token;
     }
 
     private SecretKey getKey() {
-        byte[] keyBytes = Base64.getDecoder().decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+        return signingKey;
     }
 
     private String removeBearerPrefix(String token) {
@@ -108,12 +160,15 @@ public class JwtService {
         if (token == null || token.trim().isEmpty()) {
             throw new IllegalArgumentException("Invalid token format");
         }
-        Claims claims = extractAllClaims(token);
-        Long id = claims.get("id", Long.class);
-        if (id == null) {
-            throw new IllegalArgumentException("Token does not contain user ID");
+        JwtPrincipal principal = requestPrincipal(token);
+        if (principal == null) {
+            // Ngoài JwtFilter (route permitAll, instance khác với nơi logout): vẫn phải qua deny list
+            principal = authenticate(token);
         }
-        return id;
+        if (principal == null) {
+            throw new IllegalArgumentException("Invalid, expired or revoked token");
+        }
+        return principal.getId();
     }
     
     public String extractUsername(String token) {
@@ -138,11 +193,7 @@ public class JwtService {
             throw new IllegalArgumentException("Token cannot be null or empty");
         }
         try {
-            return Jwts.parser()
-                        .verifyWith(getKey())
-                        .build()
-                        .parseSignedClaims(token)
-                        .getPayload();
+            return jwtParser.parseSignedClaims(token).getPayload();
         } catch (Exception e) {
             throw new IllegalArgumentException("Invalid token: " + e.getMessage(), e);
         }
@@ -177,6 +228,138 @@ public class JwtService {
         return extractClaim(token, Claims::getExpiration);
     }
 
+    /**
+     * Verifies an access token and returns its identity, or {@code null} when the token is
+     * malformed, expired or revoked. The signature is checked once per token; later requests
+     * only pay for the cache lookup and the Redis deny-list check.
+     */
+    public JwtPrincipal authenticate(String token) {
+        String cleanToken = removeBearerPrefix(token);
+        if (cleanToken == null || cleanToken.trim().isEmpty()) {
+            return null;
+        }
+        String hash = tokenHash(cleanToken);
+        JwtPrincipal principal = verifiedTokens.getIfPresent(hash);
+        if (principal == null) {
+            try {
+                principal = toPrincipal(extractAllClaims(cleanToken));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+            if (principal == null) {
+                return null;
+            }
+            verifiedTokens.put(hash, principal);
+        }
+        if (principal.getExpiresAt() <= System.currentTimeMillis()) {
+            verifiedTokens.invalidate(hash);
+            return null;
+        }
+        return isRevoked(hash, principal) ? null : principal;
+    }
+
+    /**
+     * Returns the identity {@code JwtFilter} authenticated for this token in the current request,
+     * or {@code null}. Anything else must go through {@link #authenticate(String)}.
+     */
+    private JwtPrincipal requestPrincipal(String cleanToken) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null
+                && cleanToken.equals(attributes.getAttribute(TOKEN_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST))) {
+            Object principal = attributes.getAttribute(PRINCIPAL_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+            if (principal instanceof JwtPrincipal p) {
+                return p;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Puts a single token on the deny list until it would have expired anyway (logout).
+     */
+    public void revokeToken(String token) {
+        String cleanToken = removeBearerPrefix(token);
+        if (cleanToken == null || cleanToken.trim().isEmpty()) {
+            return;
+        }
+        String hash = tokenHash(cleanToken);
+        JwtPrincipal principal = authenticate(cleanToken);
+        verifiedTokens.invalidate(hash);
+        if (principal == null) {
+            return;
+        }
+        long ttl = principal.getExpiresAt() - System.currentTimeMillis();
+        if (ttl > 0) {
+            redisTemplate.opsForValue().set(DENY_KEY_PREFIX + hash, 1, ttl, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Rejects every token of the user issued before now (password change, email change, role
+     * change, deletion).
+     */
+    public void revokeAllTokens(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        // iat của JWT chỉ chính xác tới giây
+        long revokedBefore = System.currentTimeMillis() / 1000 * 1000;
+        redisTemplate.opsForValue().set(REVOKED_BEFORE_KEY_PREFIX + userId, revokedBefore,
+                ACCESS_TOKEN_TTL_MS, TimeUnit.MILLISECONDS);
+        // Refresh token cũng bị thu hồi, nếu không nó vẫn đổi được access token mới
+        redisTemplate.delete(REFRESH_KEY_PREFIX + userId);
+        verifiedTokens.asMap().values().removeIf(p -> Objects.equals(p.getId(), userId));
+    }
+
+    private boolean isRevoked(String hash, JwtPrincipal principal) {
+        try {
+            List<Object> values = redisTemplate.opsForValue().multiGet(
+                    Arrays.asList(DENY_KEY_PREFIX + hash, REVOKED_BEFORE_KEY_PREFIX + principal.getId()));
+            if (values == null) {
+                return false;
+            }
+            if (values.get(0) != null) {
+                return true;
+            }
+            Object revokedBefore = values.get(1);
+            return revokedBefore instanceof Number n && principal.getIssuedAt() < n.longValue();
+        } catch (Exception e) {
+            // Redis lỗi thì không chặn toàn bộ request, chữ ký và hạn token vẫn được kiểm tra.
+            // Riêng token ADMIN bị từ chối: quyền có thể vừa bị thu hồi mà không kiểm tra được
+            boolean admin = principal.getAuthorities().stream()
+                    .anyMatch(authority -> ADMIN_AUTHORITY.equals(authority.getAuthority()));
+            logger.warn("Could not check token deny list{}: {}", admin ? ", rejecting ADMIN token" : "", e.getMessage());
+            return admin;
+        }
+    }
+
+    private JwtPrincipal toPrincipal(Claims claims) {
+        Long id = claims.get("id", Long.class);
+        Date issuedAt = claims.getIssuedAt();
+        Date expiration = claims.getExpiration();
+        if (id == null || issuedAt == null || expiration == null) {
+            return null;
+        }
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        Object roles = claims.get("roles");
+        if (roles instanceof List<?> list) {
+            for (Object role : list) {
+                authorities.add(new SimpleGrantedAuthority(String.valueOf(role)));
+            }
+        }
+        return new JwtPrincipal(id, claims.getSubject(), List.copyOf(authorities),
+                issuedAt.getTime(), expiration.getTime());
+    }
+
+    private static String tokenHash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     public Token refreshToken(String oldRefreshToken) {
         if (oldRefreshToken == null || oldRefreshToken.trim().isEmpty()) {
             return null;
@@ -189,7 +372,7 @@ public class JwtService {
         
         try {
             Long userId = extractId(oldRefreshToken); 
-            String storedToken = (String) redisTemplate.opsForValue().get("refresh:" + userId);
+            String storedToken = (String) redisTemplate.opsForValue().get(REFRESH_KEY_PREFIX + userId);
             
             if (storedToken == null || !storedToken.equals(cleanToken)) {
                 return null;
@@ -198,8 +381,15 @@ public class JwtService {
             if (isExpiration(storedToken)) {
                 return null;
             }
+            // Key refresh có thể được ghi lại bởi lần login cấp token trước thời điểm thu hồi
+            Object revokedBefore = redisTemplate.opsForValue().get(REVOKED_BEFORE_KEY_PREFIX + userId);
+            Date issuedAt = extractClaim(storedToken, Claims::getIssuedAt);
+            if (revokedBefore instanceof Number n && (issuedAt == null || issuedAt.getTime() < n.longValue())) {
+                redisTemplate.delete(REFRESH_KEY_PREFIX + userId);
+                return null;
+            }
             
-            redisTemplate.delete("refresh:" + userId);
+            redisTemplate.delete(REFRESH_KEY_PREFIX + userId);
             String username = extractUsername(storedToken);
 
             // 5. Load UserDetails từ DB để lấy quyền mới nhất
@@ -211,7 +401,7 @@ public class JwtService {
             String newRefreshToken = token.getRefresh();
             if (newRefreshToken != null) {
                 redisTemplate.opsForValue().set(
-                        "refresh:" + userId,
+                        REFRESH_KEY_PREFIX + userId,
                         newRefreshToken,
                         3, TimeUnit.HOURS
                 );
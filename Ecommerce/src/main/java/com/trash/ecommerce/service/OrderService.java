@@ -1,5 +1,6 @@
 package com.trash.ecommerce.service;
 
+import com.trash.ecommerce.dto.CursorPageDTO;
 import com.trash.ecommerce.dto.OrderMessageResponseDTO;
 import com.trash.ecommerce.dto.OrderResponseDTO;
 import com.trash.ecommerce.dto.OrderSummaryDTO;
@@ -7,8 +8,10 @@ import com.trash.ecommerce.dto.OrderSummaryDTO;
 import java.util.List;
 
 public interface OrderService {
-    public List<OrderSummaryDTO> getAllMyOrders(Long userId, String IpAddress);
-    public OrderResponseDTO getOrderById(Long userId, Long orderId, String IpAddress);
+    public List<OrderSummaryDTO> getAllMyOrders(Long userId);
+    public List<OrderSummaryDTO> getMyOrdersPage(Long userId, int noPage, int sizePage);
+    public CursorPageDTO<OrderSummaryDTO> scrollMyOrders(Long userId, String cursor, int size);
+    public OrderResponseDTO getOrderById(Long userId, Long orderId);
     public OrderResponseDTO createMyOrder(Long userId, Long paymentMethodId, String IpAddress);
     public OrderMessageResponseDTO deleteOrder(Long userId, Long orderId);
 
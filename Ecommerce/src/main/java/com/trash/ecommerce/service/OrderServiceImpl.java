@@ -1,18 +1,26 @@
 package com.trash.ecommerce.service;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
+import com.trash.ecommerce.dto.CheckoutLineDTO;
+import com.trash.ecommerce.dto.CursorPageDTO;
 import com.trash.ecommerce.dto.OrderSummaryDTO;
+import com.trash.ecommerce.dto.PageCursor;
 import com.trash.ecommerce.entity.*;
+import com.trash.ecommerce.event.OrderPlacedEvent;
 import com.trash.ecommerce.exception.*;
 import com.trash.ecommerce.mapper.OrderMapper;
 import com.trash.ecommerce.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -22,6 +30,7 @@ import com.trash.ecommerce.dto.OrderResponseDTO;
 
 @Service
 public class OrderServiceImpl implements OrderService {
+    private static final int MAX_PAGE_SIZE = 100;
 
     @Autowired
     private UserRepository userRepository;
@@ -39,6 +48,12 @@ public class OrderServiceImpl implements OrderService {
     private ProductRepository productRepository;
     @Autowired
     private InvoiceService invoiceService;
+    @Autowired
+    private InventoryService inventoryService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
     
     public OrderServiceImpl(UserRepository userRepository, OrderRepository orderRepository, PaymentService paymentService, InvoiceService invoiceService, PaymentMethodRepository paymentMethodRepository, CartRepository cartRepository, OrderMapper orderMapper, ProductRepository productRepository) {
         this.userRepository = userRepository;
@@ -51,41 +66,63 @@ public class OrderServiceImpl implements OrderService {
         this.productRepository = productRepository;
     }
 
+    // Contract cũ của /my-orders: toàn bộ lịch sử, vẫn chỉ một query summary
     @Override
-    public List<OrderSummaryDTO> getAllMyOrders(Long userId, String ipAddress) {
+    public List<OrderSummaryDTO> getAllMyOrders(Long userId) {
         if (userId == null) {
             throw new IllegalArgumentException("User ID cannot be null");
         }
-        
-        List<Order> orders = orderRepository.findByUserIdOrderByCreateAtDesc(userId);
-        
-        if (orders == null || orders.isEmpty()) {
-            return List.of(); 
-        }
-
-        return orders.stream()
-                .filter(order -> order != null) 
-                .map(order -> {
-                    try {
-                        String url = null;
-                        if (order.getStatus() != null && 
-                            order.getStatus() == OrderStatus.PENDING_PAYMENT && 
-                            order.getPaymentMethod() != null && 
-                            order.getPaymentMethod().getId() != null &&
-                            order.getPaymentMethod().getId() == 2L) {
-                            url = paymentService.createPaymentUrl(order.getTotalPrice(), ".", order.getId(), ipAddress);
-                        }
-                        return orderMapper.toOrderSummaryDTO(order, url);
-                    } catch (Exception e) {
-                        return orderMapper.toOrderSummaryDTO(order, null);
-                    }
-                })
-                .filter(dto -> dto != null) 
-                .collect(Collectors.toList());
+        return orderRepository.findSummariesByUserId(userId, Pageable.unpaged());
+    }
+
+    @Override
+    public List<OrderSummaryDTO> getMyOrdersPage(Long userId, int noPage, int sizePage) {
+        if (userId == null) {
+            throw new IllegalArgumentException("User ID cannot be null");
+        }
+        if (noPage < 0) {
+            throw new IllegalArgumentException("Page number must not be negative");
+        }
+        if (sizePage <= 0 || sizePage > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return orderRepository.findSummariesByUserId(userId, PageRequest.of(noPage, sizePage));
+    }
+
+    @Override
+    public CursorPageDTO<OrderSummaryDTO> scrollMyOrders(Long userId, String cursor, int size) {
+        if (userId == null) {
+            throw new IllegalArgumentException("User ID cannot be null");
+        }
+        if (size <= 0 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        PageCursor after = PageCursor.decode(cursor);
+        // Lấy dư 1 dòng để biết còn trang sau hay không, không cần COUNT(*)
+        PageRequest limit = PageRequest.of(0, size + 1);
+        List<OrderSummaryDTO> rows = after == null
+                ? orderRepository.findSummariesByUserId(userId, limit)
+                : orderRepository.findSummariesByUserIdBefore(userId, parseCreateAt(after.getSortKey()), after.getId(), limit);
+        boolean hasNext = rows.size() > size;
+        List<OrderSummaryDTO> page = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = null;
+        if (hasNext) {
+            OrderSummaryDTO last = page.get(size - 1);
+            nextCursor = new PageCursor(Long.toString(last.getCreateAt().getTime()), last.getId()).encode();
+        }
+        return new CursorPageDTO<>(page, nextCursor);
+    }
+
+    private static Date parseCreateAt(String sortKey) {
+        try {
+            return new Date(Long.parseLong(sortKey));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
     }
 
     @Override
-    public OrderResponseDTO getOrderById(Long userId, Long orderId, String IpAddress) {
+    public OrderResponseDTO getOrderById(Long userId, Long orderId) {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
 
@@ -93,41 +130,45 @@ public class OrderServiceImpl implements OrderService {
             throw new AccessDeniedException("You do not have permission to view this order");
         }
 
+        // Dùng lại link đã ký lúc tạo đơn; link hết hạn thì đơn cũng sắp bị sweeper hủy
         String paymentUrl = null;
-        if (order.getPaymentMethod() != null && 
-            order.getPaymentMethod().getId() != null &&
-            order.getPaymentMethod().getId() == 2L && 
-            order.getStatus() == OrderStatus.PENDING_PAYMENT) {
-            paymentUrl = paymentService.createPaymentUrl(order.getTotalPrice(), ".", order.getId(), IpAddress);
+        if (order.getStatus() == OrderStatus.PENDING_PAYMENT &&
+            order.getPaymentUrlExpiresAt() != null &&
+            order.getPaymentUrlExpiresAt().after(new Date())) {
+            paymentUrl = order.getPaymentUrl();
         }
 
         return orderMapper.toOrderResponseDTO(order, paymentUrl);
     }
 
+    /**
+     * Places an order from the caller's cart. The cart is read as one projection query and the
+     * order lines go out as a single JDBC batch, so the number of round trips does not grow with
+     * the number of cart lines (order_items uses IDENTITY keys, which turns off Hibernate batching).
+     */
     @Override
     @Transactional
     public OrderResponseDTO createMyOrder(Long userId, Long paymentMethodId, String IpAddress) {
+        String address = userRepository.findAddressById(userId).orElse(null);
+        if (address == null && !userRepository.existsById(userId)) {
+            throw new FindingUserError("User not found");
+        }
 
-
-        Users user = userRepository.findById(userId)
-                .orElseThrow(() -> new FindingUserError("User not found"));
-
-        Cart cart = user.getCart();
-        if (cart == null || cart.getItems() == null || cart.getItems().isEmpty()) {
+        List<CheckoutLineDTO> lines = cartRepository.findCheckoutLines(userId);
+        if (lines.isEmpty()) {
             throw new OrderValidException("Cart is empty");
         }
 
         PaymentMethod paymentMethod = paymentMethodRepository.findById(paymentMethodId)
                 .orElseThrow(() -> new PaymentException("Payment method not found"));
 
-        String address = user.getAddress();
         if (address == null || address.trim().isEmpty()) {
             throw new OrderValidException("User address is required to create an order");
         }
         
         Order order = new Order();
         order.setCreateAt(new Date());
-        order.setUser(user);
+        order.setUser(userRepository.getReferenceById(userId));
         order.setPaymentMethod(paymentMethod);
         order.setAddress(address);
         if (paymentMethod.getId() == 2L) {
@@ -137,88 +178,73 @@ public class OrderServiceImpl implements OrderService {
         }
 
         BigDecimal totalPrice = BigDecimal.ZERO;
-        Set<OrderItem> orderItems = new HashSet<>();
+        List<OrderItem> orderItems = new ArrayList<>(lines.size());
         Set<CartItemDetailsResponseDTO> responseItems = new HashSet<>();
 
-        for (CartItem cartItem : cart.getItems()) {
-            if (cartItem == null) continue;
-            
-            Product product = cartItem.getProduct();
-            if (product == null) {
-                throw new ProductQuantityValidation("Product not found in cart item");
-            }
-            
-            Long quantityBuy = cartItem.getQuantity();
+        for (CheckoutLineDTO line : lines) {
+            Long quantityBuy = line.getQuantity();
             if (quantityBuy == null || quantityBuy <= 0) {
                 throw new ProductQuantityValidation("Invalid quantity in cart item");
             }
 
-            if (product.getQuantity() == null || product.getQuantity() < quantityBuy) {
-                throw new ProductQuantityValidation("Product " + product.getProductName() + " is out of stock!");
+            // product.quantity của sản phẩm hot chỉ được ghi bù định kỳ: để decreaseStock kiểm tra trên Redis
+            if (!Boolean.TRUE.equals(line.getHotSku()) && (line.getStock() == null || line.getStock() < quantityBuy)) {
+                throw new ProductQuantityValidation("Product " + line.getProductName() + " is out of stock!");
             }
             
-            BigDecimal currentPrice = product.getPrice();
+            BigDecimal currentPrice = line.getPrice();
             BigDecimal lineAmount = currentPrice.multiply(BigDecimal.valueOf(quantityBuy));
             totalPrice = totalPrice.add(lineAmount);
 
+            // Proxy theo id, không query Product
             OrderItem orderItem = new OrderItem();
             orderItem.setOrder(order);
-            orderItem.setProduct(product);
+            orderItem.setProduct(productRepository.getReferenceById(line.getProductId()));
             orderItem.setQuantity(quantityBuy);
             orderItem.setPrice(currentPrice);
             orderItems.add(orderItem);
 
-
-            CartItemDetailsResponseDTO dto = new CartItemDetailsResponseDTO();
-            dto.setProductId(product.getId());
-            dto.setProductName(product.getProductName());
-            dto.setPrice(currentPrice);
-            dto.setQuantity(quantityBuy);
-            responseItems.add(dto);
+            responseItems.add(new CartItemDetailsResponseDTO(line.getProductId(), line.getProductName(),
+                    currentPrice, quantityBuy));
         }
 
         order.setTotalPrice(totalPrice);
-        order.setOrderItems(orderItems);
-
         orderRepository.save(order);
+        insertOrderItems(order.getId(), orderItems);
 
+        String paymentUrl = null;
+        if (paymentMethod.getId() == 2L) {
+            // Giữ hàng cho tới khi link VnPay hết hạn, IPN sẽ chốt hoặc sweeper trả lại
+            inventoryService.reserveForOrder(order.getId(), orderItems);
+            paymentUrl = paymentService.createPaymentUrl(order, IpAddress);
+        }
         if (paymentMethod.getId() == 1L) {
-            for (OrderItem orderItem : orderItems) {
-                if (orderItem == null || orderItem.getProduct() == null) {
-                    continue;
-                }
-                Product product = orderItem.getProduct();
-                Long quantity = orderItem.getQuantity();
-                if (quantity == null || quantity <= 0) {
-                    continue;
-                }
-                int updatedRows = productRepository.decreaseStock(product.getId(), quantity);
-                if (updatedRows == 0) {
-                    throw new ProductQuantityValidation("Hết hàng hoặc số lượng không đủ cho sản phẩm: " + product.getProductName());
-                }
-            }
-           
-            try {
-                invoiceService.createInvoice(userId, order.getId(), paymentMethodId);
-            } catch (Exception e) {
-                System.out.println(e.getMessage());
-                throw new RuntimeException("Hóa đơn bị lỗi");
-            }
+            inventoryService.decreaseStockForOrderItems(orderItems);
+            // Hóa đơn được lập sau khi commit bởi InvoiceBuilder, không nằm trên đường checkout
+            eventPublisher.publishEvent(new OrderPlacedEvent(order.getId()));
         }
 
-        cartRepository.deleteCartItems(cart.getId());
-        if (cart.getItems() != null) {
-            cart.getItems().clear();
-        }
+        cartRepository.deleteCartItems(lines.get(0).getCartId());
         return new OrderResponseDTO(
                 responseItems,
                 totalPrice,
                 order.getStatus(),
                 address,
-                (paymentMethodId == 1) ? null : paymentService.createPaymentUrl(totalPrice, ".", order.getId(), IpAddress)
+                paymentUrl
         );
     }
 
+    private void insertOrderItems(Long orderId, List<OrderItem> orderItems) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO order_items (order_id, product_id, quantity, price) VALUES (?, ?, ?, ?)",
+                orderItems, orderItems.size(), (ps, item) -> {
+                    ps.setLong(1, orderId);
+                    ps.setLong(2, item.getProduct().getId());
+                    ps.setLong(3, item.getQuantity());
+                    ps.setBigDecimal(4, item.getPrice());
+                });
+    }
+
     @Override
     @Transactional
     public OrderMessageResponseDTO deleteOrder(Long userId, Long orderId) {
@@ -232,6 +258,7 @@ public class OrderServiceImpl implements OrderService {
         if (order.getStatus() != OrderStatus.PENDING && order.getStatus() != OrderStatus.PENDING_PAYMENT) {
             throw new OrderValidException("You can't delete this order ;-;");
         }
+        inventoryService.releaseReservation(orderId);
         orderRepository.delete(order);
         return new OrderMessageResponseDTO("Delete order successful");
     }
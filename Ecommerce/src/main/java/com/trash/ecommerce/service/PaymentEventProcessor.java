@@ -0,0 +1,98 @@
+package com.trash.ecommerce.service;
+
+import java.util.Date;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.trash.ecommerce.entity.Order;
+import com.trash.ecommerce.entity.PaymentEvent;
+import com.trash.ecommerce.entity.PaymentEventStatus;
+import com.trash.ecommerce.exception.OrderExistsException;
+import com.trash.ecommerce.exception.PaymentException;
+import com.trash.ecommerce.repository.OrderRepository;
+import com.trash.ecommerce.repository.PaymentEventRepository;
+
+/**
+ * Applies a recorded VnPay payment in one transaction: the order moves PENDING_PAYMENT -> PAID
+ * with a conditional update, the stock reservation is committed, the invoice created and the
+ * confirmation mail queued in the outbox.
+ * The event row is locked and marked PROCESSED in the same transaction, so a retried or
+ * concurrently picked-up event never applies twice. A payment for an order that is no longer
+ * pending is marked ORPHANED instead, so it can be found and refunded.
+ */
+@Component
+public class PaymentEventProcessor {
+    private static final Logger logger = LoggerFactory.getLogger(PaymentEventProcessor.class);
+    static final int MAX_ATTEMPTS = 5;
+
+    @Autowired
+    private PaymentEventRepository paymentEventRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private InventoryService inventoryService;
+    @Autowired
+    private InvoiceService invoiceService;
+    @Autowired
+    private EmailService emailService;
+
+    @Transactional
+    public void apply(Long eventId) {
+        PaymentEvent event = paymentEventRepository.lockById(eventId).orElse(null);
+        if (event == null || event.getStatus() != PaymentEventStatus.RECEIVED) {
+            return;
+        }
+        event.setProcessedAt(new Date());
+
+        if (orderRepository.markPaidIfPendingPayment(event.getOrderId()) == 0) {
+            // Đơn đã được xử lý hoặc đã bị hủy do hết hạn giữ hàng: khách đã trả tiền nhưng không có hàng
+            event.setStatus(PaymentEventStatus.ORPHANED);
+            logger.error("Payment {} ({} VND, VnPay transaction {}) of order {} is orphaned: "
+                            + "order is no longer pending payment, refund required",
+                    event.getTxnRef(), event.getAmount(), event.getTransactionNo(), event.getOrderId());
+            return;
+        }
+        event.setStatus(PaymentEventStatus.PROCESSED);
+        Order order = orderRepository.findById(event.getOrderId())
+                .orElseThrow(() -> new OrderExistsException("Order not found"));
+        if (order.getOrderItems() == null || order.getOrderItems().isEmpty()) {
+            throw new PaymentException("Order has no items");
+        }
+        if (order.getPaymentMethod() == null) {
+            throw new PaymentException("Payment method not found for order");
+        }
+        inventoryService.commitReservation(order.getId(), order.getOrderItems());
+        invoiceService.createInvoiceForOrder(order.getId());
+        String email = order.getUser().getEmail();
+        String body = String.format(
+                "Hi %s!\n\n" +
+                        "We’ve successfully received your order #%s, and it’s now on its way to your doorstep " +
+                        "(unless the universe decides to play tricks, but let’s hope not 😅).\n\n" +
+                        "Get ready to enjoy your purchase soon! If anything goes wrong, don’t worry — our team is armed " +
+                        "with coffee and a few clicks of magic 💻☕.\n\n" +
+                        "Thanks for choosing us and placing your order — you just helped us secure our morning caffeine fix!\n\n" +
+                        "Cheers,\n" +
+                        "The Shop Team",
+                email, order.getId()
+        );
+        // Vào outbox cùng transaction: mail chỉ được gửi nếu đơn thật sự chuyển sang PAID
+        emailService.sendEmail(email, "Confirm the order transaction", body);
+    }
+
+    @Transactional
+    public void recordFailure(Long eventId, String error) {
+        paymentEventRepository.findById(eventId).ifPresent(event -> {
+            event.setAttempts(event.getAttempts() + 1);
+            event.setLastError(error == null ? null : error.substring(0, Math.min(error.length(), 500)));
+            if (event.getAttempts() >= MAX_ATTEMPTS) {
+                event.setStatus(PaymentEventStatus.FAILED);
+                logger.error("Payment {} of order {} failed {} times, giving up", event.getTxnRef(),
+                        event.getOrderId(), event.getAttempts());
+            }
+        });
+    }
+}
@@ -0,0 +1,65 @@
+package com.trash.ecommerce.service;
+
+import java.util.Date;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.trash.ecommerce.repository.PaymentEventRepository;
+
+/**
+ * Runs recorded VnPay payments off the IPN request thread. Events that were not processed yet,
+ * because the pool was full, the app restarted or an attempt failed, are picked up again by
+ * {@link #retryPending()}.
+ */
+@Component
+public class PaymentEventWorker {
+    private static final Logger logger = LoggerFactory.getLogger(PaymentEventWorker.class);
+    private static final int BATCH_SIZE = 100;
+
+    @Autowired
+    private PaymentEventProcessor paymentEventProcessor;
+    @Autowired
+    private PaymentEventRepository paymentEventRepository;
+    @Autowired
+    @Qualifier("paymentExecutor")
+    private TaskExecutor paymentExecutor;
+    @Value("${payment.event-retry-interval-ms:30000}")
+    private long retryIntervalMs;
+
+    public void submit(Long eventId) {
+        try {
+            paymentExecutor.execute(() -> process(eventId));
+        } catch (TaskRejectedException e) {
+            logger.warn("Payment worker queue is full, event {} will be retried later", eventId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${payment.event-retry-interval-ms:30000}")
+    public void retryPending() {
+        // Chỉ lấy event đủ cũ để không tranh với lần submit ngay sau IPN
+        Date before = new Date(System.currentTimeMillis() - retryIntervalMs);
+        List<Long> eventIds = paymentEventRepository.findReceivedIdsBefore(before, PageRequest.of(0, BATCH_SIZE));
+        for (Long eventId : eventIds) {
+            submit(eventId);
+        }
+    }
+
+    private void process(Long eventId) {
+        try {
+            paymentEventProcessor.apply(eventId);
+        } catch (Exception e) {
+            logger.warn("Could not apply payment event {}: {}", eventId, e.getMessage());
+            paymentEventProcessor.recordFailure(eventId, e.getMessage());
+        }
+    }
+}
@@ -4,11 +4,13 @@ import java.math.BigDecimal;
 import java.util.Map;
 
 import com.trash.ecommerce.dto.PaymentMethodMessageResponse;
+import com.trash.ecommerce.entity.Order;
 import jakarta.servlet.http.HttpServletRequest;
 
 public interface PaymentService {
     public PaymentMethodMessageResponse addPaymentMethod(Long userId, String name);
     public String createPaymentUrl(BigDecimal total_price, String orderInfo, Long orderId, String ipAddress);
+    public String createPaymentUrl(Order order, String ipAddress);
     public Map<String, String> handleProcedurePayment(HttpServletRequest request);
     public Map<String, String> hashFields(HttpServletRequest request);
     public PaymentMethodMessageResponse handleProcedureUserInterface(HttpServletRequest request);
@@ -3,7 +3,8 @@ package com.trash.ecommerce.service;
 import java.math.BigDecimal;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.text.SimpleDateFormat;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
 
 import com.trash.ecommerce.config.PaymentHashGenerator;
@@ -12,15 +13,20 @@ import com.trash.ecommerce.dto.PaymentMethodMessageResponse;
 import com.trash.ecommerce.entity.*;
 import com.trash.ecommerce.exception.OrderExistsException;
 import com.trash.ecommerce.exception.PaymentException;
-import com.trash.ecommerce.exception.ProductQuantityValidation;
 import com.trash.ecommerce.repository.*;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
 @Service
 public class PaymentServiceImpl implements PaymentService {
 
+    // VnPay yêu cầu vnp_CreateDate/vnp_ExpireDate theo giờ Việt Nam (GMT+7)
+    private static final DateTimeFormatter VNPAY_DATE_FORMAT =
+            DateTimeFormatter.ofPattern("yyyyMMddHHmmss").withZone(ZoneId.of("Asia/Ho_Chi_Minh"));
+
     @Autowired
     private UserRepository userRepository;
     @Autowired
@@ -34,9 +40,12 @@ public class PaymentServiceImpl implements PaymentService {
     @Autowired
     private OrderRepository orderRepository;
     @Autowired
-    private EmailService emailService;
+    private PaymentEventRepository paymentEventRepository;
     @Autowired
-    private InvoiceService invoiceService;
+    private PaymentEventWorker paymentEventWorker;
+    // Phần hàng được giữ thêm inventory.reservation-grace-minutes sau khi link hết hạn
+    @Value("${inventory.payment-url-ttl-minutes:15}")
+    private long paymentUrlTtlMinutes;
     private Map<String, String> vnpayResponse(String code, String message) {
     return Map.of(
         "RspCode", code,
@@ -61,66 +70,64 @@ public class PaymentServiceImpl implements PaymentService {
     public String createPaymentUrl(BigDecimal total_price, String orderInfo, Long orderId, String ipAddress) {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new OrderExistsException("Order not found"));
-            String vnp_Version = "2.1.0";
-            String vnp_Command = "pay";
-            String vnp_OrderInfo = orderInfo;
-            String orderType = "100000";
-            String vnp_TxnRef = String.valueOf(order.getId());
-            String vnp_IpAddr = ipAddress;
-            String vnp_TmnCode = vnPayConfig.getTmnCode();
-    
-            // Chuyển BigDecimal sang VND (nhân 100 và làm tròn)
-            long amount = total_price.multiply(BigDecimal.valueOf(100)).longValue();
-            Map<String, String> vnp_Params = new HashMap<>();
-            vnp_Params.put("vnp_Version", vnp_Version);
-            vnp_Params.put("vnp_Command", vnp_Command);
-            vnp_Params.put("vnp_TmnCode", vnp_TmnCode);
-            vnp_Params.put("vnp_Amount", String.valueOf(amount));
-            vnp_Params.put("vnp_CurrCode", "VND");
-            vnp_Params.put("vnp_TxnRef", vnp_TxnRef);
-            vnp_Params.put("vnp_OrderInfo", vnp_OrderInfo);
-            vnp_Params.put("vnp_OrderType", orderType);
-            vnp_Params.put("vnp_Locale", "vn");
-            vnp_Params.put("vnp_ReturnUrl", vnPayConfig.getReturnUrl());
-            vnp_Params.put("vnp_IpAddr", vnp_IpAddr);
-            Calendar cld = Calendar.getInstance(TimeZone.getTimeZone("Etc/GMT+7"));
-    
-            SimpleDateFormat formatter = new SimpleDateFormat("yyyyMMddHHmmss");
-            String vnp_CreateDate = formatter.format(cld.getTime());
-    
-            vnp_Params.put("vnp_CreateDate", vnp_CreateDate);
-            cld.add(Calendar.MINUTE, 15);
-            String vnp_ExpireDate = formatter.format(cld.getTime());
-            //Add Params of 2.1.0 Version
-            vnp_Params.put("vnp_ExpireDate", vnp_ExpireDate);
-            List<String> fieldNames = new ArrayList<>(vnp_Params.keySet());
-            Collections.sort(fieldNames);
-            StringBuilder hashData = new StringBuilder();
-            StringBuilder query = new StringBuilder();
-            Iterator<String> itr = fieldNames.iterator();
-            while (itr.hasNext()) {
-                String fieldName = itr.next();
-                String fieldValue = vnp_Params.get(fieldName);
-                if ((fieldValue != null) && (!fieldValue.isEmpty())) {
-                    //Build hash data
-                    hashData.append(fieldName);
-                    hashData.append('=');
-                    hashData.append(URLEncoder.encode(fieldValue, StandardCharsets.UTF_8));
-                    //Build query
-                    query.append(URLEncoder.encode(fieldName, StandardCharsets.UTF_8));
-                    query.append('=');
-                    query.append(URLEncoder.encode(fieldValue, StandardCharsets.UTF_8));
-                    if (itr.hasNext()) {
-                        query.append('&');
-                        hashData.append('&');
-                    }
-                }
-            }
-            String queryUrl = query.toString();
+        Date createDate = new Date();
+        return buildPaymentUrl(total_price, orderInfo, order.getId(), ipAddress, createDate, expiryOf(createDate));
+    }
+
+    /**
+     * Signs the payment link of a new order and stores it on the order together with its expiry,
+     * so listing the order later never signs it again.
+     */
+    @Override
+    public String createPaymentUrl(Order order, String ipAddress) {
+        Date createDate = new Date();
+        Date expiresAt = expiryOf(createDate);
+        String url = buildPaymentUrl(order.getTotalPrice(), ".", order.getId(), ipAddress, createDate, expiresAt);
+        order.setPaymentUrl(url);
+        order.setPaymentUrlExpiresAt(expiresAt);
+        return url;
+    }
+
+    private Date expiryOf(Date createDate) {
+        return new Date(createDate.getTime() + paymentUrlTtlMinutes * 60 * 1000);
+    }
+
+    /**
+     * Builds the signed VnPay URL. Parameters are appended directly in the sorted order VnPay
+     * signs them in, and names are URL-safe, so the query string doubles as the hash data.
+     */
+    private String buildPaymentUrl(BigDecimal total_price, String orderInfo, Long orderId, String ipAddress,
+                                   Date createDate, Date expireDate) {
+        // Chuyển BigDecimal sang VND (nhân 100 và làm tròn)
+        long amount = total_price.multiply(BigDecimal.valueOf(100)).longValue();
+        StringBuilder query = new StringBuilder(512);
+        appendParam(query, "vnp_Amount", String.valueOf(amount));
+        appendParam(query, "vnp_Command", "pay");
+        appendParam(query, "vnp_CreateDate", VNPAY_DATE_FORMAT.format(createDate.toInstant()));
+        appendParam(query, "vnp_CurrCode", "VND");
+        appendParam(query, "vnp_ExpireDate", VNPAY_DATE_FORMAT.format(expireDate.toInstant()));
+        appendParam(query, "vnp_IpAddr", ipAddress);
+        appendParam(query, "vnp_Locale", "vn");
+        appendParam(query, "vnp_OrderInfo", orderInfo);
+        appendParam(query, "vnp_OrderType", "100000");
+        appendParam(query, "vnp_ReturnUrl", vnPayConfig.getReturnUrl());
+        appendParam(query, "vnp_TmnCode", vnPayConfig.getTmnCode());
+        appendParam(query, "vnp_TxnRef", String.valueOf(orderId));
+        appendParam(query, "vnp_Version", "2.1.0");
+        String queryUrl = query.toString();
+
+        String vnp_SecureHash = paymentHashGenerator.HmacSHA512(vnPayConfig.getHashSecret(), queryUrl);
+        return vnPayConfig.getUrl() + "?" + queryUrl + "&vnp_SecureHash=" + vnp_SecureHash;
+    }
 
-            String vnp_SecureHash = paymentHashGenerator.HmacSHA512(vnPayConfig.getHashSecret(), hashData.toString());
-            queryUrl += "&vnp_SecureHash=" + vnp_SecureHash;
-        return vnPayConfig.getUrl() + "?" + queryUrl;
+    private static void appendParam(StringBuilder query, String name, String value) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        if (!query.isEmpty()) {
+            query.append('&');
+        }
+        query.append(name).append('=').append(URLEncoder.encode(value, StandardCharsets.UTF_8));
     }
 
     @Override
@@ -143,9 +150,7 @@ public class PaymentServiceImpl implements PaymentService {
     @Override
     public PaymentMethodMessageResponse handleProcedureUserInterface(HttpServletRequest request) {
         Map<String, String> fields = hashFields(request);
-        String vnp_SecureHash = request.getParameter("vnp_SecureHash");
-        String signValue = paymentHashGenerator.hashAllFields(fields);
-        if (signValue.equals(vnp_SecureHash)) {
+        if (paymentHashGenerator.verify(fields, request.getParameter("vnp_SecureHash"))) {
             if ("00".equals(request.getParameter("vnp_ResponseCode"))) {
                 return new PaymentMethodMessageResponse("GD Thanh cong");
             } else {
@@ -157,12 +162,28 @@ public class PaymentServiceImpl implements PaymentService {
         }
     }
 
+    /**
+     * Stores the verified IPN keyed by {@code vnp_TxnRef}. Returns {@code null} when the same
+     * transaction was already recorded, i.e. VnPay is retrying a callback.
+     */
+    private Long recordPaymentEvent(String txnRef, Long orderId, BigDecimal amount, String transactionNo) {
+        if (paymentEventRepository.existsByTxnRef(txnRef)) {
+            return null;
+        }
+        PaymentEvent event = new PaymentEvent(null, txnRef, orderId, amount, transactionNo,
+                PaymentEventStatus.RECEIVED, 0, null, new Date(), null);
+        try {
+            return paymentEventRepository.save(event).getId();
+        } catch (DataIntegrityViolationException e) {
+            // Hai IPN trùng nhau đến cùng lúc, unique key trên txn_ref chặn bản ghi thứ hai
+            return null;
+        }
+    }
+
     @Override
     public Map<String, String> handleProcedurePayment(HttpServletRequest request) {
         Map<String, String> fields = hashFields(request);
-        String vnp_SecureHash = request.getParameter("vnp_SecureHash");
-        String signValue = paymentHashGenerator.hashAllFields(fields);
-        if (signValue.equals(vnp_SecureHash))
+        if (paymentHashGenerator.verify(fields, request.getParameter("vnp_SecureHash")))
         {
 
             String txnRef = fields.get("vnp_TxnRef");
@@ -201,52 +222,12 @@ public class PaymentServiceImpl implements PaymentService {
                     {
                         if ("00".equals(request.getParameter("vnp_ResponseCode")))
                         {
-                            Users user = order.getUser();
-                            if (user == null) {
-                                throw new PaymentException("User not found for order");
-                            }
-                            Long userId = user.getId();
-                            order.setStatus(OrderStatus.PAID);
-                            
-                            // Xử lý order items thay vì cart items (vì cart đã bị xóa khi tạo order)
-                            if (order.getOrderItems() == null || order.getOrderItems().isEmpty()) {
-                                throw new PaymentException("Order has no items");
-                            }
-                            
-                            for(OrderItem orderItem : order.getOrderItems()) {
-                                if (orderItem == null || orderItem.getProduct() == null) {
-                                    continue;
-                                }
-                                Product product = orderItem.getProduct();
-                                Long quantity = orderItem.getQuantity();
-                                if (quantity == null || quantity <= 0) {
-                                    continue;
-                                }
-                                // Giảm stock từ order items
-                                int updatedRows = productRepository.decreaseStock(product.getId(), quantity);
-                                if (updatedRows == 0) {
-                                    throw new ProductQuantityValidation("Hết hàng hoặc số lượng không đủ cho sản phẩm: " + product.getProductName());
-                                }
-                            }
-                            orderRepository.save(order);
-                            String subject = "Confirm the order transaction";
-                            String body = String.format(
-                                    "Hi %s!\n\n" +
-                                            "We’ve successfully received your order #%s, and it’s now on its way to your doorstep " +
-                                            "(unless the universe decides to play tricks, but let’s hope not 😅).\n\n" +
-                                            "Get ready to enjoy your purchase soon! If anything goes wrong, don’t worry — our team is armed " +
-                                            "with coffee and a few clicks of magic 💻☕.\n\n" +
-                                            "Thanks for choosing us and placing your order — you just helped us secure our morning caffeine fix!\n\n" +
-                                            "Cheers,\n" +
-                                            "The Shop Team",
-                                    user.getEmail(), orderId
-                            );
-                            emailService.sendEmail(user.getEmail(), subject, body);
-                            if (order.getPaymentMethod() != null) {
-                                invoiceService.createInvoice(userId, orderId, order.getPaymentMethod().getId());
-                            } else {
-                                throw new PaymentException("Payment method not found for order");
+                            // Chỉ ghi nhận rồi trả lời ngay; worker chuyển trạng thái đơn, chốt kho, tạo hóa đơn và gửi mail
+                            Long eventId = recordPaymentEvent(txnRef, orderId, vnpAmount, fields.get("vnp_TransactionNo"));
+                            if (eventId == null) {
+                                return vnpayResponse("02","Order already confirmed");
                             }
+                            paymentEventWorker.submit(eventId);
                         }
                         else
                         {
@@ -256,6 +237,13 @@ public class PaymentServiceImpl implements PaymentService {
                     }
                     else
                     {
+                        // Thanh toán tới sau khi đơn đã bị hủy: vẫn ghi lại để worker đánh dấu ORPHANED và hoàn tiền
+                        if ("00".equals(request.getParameter("vnp_ResponseCode"))) {
+                            Long eventId = recordPaymentEvent(txnRef, orderId, vnpAmount, fields.get("vnp_TransactionNo"));
+                            if (eventId != null) {
+                                paymentEventWorker.submit(eventId);
+                            }
+                        }
                         return vnpayResponse("02","Order already confirmed");
                     }
                 }
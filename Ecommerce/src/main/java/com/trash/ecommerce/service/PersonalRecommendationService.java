@@ -0,0 +1,10 @@
+package com.trash.ecommerce.service;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface PersonalRecommendationService {
+    public List<Long> recommendationsFor(Long userId);
+    public void markStale(Collection<Long> userIds);
+    public List<Long> popularProductIds();
+}
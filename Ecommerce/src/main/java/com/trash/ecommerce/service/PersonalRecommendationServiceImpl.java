@@ -0,0 +1,184 @@
+package com.trash.ecommerce.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.trash.ecommerce.cache.RecentInteractionsCache;
+import com.trash.ecommerce.config.RecommendationConfig;
+import com.trash.ecommerce.repository.ProductRepository;
+
+/**
+ * Serves personalised recommendation lists from Redis. Users whose recent interactions changed are
+ * marked stale by the interaction pipeline and recomputed in the background, so a read is one Redis
+ * GET; a miss is computed once and stored with a TTL. Users without history get the trending list,
+ * or the best-rated products while no views have been counted yet.
+ */
+@Service
+public class PersonalRecommendationServiceImpl implements PersonalRecommendationService {
+    private static final Logger logger = LoggerFactory.getLogger(PersonalRecommendationServiceImpl.class);
+    private static final String KEY_PREFIX = "recommendation:user:";
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private RecommendationService recommendationService;
+    @Autowired
+    private RecentInteractionsCache recentInteractionsCache;
+    @Autowired
+    private TrendingService trendingService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private RecommendationConfig recommendationConfig;
+    @Autowired
+    @Qualifier("personalRecommendationExecutor")
+    private TaskExecutor personalRecommendationExecutor;
+
+    private final Set<Long> stale = ConcurrentHashMap.newKeySet();
+    private volatile List<Long> popular = List.of();
+    private volatile long popularLoadedAt;
+
+    @Override
+    public List<Long> recommendationsFor(Long userId) {
+        List<Long> cached = read(userId);
+        if (cached != null) {
+            return cached;
+        }
+        List<Long> computed = compute(userId);
+        if (computed.isEmpty()) {
+            return popularProductIds();
+        }
+        write(Map.of(userId, computed));
+        return computed;
+    }
+
+    @Override
+    public void markStale(Collection<Long> userIds) {
+        stale.addAll(userIds);
+    }
+
+    // Gom các user bị đánh dấu trong một chu kỳ để mỗi user chỉ được tính lại một lần
+    @Scheduled(fixedDelayString = "${recommendation.personal-refresh-interval-ms:5000}")
+    public void refreshStale() {
+        if (stale.isEmpty()) {
+            return;
+        }
+        List<Long> userIds = new ArrayList<>();
+        for (Iterator<Long> it = stale.iterator(); it.hasNext(); ) {
+            userIds.add(it.next());
+            it.remove();
+        }
+        try {
+            personalRecommendationExecutor.execute(() -> recompute(userIds));
+        } catch (TaskRejectedException e) {
+            stale.addAll(userIds);
+        }
+    }
+
+    private void recompute(List<Long> userIds) {
+        Map<Long, List<Long>> results = new LinkedHashMap<>();
+        for (Long userId : userIds) {
+            try {
+                results.put(userId, compute(userId));
+            } catch (Exception e) {
+                logger.warn("Could not compute recommendations of user {}: {}", userId, e.getMessage());
+            }
+        }
+        write(results);
+    }
+
+    private List<Long> compute(Long userId) {
+        List<Long> recent = recentInteractionsCache.recentProductIds(userId);
+        if (recent.isEmpty()) {
+            return List.of();
+        }
+        return recommendationService.recommendForHistory(recent, recommendationConfig.getTopN());
+    }
+
+    @Override
+    public List<Long> popularProductIds() {
+        List<Long> trending = trendingService.topProductIds(null, recommendationConfig.getTopN());
+        if (!trending.isEmpty()) {
+            return trending;
+        }
+        // Chưa có dữ liệu lượt xem (mới khởi động, chưa có snapshot) thì xếp theo đánh giá
+        long now = System.currentTimeMillis();
+        if (now - popularLoadedAt > recommendationConfig.getPopularRefreshSeconds() * 1000) {
+            popular = List.copyOf(productRepository.findPopularIds(PageRequest.of(0, recommendationConfig.getTopN())));
+            popularLoadedAt = now;
+        }
+        return popular;
+    }
+
+    private List<Long> read(Long userId) {
+        try {
+            String value = stringRedisTemplate.opsForValue().get(KEY_PREFIX + userId);
+            if (value == null) {
+                return null;
+            }
+            List<Long> productIds = new ArrayList<>();
+            for (String id : value.split(",")) {
+                productIds.add(Long.valueOf(id));
+            }
+            return productIds;
+        } catch (Exception e) {
+            logger.warn("Could not read recommendations of user {} from Redis: {}", userId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stores all lists in one pipelined round trip. An empty list (model not built yet, or no
+     * usable history) removes the key so the next read falls back instead of caching nothing.
+     */
+    private void write(Map<Long, List<Long>> recommendations) {
+        if (recommendations.isEmpty()) {
+            return;
+        }
+        Expiration ttl = Expiration.seconds(recommendationConfig.getPersonalTtlSeconds());
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (Map.Entry<Long, List<Long>> entry : recommendations.entrySet()) {
+                    byte[] key = (KEY_PREFIX + entry.getKey()).getBytes(StandardCharsets.UTF_8);
+                    if (entry.getValue().isEmpty()) {
+                        connection.keyCommands().del(key);
+                        continue;
+                    }
+                    StringBuilder value = new StringBuilder();
+                    for (Long productId : entry.getValue()) {
+                        if (!value.isEmpty()) {
+                            value.append(',');
+                        }
+                        value.append(productId);
+                    }
+                    connection.stringCommands().set(key, value.toString().getBytes(StandardCharsets.UTF_8), ttl,
+                            RedisStringCommands.SetOption.upsert());
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            logger.warn("Could not store recommendations of {} users in Redis: {}", recommendations.size(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.trash.ecommerce.service;
+
+import java.util.List;
+
+import com.trash.ecommerce.search.ProductSearchIndex;
+
+public interface ProductSearchService {
+    public boolean isReady();
+    public List<Long> search(String query, int noPage, int sizePage);
+    public List<ProductSearchIndex.Hit> searchAfter(String query, float afterScore, long afterId, int limit);
+    public void rebuild();
+}
@@ -0,0 +1,175 @@
+package com.trash.ecommerce.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.trash.ecommerce.dto.ProductTextDTO;
+import com.trash.ecommerce.event.ProductChangedEvent;
+import com.trash.ecommerce.repository.ProductRepository;
+import com.trash.ecommerce.search.ProductSearchIndex;
+
+@Service
+public class ProductSearchServiceImpl implements ProductSearchService {
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchServiceImpl.class);
+
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    @Qualifier("searchIndexExecutor")
+    private TaskExecutor searchIndexExecutor;
+    @Value("${search.load-batch-size:1000}")
+    private int loadBatchSize;
+    @Value("${search.max-deleted-ratio:0.25}")
+    private double maxDeletedRatio;
+
+    private volatile ProductSearchIndex index;
+    private final AtomicBoolean rebuildRequested = new AtomicBoolean();
+    // Sản phẩm đổi trong lúc rebuild đọc catalog: áp lại lên index mới sau khi thay
+    private final Set<Long> changedDuringRebuild = ConcurrentHashMap.newKeySet();
+    private volatile boolean rebuilding;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        searchIndexExecutor.execute(this::safeRebuild);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getType() == ProductChangedEvent.Type.STOCK_CHANGED
+                || event.getType() == ProductChangedEvent.Type.RATING_CHANGED) {
+            return;
+        }
+        try {
+            searchIndexExecutor.execute(() -> applyChange(event));
+        } catch (TaskRejectedException e) {
+            // Chạy sau commit: không được ném ngược lại request đã ghi xong
+            rebuildRequested.set(true);
+            logger.warn("Search index queue is full, product {} will be picked up by the next rebuild", event.getProductId());
+        }
+    }
+
+    /**
+     * Runs the rebuilds requested by a full queue or by too many dead slots on the scheduler
+     * thread, so the changes queued on {@code searchIndexExecutor} keep being applied meanwhile.
+     */
+    @Scheduled(fixedDelayString = "${search.rebuild-check-interval-ms:30000}")
+    public void rebuildIfRequested() {
+        if (rebuildRequested.getAndSet(false)) {
+            try {
+                rebuild();
+            } catch (Exception e) {
+                rebuildRequested.set(true);
+                logger.error("Failed to rebuild product search index, will retry", e);
+            }
+        }
+    }
+
+    @Override
+    public boolean isReady() {
+        return index != null;
+    }
+
+    @Override
+    public List<Long> search(String query, int noPage, int sizePage) {
+        ProductSearchIndex current = index;
+        if (current == null) {
+            return List.of();
+        }
+        return current.search(query, noPage * sizePage, sizePage);
+    }
+
+    @Override
+    public List<ProductSearchIndex.Hit> searchAfter(String query, float afterScore, long afterId, int limit) {
+        ProductSearchIndex current = index;
+        if (current == null) {
+            return List.of();
+        }
+        return current.searchAfter(query, afterScore, afterId, limit);
+    }
+
+    @Override
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        changedDuringRebuild.clear();
+        rebuilding = true;
+        List<ProductTextDTO> products = new ArrayList<>();
+        PageRequest batch = PageRequest.of(0, loadBatchSize);
+        long lastId = 0L;
+        while (true) {
+            List<ProductTextDTO> chunk = productRepository.findProductTextsAfter(lastId, batch);
+            if (chunk.isEmpty()) {
+                break;
+            }
+            products.addAll(chunk);
+            lastId = chunk.get(chunk.size() - 1).getId();
+        }
+        ProductSearchIndex built = ProductSearchIndex.build(products);
+        index = built;
+        rebuilding = false;
+        for (Long productId : List.copyOf(changedDuringRebuild)) {
+            changedDuringRebuild.remove(productId);
+            apply(built, new ProductChangedEvent(productId, ProductChangedEvent.Type.UPDATED));
+        }
+        logger.info("Product search index built for {} products in {} ms",
+                products.size(), System.currentTimeMillis() - start);
+    }
+
+    private void applyChange(ProductChangedEvent event) {
+        ProductSearchIndex current = index;
+        if (current == null) {
+            return;
+        }
+        try {
+            apply(current, event);
+            if (rebuilding) {
+                changedDuringRebuild.add(event.getProductId());
+            }
+            // Index vừa được thay trong lúc áp dụng: thay đổi đã rơi vào index cũ
+            ProductSearchIndex latest = index;
+            if (latest != current) {
+                apply(latest, event);
+            }
+            // Slot cũ của sản phẩm bị sửa/xóa chỉ được đánh dấu chết, rebuild lại khi tích tụ quá nhiều
+            if (latest.deletedRatio() > maxDeletedRatio) {
+                rebuildRequested.set(true);
+            }
+        } catch (Exception e) {
+            logger.warn("Could not apply {} of product {} to search index: {}",
+                    event.getType(), event.getProductId(), e.getMessage());
+        }
+    }
+
+    private void apply(ProductSearchIndex target, ProductChangedEvent event) {
+        if (event.getType() == ProductChangedEvent.Type.DELETED) {
+            target.remove(event.getProductId());
+        } else {
+            productRepository.findProductTextById(event.getProductId())
+                    .ifPresentOrElse(target::upsert, () -> target.remove(event.getProductId()));
+        }
+    }
+
+    private void safeRebuild() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            logger.error("Failed to build product search index", e);
+        }
+    }
+}
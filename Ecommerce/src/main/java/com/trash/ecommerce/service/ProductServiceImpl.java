@@ -2,24 +2,34 @@ package com.trash.ecommerce.service;
 
 import java.io.File;
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
+import com.trash.ecommerce.cache.ProductDetailsCache;
+import com.trash.ecommerce.config.RecommendationConfig;
+import com.trash.ecommerce.event.ProductChangedEvent;
 import com.trash.ecommerce.mapper.ProductMapper;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.ParameterizedTypeReference;
-import org.springframework.data.domain.Page;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import com.trash.ecommerce.dto.CursorPageDTO;
+import com.trash.ecommerce.dto.PageCursor;
 import com.trash.ecommerce.dto.ProductDetailsResponseDTO;
 import com.trash.ecommerce.dto.ProductRequestDTO;
 import com.trash.ecommerce.dto.ProductResponseDTO;
+import com.trash.ecommerce.dto.ProductSummaryDTO;
 import com.trash.ecommerce.entity.Cart;
 import com.trash.ecommerce.entity.CartItem;
 import com.trash.ecommerce.entity.CartItemId;
@@ -28,15 +38,16 @@ import com.trash.ecommerce.entity.Users;
 import com.trash.ecommerce.exception.FindingUserError;
 import com.trash.ecommerce.exception.ProductFingdingException;
 import com.trash.ecommerce.repository.ProductRepository;
+import com.trash.ecommerce.search.ProductSearchIndex;
 import com.trash.ecommerce.repository.UserRepository;
 import com.trash.ecommerce.repository.CartItemRepository;
 
 import jakarta.transaction.Transactional;
 import org.springframework.web.multipart.MultipartFile;
-import org.springframework.web.reactive.function.client.WebClient;
 
 @Service
 public class ProductServiceImpl implements ProductService {
+    private static final int MAX_SCROLL_SIZE = 100;
 
     @Autowired
     private ProductRepository productRepository;
@@ -49,39 +60,96 @@ public class ProductServiceImpl implements ProductService {
     private ProductMapper productMapper;
     @Autowired
     private CartItemRepository cartItemRepository;
+    @Autowired
+    private RecommendationService recommendationService;
+    @Autowired
+    private RecommendationConfig recommendationConfig;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private ProductDetailsCache productDetailsCache;
+    @Autowired
+    private ProductSearchService productSearchService;
+    @Autowired
+    private TrendingService trendingService;
     @Override
     public ProductDetailsResponseDTO findProductById(Long id) {
-        ProductDetailsResponseDTO productDTO = new ProductDetailsResponseDTO();
-        Product product = productRepository.findById(id)
-                .orElseThrow(() -> new ProductFingdingException("Không tìm thấy sản phẩm"));
-        productDTO = productMapper.mapperProduct(product);
-        return productDTO;
+        return productDetailsCache.get(id, () -> {
+            Product product = productRepository.findById(id)
+                    .orElseThrow(() -> new ProductFingdingException("Không tìm thấy sản phẩm"));
+            return productMapper.mapperProduct(product);
+        });
     }
 
     @Override
-    public List<ProductDetailsResponseDTO> findAllProduct(int noPage, int sizePage) {
-        PageRequest pageRequest = PageRequest.of(noPage, sizePage);
-        Page<Product> products = productRepository.findAll(pageRequest);
-        List<ProductDetailsResponseDTO> productsDTOs = products
-                .getContent()
-                .stream()
-                .map(product -> productMapper.mapperProduct(product))
-                .toList();
-        return productsDTOs;
+    public List<ProductSummaryDTO> findAllProduct(int noPage, int sizePage) {
+        return productRepository.findSummaries(PageRequest.of(noPage, sizePage));
     }
 
     @Override
-    public List<ProductDetailsResponseDTO> findProductByName(String name, int noPage, int sizePage) {
+    public List<ProductSummaryDTO> findProductByName(String name, int noPage, int sizePage) {
         if (name == null || name.trim().isEmpty()) {
             throw new IllegalArgumentException("Product name cannot be null or empty");
         }
-        PageRequest pageRequest = PageRequest.of(noPage, sizePage);
-        Page<Product> products = productRepository.findProductsByName(name, pageRequest);
-        List<ProductDetailsResponseDTO> productDetailsResponseDTO = products.getContent()
-                                                                                .stream()
-                                                                                .map(product -> productMapper.mapperProduct(product))
-                                                                                .toList();
-        return productDetailsResponseDTO;
+        if (productSearchService.isReady()) {
+            return findProductSummariesByIds(productSearchService.search(name, noPage, sizePage));
+        }
+        // Index chưa build xong (lúc khởi động) thì vẫn dùng LIKE
+        return productRepository.findProductsByName(name, PageRequest.of(noPage, sizePage));
+    }
+
+    @Override
+    public CursorPageDTO<ProductSummaryDTO> scrollProducts(String sort, String cursor, int size) {
+        checkScrollSize(size);
+        PageCursor after = PageCursor.decode(cursor);
+        // Lấy dư 1 dòng để biết còn trang sau hay không, không cần COUNT(*)
+        PageRequest limit = PageRequest.of(0, size + 1);
+        List<ProductSummaryDTO> rows;
+        boolean byPrice = "price".equalsIgnoreCase(sort);
+        if (byPrice) {
+            rows = after == null
+                    ? productRepository.findFirstPageByPrice(limit)
+                    : productRepository.findPageByPriceAfter(new BigDecimal(after.getSortKey()), after.getId(), limit);
+        } else if (sort == null || sort.isEmpty() || "id".equalsIgnoreCase(sort)) {
+            rows = productRepository.findPageAfterId(after == null ? 0L : after.getId(), limit);
+        } else {
+            throw new IllegalArgumentException("Unsupported sort: " + sort);
+        }
+        boolean hasNext = rows.size() > size;
+        List<ProductSummaryDTO> page = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = null;
+        if (hasNext) {
+            ProductSummaryDTO last = page.get(size - 1);
+            nextCursor = new PageCursor(byPrice ? last.getPrice().toPlainString() : "", last.getId()).encode();
+        }
+        return new CursorPageDTO<>(page, nextCursor);
+    }
+
+    @Override
+    public CursorPageDTO<ProductSummaryDTO> scrollProductsByName(String name, String cursor, int size) {
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("Product name cannot be null or empty");
+        }
+        checkScrollSize(size);
+        PageCursor after = PageCursor.decode(cursor);
+        // Cursor giữ (score, id) của kết quả cuối; score có thể lệch nhẹ nếu index vừa được cập nhật
+        float afterScore = after == null ? Float.NaN : Float.parseFloat(after.getSortKey());
+        List<ProductSearchIndex.Hit> hits = productSearchService.searchAfter(name, afterScore,
+                after == null ? 0L : after.getId(), size + 1);
+        boolean hasNext = hits.size() > size;
+        List<ProductSearchIndex.Hit> page = hasNext ? hits.subList(0, size) : hits;
+        String nextCursor = null;
+        if (hasNext) {
+            ProductSearchIndex.Hit last = page.get(size - 1);
+            nextCursor = new PageCursor(Float.toString(last.score()), last.productId()).encode();
+        }
+        return new CursorPageDTO<>(findProductSummariesByIds(page.stream().map(ProductSearchIndex.Hit::productId).toList()), nextCursor);
+    }
+
+    private void checkScrollSize(int size) {
+        if (size <= 0 || size > MAX_SCROLL_SIZE) {
+            throw new IllegalArgumentException("Size must be between 1 and " + MAX_SCROLL_SIZE);
+        }
     }
 
     @Override
@@ -105,7 +173,8 @@ public class ProductServiceImpl implements ProductService {
         product.setQuantity(productRequestDTO.getQuantity());
         product.setCategory(productRequestDTO.getCategory());
         product.setDescription(productRequestDTO.getDescription());
-        productRepository.save(product);
+        Product saved = productRepository.save(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(saved.getId(), ProductChangedEvent.Type.CREATED));
         return new ProductResponseDTO("creating product is successful");
     }
 
@@ -144,6 +213,10 @@ public class ProductServiceImpl implements ProductService {
             product.setProductName(productRequestDTO.getProductName());
         }
         if (productRequestDTO.getQuantity() != null) {
+            if (Boolean.TRUE.equals(product.getHotSku())) {
+                // Tồn kho đang nằm trên Redis, ghi trực tiếp vào MySQL sẽ bị reconciler ghi đè
+                throw new IllegalArgumentException("Disable hot-SKU mode before changing the quantity");
+            }
             product.setQuantity(productRequestDTO.getQuantity());
         }
         if (productRequestDTO.getCategory() != null) {
@@ -153,6 +226,7 @@ public class ProductServiceImpl implements ProductService {
             product.setDescription(productRequestDTO.getDescription());
         }
         productRepository.save(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(id, ProductChangedEvent.Type.UPDATED));
         return new ProductResponseDTO("Update product is successful");
     }
 
@@ -170,6 +244,7 @@ public class ProductServiceImpl implements ProductService {
             }
         }
         productRepository.delete(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(id, ProductChangedEvent.Type.DELETED));
         return new ProductResponseDTO("successful");
     }
 
@@ -231,16 +306,51 @@ public class ProductServiceImpl implements ProductService {
 
     @Override
     public List<ProductDetailsResponseDTO> getProductsRecommendation(Long productId) {
-        WebClient webClient = WebClient.create();
-        List<Long> result = webClient.get()
-            .uri("http://127.0.0.1:8000/recommend/{product_id}", productId)
-            .retrieve()
-            .bodyToMono(new ParameterizedTypeReference<List<Long>>() {})
-            .block();
-        return result.stream()
-                        .map(id -> productRepository.findById(id)
-                        .orElseThrow(() -> new ProductFingdingException("Product not found")))
-                        .map(productMapper::mapperProduct)
-                        .toList();
+        List<Long> result = recommendationService.findSimilarProductIds(productId, recommendationConfig.getTopN());
+        return findProductsByIds(result);
+    }
+
+    @Override
+    public List<ProductDetailsResponseDTO> findProductsByIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return List.of();
+        }
+        // Một query duy nhất, giữ nguyên thứ tự xếp hạng và bỏ qua sản phẩm đã bị xóa
+        Map<Long, Product> productsById = new HashMap<>();
+        for (Product product : productRepository.findAllById(new LinkedHashSet<>(ids))) {
+            productsById.put(product.getId(), product);
+        }
+        List<ProductDetailsResponseDTO> products = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Product product = productsById.get(id);
+            if (product != null) {
+                products.add(productMapper.mapperProduct(product));
+            }
+        }
+        return products;
+    }
+
+    @Override
+    public List<ProductSummaryDTO> findProductSummariesByIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, ProductSummaryDTO> summariesById = new HashMap<>();
+        for (ProductSummaryDTO summary : productRepository.findSummariesByIds(new LinkedHashSet<>(ids))) {
+            summariesById.put(summary.getId(), summary);
+        }
+        List<ProductSummaryDTO> summaries = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            ProductSummaryDTO summary = summariesById.get(id);
+            if (summary != null) {
+                summaries.add(summary);
+            }
+        }
+        return summaries;
+    }
+
+    @Override
+    public List<ProductSummaryDTO> findTrendingProducts(String category, int limit) {
+        return findProductSummariesByIds(trendingService.topProductIds(category, limit));
     }
 }
@@ -0,0 +1,10 @@
+package com.trash.ecommerce.service;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface RecommendationService {
+    public List<Long> findSimilarProductIds(Long productId, int limit);
+    public List<Long> recommendForHistory(Collection<Long> viewedProductIds, int limit);
+    public void rebuild();
+}
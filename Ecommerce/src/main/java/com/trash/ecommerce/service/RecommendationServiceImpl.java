@@ -0,0 +1,205 @@
+package com.trash.ecommerce.service;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.trash.ecommerce.config.RecommendationConfig;
+import com.trash.ecommerce.dto.ProductTextDTO;
+import com.trash.ecommerce.event.ProductChangedEvent;
+import com.trash.ecommerce.recommendation.RecommendationModel;
+import com.trash.ecommerce.recommendation.TopKNeighborIndex;
+import com.trash.ecommerce.repository.ProductRepository;
+
+@Service
+public class RecommendationServiceImpl implements RecommendationService {
+    private static final Logger logger = LoggerFactory.getLogger(RecommendationServiceImpl.class);
+
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private RecommendationConfig recommendationConfig;
+    @Autowired
+    @Qualifier("recommendationExecutor")
+    private TaskExecutor recommendationExecutor;
+
+    private volatile RecommendationModel model;
+    // Sản phẩm thay đổi lúc hàng đợi đầy: được đọc lại từ DB ở lượt retry hoặc lần rebuild kế tiếp
+    private final Set<Long> missedChanges = ConcurrentHashMap.newKeySet();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        submitRebuild();
+    }
+
+    // Rebuild định kỳ để vocabulary/idf theo kịp các sản phẩm đã được cập nhật từng cái một
+    @Scheduled(initialDelayString = "${recommendation.rebuild-interval-ms:21600000}",
+            fixedDelayString = "${recommendation.rebuild-interval-ms:21600000}")
+    public void scheduledRebuild() {
+        submitRebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getType() == ProductChangedEvent.Type.STOCK_CHANGED
+                || event.getType() == ProductChangedEvent.Type.RATING_CHANGED) {
+            return;
+        }
+        try {
+            recommendationExecutor.execute(() -> applyChange(event));
+        } catch (TaskRejectedException e) {
+            // Chạy sau commit: không được ném ngược lại request đã ghi xong
+            missedChanges.add(event.getProductId());
+            logger.warn("Recommendation queue is full, product {} will be refreshed later", event.getProductId());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${recommendation.missed-change-retry-ms:60000}")
+    public void retryMissedChanges() {
+        if (missedChanges.isEmpty()) {
+            return;
+        }
+        try {
+            recommendationExecutor.execute(this::applyMissedChanges);
+        } catch (TaskRejectedException e) {
+            logger.warn("Recommendation queue is still full, {} products wait for the next retry", missedChanges.size());
+        }
+    }
+
+    private void applyMissedChanges() {
+        for (Long productId : List.copyOf(missedChanges)) {
+            // Bỏ đánh dấu trước khi đọc DB: thay đổi commit sau đó sẽ được đánh dấu lại hoặc đã được đọc
+            missedChanges.remove(productId);
+            applyChange(new ProductChangedEvent(productId, ProductChangedEvent.Type.UPDATED));
+        }
+    }
+
+    private void applyChange(ProductChangedEvent event) {
+        RecommendationModel current = model;
+        if (current == null) {
+            return;
+        }
+        try {
+            if (event.getType() == ProductChangedEvent.Type.DELETED) {
+                current.remove(event.getProductId());
+                return;
+            }
+            productRepository.findProductTextById(event.getProductId())
+                    .ifPresentOrElse(current::upsert, () -> current.remove(event.getProductId()));
+        } catch (Exception e) {
+            logger.warn("Could not apply {} of product {} to recommendation model: {}",
+                    event.getType(), event.getProductId(), e.getMessage());
+        }
+    }
+
+    private void submitRebuild() {
+        try {
+            recommendationExecutor.execute(this::safeRebuild);
+        } catch (TaskRejectedException e) {
+            logger.warn("Recommendation queue is full, model rebuild skipped until the next schedule");
+        }
+    }
+
+    private void safeRebuild() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            logger.error("Failed to build recommendation model", e);
+        }
+    }
+
+    @Override
+    public List<Long> findSimilarProductIds(Long productId, int limit) {
+        RecommendationModel current = model;
+        if (current == null || productId == null) {
+            return List.of();
+        }
+        return current.similarProducts(productId, limit);
+    }
+
+    @Override
+    public List<Long> recommendForHistory(Collection<Long> viewedProductIds, int limit) {
+        RecommendationModel current = model;
+        if (current == null || viewedProductIds == null || viewedProductIds.isEmpty()) {
+            return List.of();
+        }
+        return current.recommendForHistory(viewedProductIds, limit);
+    }
+
+    @Override
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        // Những sản phẩm đã đánh dấu trước khi đọc catalog được model mới phủ hết
+        Set<Long> covered = Set.copyOf(missedChanges);
+        List<ProductTextDTO> products = loadProductTexts();
+        int maxFeatures = recommendationConfig.getMaxFeatures();
+        int k = recommendationConfig.getNeighbors();
+        TopKNeighborIndex persisted = readNeighborIndex(k, RecommendationModel.fingerprint(products, maxFeatures));
+        RecommendationModel built = RecommendationModel.build(products, maxFeatures, k, persisted, annOptions());
+        if (built.isNeighborIndexRebuilt()) {
+            writeNeighborIndex(built.neighborIndex());
+        }
+        model = built;
+        missedChanges.removeAll(covered);
+        logger.info("Recommendation model built for {} products in {} ms (neighbour index {}, ANN index {})",
+                products.size(), System.currentTimeMillis() - start,
+                built.isNeighborIndexRebuilt() ? "recomputed" : "loaded from disk",
+                built.hasAnnIndex() ? "built" : "off");
+    }
+
+    private RecommendationModel.AnnOptions annOptions() {
+        return new RecommendationModel.AnnOptions(recommendationConfig.isAnnEnabled(),
+                recommendationConfig.getAnnMinProducts(), recommendationConfig.getEmbeddingDimensions(),
+                recommendationConfig.getHnswM(), recommendationConfig.getHnswEfConstruction(),
+                recommendationConfig.getHnswEfSearch(), recommendationConfig.getAnnCandidateFactor());
+    }
+
+    private TopKNeighborIndex readNeighborIndex(int k, long fingerprint) {
+        try {
+            return TopKNeighborIndex.readFrom(Paths.get(recommendationConfig.getIndexPath()), k, fingerprint);
+        } catch (IOException e) {
+            logger.warn("Could not read neighbour index, it will be recomputed: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeNeighborIndex(TopKNeighborIndex index) {
+        try {
+            index.writeTo(Paths.get(recommendationConfig.getIndexPath()));
+        } catch (IOException e) {
+            logger.warn("Could not persist neighbour index: {}", e.getMessage());
+        }
+    }
+
+    private List<ProductTextDTO> loadProductTexts() {
+        List<ProductTextDTO> products = new ArrayList<>();
+        PageRequest batch = PageRequest.of(0, recommendationConfig.getLoadBatchSize());
+        long lastId = 0L;
+        while (true) {
+            List<ProductTextDTO> chunk = productRepository.findProductTextsAfter(lastId, batch);
+            if (chunk.isEmpty()) {
+                break;
+            }
+            products.addAll(chunk);
+            lastId = chunk.get(chunk.size() - 1).getId();
+        }
+        return products;
+    }
+}
@@ -5,6 +5,7 @@ import com.trash.ecommerce.dto.ReviewResponse;
 import com.trash.ecommerce.entity.Product;
 import com.trash.ecommerce.entity.Review;
 import com.trash.ecommerce.entity.Users;
+import com.trash.ecommerce.event.ProductChangedEvent;
 import com.trash.ecommerce.exception.FindingUserError;
 import com.trash.ecommerce.exception.ProductFingdingException;
 import com.trash.ecommerce.exception.ReviewException;
@@ -14,6 +15,7 @@ import com.trash.ecommerce.repository.ProductRepository;
 import com.trash.ecommerce.repository.ReviewRepository;
 import com.trash.ecommerce.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 
@@ -33,6 +35,8 @@ public class ReviewServiceImpl implements ReviewService {
     private ProductRepository productRepository;
     @Autowired
     private OrderRepository orderRepository;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
     @Override
     public ReviewResponse createComment(Long userId, Long productId, ReviewRequest reviewRequest) {
         if (reviewRequest == null) {
@@ -65,6 +69,7 @@ public class ReviewServiceImpl implements ReviewService {
         reviewRepository.save(review);
         // Trigger sẽ tự động cập nhật rating, nhưng ta refresh product để đảm bảo
         productRepository.flush();
+        eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.Type.RATING_CHANGED));
         return reviewsMapper.mapReview(review);
     }
 
@@ -79,6 +84,7 @@ public class ReviewServiceImpl implements ReviewService {
             reviewRepository.deleteById(reviewId);
             // Trigger sẽ tự động cập nhật rating sau khi xóa review
             productRepository.flush();
+            eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.Type.RATING_CHANGED));
         } else {
             throw new AccessDeniedException("You do not have permission to delete this review");
         }
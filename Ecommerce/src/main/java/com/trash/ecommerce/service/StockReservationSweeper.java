@@ -0,0 +1,44 @@
+package com.trash.ecommerce.service;
+
+import java.util.Date;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.trash.ecommerce.repository.StockReservationRepository;
+
+/**
+ * Gives the stock of abandoned VnPay payments back and cancels their orders.
+ */
+@Component
+public class StockReservationSweeper {
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationSweeper.class);
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Scheduled(fixedDelayString = "${inventory.reservation-sweep-interval-ms:60000}")
+    public void releaseExpiredReservations() {
+        List<Long> orderIds = stockReservationRepository.findExpiredOrderIds(new Date(), PageRequest.of(0, BATCH_SIZE));
+        int released = 0;
+        for (Long orderId : orderIds) {
+            // Mỗi order một transaction riêng để một order lỗi không chặn cả lô
+            try {
+                released += inventoryService.releaseExpiredReservation(orderId);
+            } catch (Exception e) {
+                logger.warn("Could not release stock reservation of order {}: {}", orderId, e.getMessage());
+            }
+        }
+        if (released > 0) {
+            logger.info("Released {} expired stock reservations of {} orders", released, orderIds.size());
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.trash.ecommerce.service;
+
+import java.util.List;
+
+import com.trash.ecommerce.cache.RecentInteractionsCache.View;
+import com.trash.ecommerce.dto.TrendingCategoryDTO;
+
+public interface TrendingService {
+    public void recordAll(List<View> views);
+    public List<Long> topProductIds(String category, int limit);
+    public List<TrendingCategoryDTO> topCategories(int limit);
+}
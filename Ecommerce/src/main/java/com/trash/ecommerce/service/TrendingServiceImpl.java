@@ -0,0 +1,360 @@
+package com.trash.ecommerce.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.trash.ecommerce.cache.RecentInteractionsCache.View;
+import com.trash.ecommerce.config.TrendingConfig;
+import com.trash.ecommerce.dto.ProductCategoryDTO;
+import com.trash.ecommerce.dto.TrendingCategoryDTO;
+import com.trash.ecommerce.event.ProductChangedEvent;
+import com.trash.ecommerce.recommendation.ForwardDecayCounter;
+import com.trash.ecommerce.repository.ProductRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Trending rankings from the interaction stream. Flushed views feed a forward-decayed counter per
+ * product; category scores are the sums of their products' counts. Ranked lists are rebuilt on a
+ * short schedule and swapped in atomically, so a read is a sublist of a precomputed list.
+ * Instances share their counts through one Redis hash of forward-decay weights against a shared
+ * landmark. Weights are additive, so each instance periodically adds only the views it recorded
+ * since its last sync and then reads back the merged counts of every instance.
+ */
+@Service
+public class TrendingServiceImpl implements TrendingService {
+    private static final Logger logger = LoggerFactory.getLogger(TrendingServiceImpl.class);
+    private static final String WEIGHTS_KEY = "trending:weights";
+    private static final String LANDMARK_KEY = "trending:landmark";
+    // Snapshot cũ, mỗi instance ghi đè cả hash: được chuyển sang WEIGHTS_KEY ở lần đọc đầu tiên
+    private static final String LEGACY_SNAPSHOT_KEY = "trending:products";
+    private static final String LEGACY_SNAPSHOT_AT_KEY = "trending:snapshot-at";
+    private static final int CATEGORY_LOAD_BATCH = 1000;
+    private static final int PUSH_BATCH = 1000;
+    // Weight chung đạt e^50 thì dời landmark, xa giới hạn của double nhưng không để số mũ tăng mãi
+    private static final double SHARED_RESCALE_EXPONENT = 50.0;
+
+    // KEYS = weights, landmark; ARGV = lambda, at, id1, count1, ... (count quan sát tại thời điểm at)
+    private static final DefaultRedisScript<String> PUSH_SCRIPT = new DefaultRedisScript<>("""
+            local landmark = tonumber(redis.call('GET', KEYS[2]))
+            if not landmark then
+              landmark = tonumber(ARGV[2])
+              redis.call('SET', KEYS[2], ARGV[2])
+            end
+            local factor = math.exp(tonumber(ARGV[1]) * (tonumber(ARGV[2]) - landmark))
+            for i = 3, #ARGV, 2 do
+              redis.call('HINCRBYFLOAT', KEYS[1], ARGV[i], tonumber(ARGV[i + 1]) * factor)
+            end
+            return tostring(landmark)
+            """, String.class);
+    // KEYS = weights, landmark, legacy snapshot, legacy snapshot-at; trả về {landmark, id1, weight1, ...}
+    private static final DefaultRedisScript<List> PULL_SCRIPT = new DefaultRedisScript<>("""
+            local landmark = redis.call('GET', KEYS[2])
+            if not landmark then
+              landmark = redis.call('GET', KEYS[4])
+              if not landmark or redis.call('EXISTS', KEYS[3]) == 0 then return {} end
+              redis.call('RENAME', KEYS[3], KEYS[1])
+              redis.call('SET', KEYS[2], landmark)
+              redis.call('DEL', KEYS[4])
+            end
+            local out = redis.call('HGETALL', KEYS[1])
+            table.insert(out, 1, landmark)
+            return out
+            """, List.class);
+    // KEYS = weights, landmark; ARGV = lambda, landmark đã đọc, landmark mới
+    private static final DefaultRedisScript<Long> RESCALE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[2]) ~= ARGV[2] then return 0 end
+            local factor = math.exp(-tonumber(ARGV[1]) * (tonumber(ARGV[3]) - tonumber(ARGV[2])))
+            local entries = redis.call('HGETALL', KEYS[1])
+            for i = 1, #entries, 2 do
+              redis.call('HSET', KEYS[1], entries[i], tonumber(entries[i + 1]) * factor)
+            end
+            redis.call('SET', KEYS[2], ARGV[3])
+            return 1
+            """, Long.class);
+    // KEYS = weights, landmark; ARGV = landmark đã đọc, weight tối thiểu, id...
+    // So lại dưới lock của Redis: lượt xem vừa được instance khác cộng vào thì không bị xóa
+    private static final DefaultRedisScript<Long> PRUNE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[2]) ~= ARGV[1] then return 0 end
+            local removed = 0
+            for i = 3, #ARGV do
+              local weight = tonumber(redis.call('HGET', KEYS[1], ARGV[i]))
+              if weight and weight < tonumber(ARGV[2]) then
+                removed = removed + redis.call('HDEL', KEYS[1], ARGV[i])
+              end
+            end
+            return removed
+            """, Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private TrendingConfig trendingConfig;
+
+    private double lambda;
+    private ForwardDecayCounter counter;
+    // Lượt xem của instance này chưa được cộng vào WEIGHTS_KEY
+    private ForwardDecayCounter unsynced;
+    // Giữ counter và unsynced nhất quán khi thay counter bằng số liệu chung
+    private final Object syncLock = new Object();
+    // Không chứa null được nên sản phẩm không có category được lưu là chuỗi rỗng
+    private final Map<Long, String> categories = new ConcurrentHashMap<>();
+    private volatile Ranking ranking = new Ranking(List.of(), Map.of(), List.of());
+
+    private record Ranking(List<Long> products, Map<String, List<Long>> productsByCategory,
+                           List<TrendingCategoryDTO> categories) {
+    }
+
+    /**
+     * Reads the shared counts before the schedulers and the interaction buffer start, so nothing
+     * recorded locally can be overwritten by the restore.
+     */
+    @PostConstruct
+    void init() {
+        long halfLifeMs = trendingConfig.getHalfLifeHours() * 60 * 60 * 1000;
+        long now = System.currentTimeMillis();
+        lambda = Math.log(2) / halfLifeMs;
+        counter = new ForwardDecayCounter(halfLifeMs, now);
+        unsynced = new ForwardDecayCounter(halfLifeMs, now);
+        try {
+            int restored = pull(now);
+            if (restored > 0) {
+                refreshRanking();
+                logger.info("Restored trending counts of {} products", restored);
+            }
+        } catch (Exception e) {
+            logger.warn("Could not restore trending counts from Redis: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void recordAll(List<View> views) {
+        Set<Long> unknown = new LinkedHashSet<>();
+        synchronized (syncLock) {
+            for (View view : views) {
+                counter.add(view.productId(), view.viewedAt());
+                unsynced.add(view.productId(), view.viewedAt());
+                if (!categories.containsKey(view.productId())) {
+                    unknown.add(view.productId());
+                }
+            }
+        }
+        loadCategories(unknown);
+    }
+
+    @Override
+    public List<Long> topProductIds(String category, int limit) {
+        if (limit <= 0 || limit > trendingConfig.getMaxListSize()) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + trendingConfig.getMaxListSize());
+        }
+        Ranking current = ranking;
+        List<Long> products = category == null
+                ? current.products()
+                : current.productsByCategory().getOrDefault(category, List.of());
+        return products.size() <= limit ? products : products.subList(0, limit);
+    }
+
+    @Override
+    public List<TrendingCategoryDTO> topCategories(int limit) {
+        if (limit <= 0 || limit > trendingConfig.getMaxListSize()) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + trendingConfig.getMaxListSize());
+        }
+        List<TrendingCategoryDTO> current = ranking.categories();
+        return current.size() <= limit ? current : current.subList(0, limit);
+    }
+
+    @Scheduled(fixedDelayString = "${trending.refresh-interval-ms:2000}")
+    public void refreshRanking() {
+        Map<Long, Double> counts = counter.decayedCounts(System.currentTimeMillis(), trendingConfig.getMinCount());
+        List<Map.Entry<Long, Double>> sorted = new ArrayList<>(counts.entrySet());
+        sorted.sort(Map.Entry.<Long, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+
+        int maxSize = trendingConfig.getMaxListSize();
+        List<Long> products = new ArrayList<>(Math.min(sorted.size(), maxSize));
+        Map<String, List<Long>> productsByCategory = new HashMap<>();
+        Map<String, Double> categoryScores = new HashMap<>();
+        for (Map.Entry<Long, Double> entry : sorted) {
+            if (products.size() < maxSize) {
+                products.add(entry.getKey());
+            }
+            String category = categories.get(entry.getKey());
+            if (category == null || category.isEmpty()) {
+                continue;
+            }
+            categoryScores.merge(category, entry.getValue(), Double::sum);
+            List<Long> inCategory = productsByCategory.computeIfAbsent(category, c -> new ArrayList<>());
+            if (inCategory.size() < maxSize) {
+                inCategory.add(entry.getKey());
+            }
+        }
+        List<TrendingCategoryDTO> topCategories = new ArrayList<>(categoryScores.size());
+        categoryScores.forEach((category, score) -> topCategories.add(new TrendingCategoryDTO(category, score)));
+        topCategories.sort(Comparator.comparingDouble(TrendingCategoryDTO::getScore).reversed());
+        productsByCategory.replaceAll((category, ids) -> List.copyOf(ids));
+
+        ranking = new Ranking(List.copyOf(products), Map.copyOf(productsByCategory),
+                List.copyOf(topCategories.subList(0, Math.min(topCategories.size(), maxSize))));
+    }
+
+    /**
+     * Adds the views recorded here since the last sync to the shared weights, then replaces the
+     * local counts with the merged counts of every instance plus whatever was recorded meanwhile.
+     */
+    @Scheduled(initialDelayString = "${trending.snapshot-interval-ms:60000}",
+            fixedDelayString = "${trending.snapshot-interval-ms:60000}")
+    public void sync() {
+        long now = System.currentTimeMillis();
+        try {
+            push(now);
+            pull(now);
+        } catch (Exception e) {
+            logger.warn("Could not sync trending counts with Redis: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        try {
+            push(System.currentTimeMillis());
+        } catch (Exception e) {
+            logger.warn("Could not push trending counts to Redis: {}", e.getMessage());
+        }
+    }
+
+    private void push(long now) {
+        Map<Long, Double> counts;
+        synchronized (syncLock) {
+            counts = unsynced.decayedCounts(now, 0);
+            unsynced.restore(Map.of(), now);
+        }
+        List<Map.Entry<Long, Double>> entries = new ArrayList<>(counts.entrySet());
+        int pushed = 0;
+        try {
+            for (; pushed < entries.size(); pushed += PUSH_BATCH) {
+                List<Map.Entry<Long, Double>> chunk = entries.subList(pushed, Math.min(entries.size(), pushed + PUSH_BATCH));
+                Object[] args = new Object[2 + chunk.size() * 2];
+                args[0] = Double.toString(lambda);
+                args[1] = Long.toString(now);
+                int i = 2;
+                for (Map.Entry<Long, Double> entry : chunk) {
+                    args[i++] = entry.getKey().toString();
+                    args[i++] = entry.getValue().toString();
+                }
+                stringRedisTemplate.execute(PUSH_SCRIPT, List.of(WEIGHTS_KEY, LANDMARK_KEY), args);
+            }
+        } catch (RuntimeException e) {
+            // Phần chưa cộng được giữ lại cho lần sync sau
+            Map<Long, Double> remaining = new HashMap<>();
+            entries.subList(pushed, entries.size()).forEach(entry -> remaining.put(entry.getKey(), entry.getValue()));
+            synchronized (syncLock) {
+                unsynced.merge(remaining, now);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Replaces the local counts with the shared ones and returns how many products they hold.
+     * Shared weights that decayed below {@code minCount} are removed from Redis.
+     */
+    @SuppressWarnings("unchecked")
+    private int pull(long now) {
+        List<String> result = stringRedisTemplate.execute(PULL_SCRIPT,
+                List.of(WEIGHTS_KEY, LANDMARK_KEY, LEGACY_SNAPSHOT_KEY, LEGACY_SNAPSHOT_AT_KEY));
+        if (result == null || result.isEmpty()) {
+            return 0;
+        }
+        String landmarkValue = result.get(0);
+        long landmark = (long) Double.parseDouble(landmarkValue);
+        if (lambda * (now - landmark) > SHARED_RESCALE_EXPONENT) {
+            stringRedisTemplate.execute(RESCALE_SCRIPT, List.of(WEIGHTS_KEY, LANDMARK_KEY),
+                    Double.toString(lambda), landmarkValue, Long.toString(now));
+            return pull(now);
+        }
+
+        double minWeight = trendingConfig.getMinCount() * Math.exp(lambda * (now - landmark));
+        Map<Long, Double> weights = new HashMap<>(result.size());
+        List<String> decayed = new ArrayList<>();
+        for (int i = 1; i + 1 < result.size(); i += 2) {
+            double weight = Double.parseDouble(result.get(i + 1));
+            if (weight < minWeight) {
+                decayed.add(result.get(i));
+            } else {
+                weights.put(Long.valueOf(result.get(i)), weight);
+            }
+        }
+        for (int from = 0; from < decayed.size(); from += PUSH_BATCH) {
+            List<String> chunk = decayed.subList(from, Math.min(decayed.size(), from + PUSH_BATCH));
+            Object[] args = new Object[2 + chunk.size()];
+            args[0] = landmarkValue;
+            args[1] = Double.toString(minWeight);
+            for (int i = 0; i < chunk.size(); i++) {
+                args[2 + i] = chunk.get(i);
+            }
+            stringRedisTemplate.execute(PRUNE_SCRIPT, List.of(WEIGHTS_KEY, LANDMARK_KEY), args);
+        }
+
+        synchronized (syncLock) {
+            counter.restore(weights, landmark);
+            counter.merge(unsynced.decayedCounts(now, 0), now);
+        }
+        Set<Long> unknown = new LinkedHashSet<>();
+        for (Long productId : weights.keySet()) {
+            if (!categories.containsKey(productId)) {
+                unknown.add(productId);
+            }
+        }
+        loadCategories(unknown);
+        return weights.size();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getType() == ProductChangedEvent.Type.DELETED) {
+            synchronized (syncLock) {
+                counter.remove(event.getProductId());
+                unsynced.remove(event.getProductId());
+            }
+            categories.remove(event.getProductId());
+            try {
+                stringRedisTemplate.opsForHash().delete(WEIGHTS_KEY, event.getProductId().toString());
+            } catch (Exception e) {
+                logger.warn("Could not remove product {} from trending counts: {}", event.getProductId(), e.getMessage());
+            }
+        } else if (event.getType() == ProductChangedEvent.Type.UPDATED) {
+            // Category có thể đã đổi, nạp lại ở lượt xem kế tiếp
+            categories.remove(event.getProductId());
+        }
+    }
+
+    private void loadCategories(Set<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(productIds);
+        for (int from = 0; from < ids.size(); from += CATEGORY_LOAD_BATCH) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + CATEGORY_LOAD_BATCH));
+            for (ProductCategoryDTO product : productRepository.findCategoriesByIds(chunk)) {
+                categories.put(product.getId(), product.getCategory() == null ? "" : product.getCategory());
+            }
+        }
+    }
+}
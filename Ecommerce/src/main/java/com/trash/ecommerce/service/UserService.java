@@ -1,7 +1,9 @@
 package com.trash.ecommerce.service;
 
 import java.util.List;
+import java.util.Set;
 
+import com.trash.ecommerce.dto.CursorPageDTO;
 import com.trash.ecommerce.dto.UserLoginRequestDTO;
 import com.trash.ecommerce.dto.UserLoginResponseDTO;
 import com.trash.ecommerce.dto.UserProfileDTO;
@@ -13,6 +15,7 @@ import jakarta.servlet.http.HttpServletRequest;
 
 public interface UserService {
     public List<UserProfileDTO> findAllUser(int noPage, int sizePage);
+    public CursorPageDTO<UserProfileDTO> scrollUsers(String cursor, int size);
     public UserRegisterResponseDTO register(UserRegisterRequestDTO user);
     public UserLoginResponseDTO login(UserLoginRequestDTO user);
     public UserResponseDTO logout(Long userId);
@@ -20,6 +23,7 @@ public interface UserService {
     public UserProfileDTO getOwnProfile(Long userId);
     public UserResponseDTO  updateUser(UserUpdateRequestDTO  user, Long id, Long userId);
     public void deleteUser(Long id, String token);
+    public UserProfileDTO updateRoles(Long id, Set<String> roleNames);
     public UserResponseDTO resetPassword(String email);
     public boolean verifyOTP(String email, String OTP);
     public UserResponseDTO changePassword(String email, String newPassword, String otp);
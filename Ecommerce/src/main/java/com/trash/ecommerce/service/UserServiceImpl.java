@@ -2,7 +2,9 @@ package com.trash.ecommerce.service;
 
 import java.util.Date;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -35,6 +37,7 @@ import com.trash.ecommerce.repository.UserRepository;
 
 @Service
 public class UserServiceImpl implements UserService {
+    private static final int MAX_SCROLL_SIZE = 100;
 
     @Autowired
     private UserRepository userRepository;
@@ -62,6 +65,32 @@ public class UserServiceImpl implements UserService {
         return users;
     }
 
+    @Override
+    public CursorPageDTO<UserProfileDTO> scrollUsers(String cursor, int size) {
+        if (size <= 0 || size > MAX_SCROLL_SIZE) {
+            throw new IllegalArgumentException("Size must be between 1 and " + MAX_SCROLL_SIZE);
+        }
+        PageCursor after = PageCursor.decode(cursor);
+        // Lấy dư 1 dòng để biết còn trang sau hay không, không cần COUNT(*)
+        List<Long> ids = userRepository.findIdPageAfterId(after == null ? 0L : after.getId(), PageRequest.of(0, size + 1));
+        boolean hasNext = ids.size() > size;
+        List<Long> pageIds = hasNext ? ids.subList(0, size) : ids;
+        if (pageIds.isEmpty()) {
+            return new CursorPageDTO<>(List.of(), null);
+        }
+        // Không nạp entity Users: roles và cart của nó đều được load riêng cho từng user
+        Map<Long, UserProfileDTO> page = new LinkedHashMap<>();
+        for (UserRoleRowDTO row : userRepository.findProfileRowsByIdIn(pageIds)) {
+            UserProfileDTO user = page.computeIfAbsent(row.getId(),
+                    id -> new UserProfileDTO(id, row.getEmail(), row.getAddress(), new HashSet<>()));
+            if (row.getRoleName() != null) {
+                user.getRoles().add(row.getRoleName());
+            }
+        }
+        String nextCursor = hasNext ? new PageCursor("", pageIds.get(size - 1)).encode() : null;
+        return new CursorPageDTO<>(List.copyOf(page.values()), nextCursor);
+    }
+
     @Override
     public UserRegisterResponseDTO register(UserRegisterRequestDTO user) {
         Users tmpUser = new Users();
@@ -161,7 +190,9 @@ public class UserServiceImpl implements UserService {
         Users targetUser = userRepository.findById(id)
                 .orElseThrow(() -> new UsernameNotFoundException("Target user not found"));
 
+        boolean emailChanged = false;
         if (user.getEmail() != null && !user.getEmail().isEmpty()) {
+            emailChanged = !user.getEmail().equals(targetUser.getEmail());
             targetUser.setEmail(user.getEmail());
         }
 
@@ -171,6 +202,10 @@ public class UserServiceImpl implements UserService {
 
 
         userRepository.save(targetUser);
+        if (emailChanged) {
+            // Subject của token cũ là email cũ
+            jwtService.revokeAllTokens(id);
+        }
         return new UserResponseDTO("Update thành công");
     }
 
@@ -205,6 +240,32 @@ public class UserServiceImpl implements UserService {
         }
         
         userRepository.delete(user);
+        redisTemplate.delete("refresh:" + id);
+        jwtService.revokeAllTokens(id);
+    }
+
+    @Override
+    @Transactional
+    public UserProfileDTO updateRoles(Long id, Set<String> roleNames) {
+        if (roleNames == null || roleNames.isEmpty()) {
+            throw new IllegalArgumentException("User must keep at least one role");
+        }
+        Users user = userRepository.findById(id)
+                .orElseThrow(() -> new UsernameNotFoundException("Target user not found"));
+        Set<Role> roles = new HashSet<>();
+        for (String roleName : roleNames) {
+            try {
+                roles.add(roleService.findRoleByName(roleName));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Unknown role: " + roleName);
+            }
+        }
+        user.getRoles().clear();
+        user.getRoles().addAll(roles);
+        userRepository.save(user);
+        // Quyền nằm trong claim của token: token cũ phải bị từ chối, refresh sẽ lấy quyền mới từ DB
+        jwtService.revokeAllTokens(id);
+        return userMapper.mapToUserProfileDTO(user);
     }
 
     @Override
@@ -245,6 +306,7 @@ public class UserServiceImpl implements UserService {
         user.setPassword(newPassword);
         userRepository.save(user);
         redisTemplate.delete(key);
+        jwtService.revokeAllTokens(user.getId());
         return new UserResponseDTO("Change password successfully");
     }
 
@@ -0,0 +1,96 @@
+package com.trash.ecommerce.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.trash.ecommerce.config.ProductCacheConfig;
+import com.trash.ecommerce.config.RedisConfig;
+import com.trash.ecommerce.dto.ProductDetailsResponseDTO;
+import com.trash.ecommerce.support.EmbeddedRedis;
+
+class ProductDetailsCacheTest {
+
+	private static EmbeddedRedis redis;
+
+	private ProductDetailsCache cache;
+
+	@BeforeAll
+	static void startRedis() {
+		redis = new EmbeddedRedis();
+	}
+
+	@AfterAll
+	static void stopRedis() throws Exception {
+		redis.close();
+	}
+
+	@BeforeEach
+	void setUp() {
+		redis.flush();
+		cache = newCache();
+	}
+
+	// Mỗi cache là một instance riêng: L1 riêng, chung Redis
+	private static ProductDetailsCache newCache() {
+		ProductDetailsCache cache = new ProductDetailsCache();
+		ReflectionTestUtils.setField(cache, "redisTemplate", new RedisConfig().redisTemplate(redis.connectionFactory()));
+		ReflectionTestUtils.setField(cache, "productCacheConfig", new ProductCacheConfig());
+		cache.init();
+		return cache;
+	}
+
+	@Test
+	void loadedValueIsServedFromRedisByOtherInstances() {
+		cache.get(1L, () -> product(1L, 10));
+		AtomicInteger loads = new AtomicInteger();
+
+		ProductDetailsResponseDTO other = newCache().get(1L, () -> {
+			loads.incrementAndGet();
+			return product(1L, 99);
+		});
+
+		assertThat(other.getQuantity()).isEqualTo(10);
+		assertThat(loads).hasValue(0);
+	}
+
+	@Test
+	void valueLoadedBeforeAConcurrentEvictIsNotWrittenBack() {
+		// Loader đọc DB xong (giá trị cũ) thì một transaction khác commit và evict
+		ProductDetailsResponseDTO stale = cache.get(1L, () -> {
+			newCache().evict(1L);
+			cache.evict(1L);
+			return product(1L, 10);
+		});
+		assertThat(stale.getQuantity()).isEqualTo(10);
+		assertThat(redis.template().hasKey("product:details:1")).isFalse();
+
+		ProductDetailsResponseDTO fresh = cache.get(1L, () -> product(1L, 9));
+		assertThat(fresh.getQuantity()).isEqualTo(9);
+		assertThat(newCache().get(1L, () -> product(1L, -1)).getQuantity()).isEqualTo(9);
+	}
+
+	@Test
+	void evictAfterTheVersionKeyExpiredStillBlocksTheStaleWrite() {
+		cache.evict(1L);
+		ProductDetailsResponseDTO stale = cache.get(1L, () -> {
+			redis.template().delete("product:details-version:1");
+			newCache().evict(1L);
+			return product(1L, 10);
+		});
+
+		assertThat(stale.getQuantity()).isEqualTo(10);
+		assertThat(redis.template().hasKey("product:details:1")).isFalse();
+	}
+
+	private static ProductDetailsResponseDTO product(Long id, long quantity) {
+		return new ProductDetailsResponseDTO(id, "Product " + id, BigDecimal.TEN, quantity, "Misc", null, null, 0, 0.0);
+	}
+}
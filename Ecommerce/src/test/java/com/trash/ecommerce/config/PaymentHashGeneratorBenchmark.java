@@ -0,0 +1,99 @@
+package com.trash.ecommerce.config;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Signing a payment URL and verifying an IPN with {@link PaymentHashGenerator}, next to the
+ * per-call {@code Mac.getInstance} + {@code String.format} signer it replaced.
+ * Run through {@link PaymentHashGeneratorTest} with {@code mvn test -Pbenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PaymentHashGeneratorBenchmark {
+
+	static final String SECRET = "JKNQ2XN6T0DN6YG4PO3FQ8JZ7M2VX1AB";
+
+	// Query của một link thanh toán thật, đã sắp xếp theo tên tham số
+	static final String PAYMENT_QUERY = "vnp_Amount=125000000&vnp_Command=pay&vnp_CreateDate=20261017103000"
+			+ "&vnp_CurrCode=VND&vnp_ExpireDate=20261017104500&vnp_IpAddr=203.113.152.7&vnp_Locale=vn"
+			+ "&vnp_OrderInfo=.&vnp_OrderType=100000&vnp_ReturnUrl=https%3A%2F%2Fshop.example.vn%2Fpayment%2Freturn"
+			+ "&vnp_TmnCode=TRASH001&vnp_TxnRef=48213&vnp_Version=2.1.0";
+
+	private PaymentHashGenerator generator;
+	private Map<String, String> ipnFields;
+	private String ipnHash;
+
+	@Setup
+	public void setUp() {
+		generator = newGenerator();
+		ipnFields = ipnFields();
+		ipnHash = generator.hashAllFields(ipnFields);
+	}
+
+	@Benchmark
+	public String signPaymentUrl() {
+		return generator.HmacSHA512(SECRET, PAYMENT_QUERY);
+	}
+
+	@Benchmark
+	public boolean verifyIpn() {
+		return generator.verify(ipnFields, ipnHash);
+	}
+
+	@Benchmark
+	public String signPaymentUrlPerCallMac() throws Exception {
+		return referenceHmac(SECRET, PAYMENT_QUERY);
+	}
+
+	static PaymentHashGenerator newGenerator() {
+		VnPayConfig config = new VnPayConfig();
+		config.setHashSecret(SECRET);
+		PaymentHashGenerator generator = new PaymentHashGenerator();
+		ReflectionTestUtils.setField(generator, "vnPayConfig", config);
+		generator.init();
+		return generator;
+	}
+
+	static Map<String, String> ipnFields() {
+		Map<String, String> fields = new TreeMap<>();
+		fields.put("vnp_Amount", "125000000");
+		fields.put("vnp_BankCode", "NCB");
+		fields.put("vnp_BankTranNo", "VNP14588790");
+		fields.put("vnp_CardType", "ATM");
+		fields.put("vnp_OrderInfo", ".");
+		fields.put("vnp_PayDate", "20261017103512");
+		fields.put("vnp_ResponseCode", "00");
+		fields.put("vnp_TmnCode", "TRASH001");
+		fields.put("vnp_TransactionNo", "14588790");
+		fields.put("vnp_TransactionStatus", "00");
+		fields.put("vnp_TxnRef", "48213");
+		return fields;
+	}
+
+	// Cách ký cũ: tạo và init Mac mỗi lần, hex bằng String.format
+	static String referenceHmac(String secret, String data) throws Exception {
+		Mac hmac = Mac.getInstance("HmacSHA512");
+		hmac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA512"));
+		StringBuilder hex = new StringBuilder();
+		for (byte b : hmac.doFinal(data.getBytes(StandardCharsets.UTF_8))) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+}
@@ -0,0 +1,61 @@
+package com.trash.ecommerce.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+class PaymentHashGeneratorTest {
+	private static final Logger logger = LoggerFactory.getLogger(PaymentHashGeneratorTest.class);
+
+	@Test
+	void signatureMatchesPerCallMacAndVerifiesIpn() throws Exception {
+		PaymentHashGenerator generator = PaymentHashGeneratorBenchmark.newGenerator();
+		String secret = PaymentHashGeneratorBenchmark.SECRET;
+		String query = PaymentHashGeneratorBenchmark.PAYMENT_QUERY;
+
+		assertThat(generator.HmacSHA512(secret, query))
+				.isEqualTo(PaymentHashGeneratorBenchmark.referenceHmac(secret, query))
+				.isEqualTo(generator.HmacSHA512(secret, query));
+		assertThat(generator.HmacSHA512("other-secret", query))
+				.isEqualTo(PaymentHashGeneratorBenchmark.referenceHmac("other-secret", query));
+
+		Map<String, String> fields = PaymentHashGeneratorBenchmark.ipnFields();
+		String hash = generator.hashAllFields(fields);
+		assertThat(generator.verify(fields, hash)).isTrue();
+		assertThat(generator.verify(fields, hash.toUpperCase())).isFalse();
+		assertThat(generator.verify(fields, null)).isFalse();
+		Map<String, String> tampered = new TreeMap<>(fields);
+		tampered.put("vnp_Amount", "1000");
+		assertThat(generator.verify(tampered, hash)).isFalse();
+	}
+
+	@Test
+	@Tag("benchmark")
+	void benchmarkSigningAndVerification() throws Exception {
+		Collection<RunResult> results = new Runner(new OptionsBuilder()
+				.include(PaymentHashGeneratorBenchmark.class.getName())
+				.forks(1)
+				.warmupIterations(3)
+				.warmupTime(TimeValue.seconds(1))
+				.measurementIterations(5)
+				.measurementTime(TimeValue.seconds(1))
+				.build()).run();
+
+		assertThat(results).hasSize(3);
+		for (RunResult result : results) {
+			logger.info("{}: {} ns/op", result.getParams().getBenchmark(),
+					String.format("%.0f", result.getPrimaryResult().getScore()));
+		}
+	}
+}
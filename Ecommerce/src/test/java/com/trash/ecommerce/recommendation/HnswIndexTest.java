@@ -0,0 +1,117 @@
+package com.trash.ecommerce.recommendation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Recall and latency of {@link HnswIndex} against a brute-force scan of the same vectors.
+ * Builds a 20k-vector index, so it only runs with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class HnswIndexTest {
+	private static final Logger logger = LoggerFactory.getLogger(HnswIndexTest.class);
+
+	private static final int SIZE = 20_000;
+	private static final int DIMENSIONS = 64;
+	private static final int QUERIES = 200;
+	private static final int K = 10;
+
+	@Test
+	void searchMatchesBruteForceAndSkipsRemovedIds() {
+		Random random = new Random(7);
+		float[][] vectors = clustered(random, SIZE);
+		HnswIndex index = new HnswIndex(DIMENSIONS, 16, 100, 42);
+		for (int i = 0; i < SIZE; i++) {
+			index.add(i, vectors[i]);
+		}
+		float[][] queries = clustered(random, QUERIES);
+
+		long bruteNanos = 0;
+		long annNanos = 0;
+		int hits = 0;
+		for (float[] query : queries) {
+			long start = System.nanoTime();
+			Set<Long> expected = bruteForce(vectors, query, K);
+			bruteNanos += System.nanoTime() - start;
+
+			start = System.nanoTime();
+			List<Long> found = index.search(query, K, 100);
+			annNanos += System.nanoTime() - start;
+			for (Long id : found) {
+				if (expected.contains(id)) {
+					hits++;
+				}
+			}
+		}
+		double recall = hits / (double) (QUERIES * K);
+		logger.info("HNSW recall@{}={}, {} us/query vs brute force {} us/query", K, String.format("%.3f", recall),
+				annNanos / 1_000 / QUERIES, bruteNanos / 1_000 / QUERIES);
+		assertThat(recall).isGreaterThanOrEqualTo(0.9);
+
+		for (long id = 0; id < SIZE; id += 2) {
+			index.remove(id);
+		}
+		assertThat(index.size()).isEqualTo(SIZE / 2);
+		for (float[] query : queries) {
+			assertThat(index.search(query, K, 100)).hasSize(K).allMatch(id -> id % 2 == 1);
+		}
+	}
+
+	// Vector đơn vị quanh 100 tâm cụm, gần với embedding sản phẩm hơn là nhiễu đều
+	private static float[][] clustered(Random random, int count) {
+		Random centers = new Random(1);
+		float[][] centroids = new float[100][DIMENSIONS];
+		for (float[] centroid : centroids) {
+			for (int d = 0; d < DIMENSIONS; d++) {
+				centroid[d] = (float) centers.nextGaussian();
+			}
+		}
+		float[][] out = new float[count][];
+		for (int i = 0; i < count; i++) {
+			float[] centroid = centroids[random.nextInt(centroids.length)];
+			float[] v = new float[DIMENSIONS];
+			double norm = 0;
+			for (int d = 0; d < DIMENSIONS; d++) {
+				v[d] = centroid[d] + (float) random.nextGaussian();
+				norm += v[d] * v[d];
+			}
+			float inv = (float) (1 / Math.sqrt(norm));
+			for (int d = 0; d < DIMENSIONS; d++) {
+				v[d] *= inv;
+			}
+			out[i] = v;
+		}
+		return out;
+	}
+
+	private static Set<Long> bruteForce(float[][] vectors, float[] query, int k) {
+		PriorityQueue<float[]> top = new PriorityQueue<>((a, b) -> Float.compare(a[0], b[0]));
+		for (int i = 0; i < vectors.length; i++) {
+			float dot = 0f;
+			for (int d = 0; d < DIMENSIONS; d++) {
+				dot += query[d] * vectors[i][d];
+			}
+			if (top.size() < k) {
+				top.add(new float[] {dot, i});
+			} else if (dot > top.peek()[0]) {
+				top.poll();
+				top.add(new float[] {dot, i});
+			}
+		}
+		Set<Long> ids = new HashSet<>();
+		for (float[] entry : top) {
+			ids.add((long) entry[1]);
+		}
+		return ids;
+	}
+}
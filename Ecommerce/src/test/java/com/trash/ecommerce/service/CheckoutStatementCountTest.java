@@ -0,0 +1,147 @@
+package com.trash.ecommerce.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import com.trash.ecommerce.dto.OrderResponseDTO;
+import com.trash.ecommerce.entity.Order;
+import com.trash.ecommerce.entity.OrderStatus;
+import com.trash.ecommerce.mapper.OrderMapper;
+import com.trash.ecommerce.support.StatementCounter;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Round trips of a 50-line checkout against H2, counted below Hibernate and JdbcTemplate.
+ * The count must not grow with the number of cart lines.
+ */
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@Import({OrderServiceImpl.class, InventoryServiceImpl.class, CheckoutStatementCountTest.CountingDataSource.class})
+class CheckoutStatementCountTest {
+
+	private static final int LINES = 50;
+
+	@TestConfiguration
+	static class CountingDataSource {
+		@Bean
+		StatementCounter statementCounter() {
+			return new StatementCounter();
+		}
+
+		@Bean
+		static BeanPostProcessor countingDataSourcePostProcessor(@Autowired StatementCounter statementCounter) {
+			return new BeanPostProcessor() {
+				@Override
+				public Object postProcessAfterInitialization(Object bean, String beanName) {
+					return bean instanceof DataSource dataSource ? statementCounter.wrap(dataSource) : bean;
+				}
+			};
+		}
+	}
+
+	@Autowired
+	private OrderService orderService;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	@Autowired
+	private EntityManager entityManager;
+	@Autowired
+	private StatementCounter statementCounter;
+
+	@MockitoBean
+	private PaymentService paymentService;
+	@MockitoBean
+	private InvoiceService invoiceService;
+	@MockitoBean
+	private HotStockService hotStockService;
+	@MockitoBean
+	private OrderMapper orderMapper;
+
+	@BeforeEach
+	void seedCart() {
+		jdbcTemplate.update("INSERT INTO payment_method (id, method_name) VALUES (1, 'COD'), (2, 'VNPAY')");
+		jdbcTemplate.update("INSERT INTO users (id, email, password, address) VALUES (1, 'buyer@example.vn', 'x', '1 Le Loi')");
+		jdbcTemplate.update("INSERT INTO cart (id, user_id) VALUES (1, 1)");
+		for (long id = 1; id <= LINES; id++) {
+			jdbcTemplate.update("INSERT INTO product (id, product_name, price, quantity, hot_sku, rating_count, rating) "
+					+ "VALUES (?, ?, 10000, 100, FALSE, 0, 0)", id, "Product " + id);
+			jdbcTemplate.update("INSERT INTO cart_items (cart_id, product_id, quantity) VALUES (1, ?, ?)", id, id % 3 + 1);
+		}
+		given(hotStockService.isHot(anyLong())).willReturn(false);
+		// Như PaymentServiceImpl: link được ghi lên order và flush cùng transaction
+		given(paymentService.createPaymentUrl(any(Order.class), any())).willAnswer(invocation -> {
+			Order order = invocation.getArgument(0);
+			order.setPaymentUrl("https://sandbox.vnpayment.vn/pay?vnp_TxnRef=" + order.getId());
+			order.setPaymentUrlExpiresAt(new Date());
+			return order.getPaymentUrl();
+		});
+		entityManager.flush();
+		entityManager.clear();
+		statementCounter.reset();
+	}
+
+	@Test
+	void vnPayCheckoutOfFiftyLinesTakesTenStatements() {
+		OrderResponseDTO response = orderService.createMyOrder(1L, 2L, "127.0.0.1");
+		entityManager.flush();
+		List<String> statements = statementCounter.executed();
+
+		assertThat(response.getStatus()).isEqualTo(OrderStatus.PENDING_PAYMENT);
+		// address, cart lines, payment method, order, order_items batch, locked SELECT, stock UPDATE,
+		// reservation batch, cart delete, payment URL update
+		assertThat(statements).as(String.join("\n", statements)).hasSize(10);
+		assertThat(count("SELECT quantity FROM product WHERE id = 7")).isEqualTo(100 - (7 % 3 + 1));
+		assertThat(count("SELECT COUNT(*) FROM order_items")).isEqualTo(LINES);
+		assertThat(count("SELECT COUNT(*) FROM stock_reservation WHERE status = 'HELD'")).isEqualTo(LINES);
+		assertThat(count("SELECT COUNT(*) FROM cart_items")).isZero();
+	}
+
+	@Test
+	void codCheckoutOfFiftyLinesTakesEightStatements() {
+		orderService.createMyOrder(1L, 1L, "127.0.0.1");
+		entityManager.flush();
+		List<String> statements = statementCounter.executed();
+
+		// Không có reservation và payment URL
+		assertThat(statements).as(String.join("\n", statements)).hasSize(8);
+		assertThat(count("SELECT COUNT(*) FROM order_items")).isEqualTo(LINES);
+		assertThat(count("SELECT COUNT(*) FROM stock_reservation")).isZero();
+	}
+
+	@Test
+	void hotProductIsNotRejectedOnItsStaleMySqlQuantity() {
+		// Redis còn hàng, product.quantity chưa được ghi bù
+		jdbcTemplate.update("UPDATE product SET quantity = 0, hot_sku = TRUE WHERE id = 1");
+		given(hotStockService.isHot(1L)).willReturn(true);
+		given(hotStockService.decrement(any())).willReturn(Map.of());
+
+		orderService.createMyOrder(1L, 1L, "127.0.0.1");
+
+		verify(hotStockService).decrement(Map.of(1L, 2L));
+		assertThat(count("SELECT COUNT(*) FROM order_items")).isEqualTo(LINES);
+	}
+
+	private long count(String sql) {
+		return jdbcTemplate.queryForObject(sql, Long.class);
+	}
+}
@@ -0,0 +1,312 @@
+package com.trash.ecommerce.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.trash.ecommerce.dto.StockShortage;
+import com.trash.ecommerce.exception.InsufficientStockException;
+import com.trash.ecommerce.support.EmbeddedRedis;
+import com.trash.ecommerce.support.H2Database;
+
+class HotStockServiceImplTest {
+	private static final Logger logger = LoggerFactory.getLogger(HotStockServiceImplTest.class);
+
+	private static EmbeddedRedis redis;
+	private static H2Database db;
+
+	private HotStockServiceImpl service;
+
+	@BeforeAll
+	static void startInfrastructure() {
+		redis = new EmbeddedRedis();
+		db = new H2Database("hotstock");
+	}
+
+	@AfterAll
+	static void stopInfrastructure() throws Exception {
+		redis.close();
+	}
+
+	@BeforeEach
+	void setUp() {
+		redis.flush();
+		db.execute(
+				"CREATE TABLE product (id BIGINT PRIMARY KEY, product_name VARCHAR(500), quantity BIGINT, hot_sku BOOLEAN NOT NULL DEFAULT FALSE)",
+				"CREATE TABLE hot_stock_writeback (claim_id VARCHAR(36) NOT NULL, product_id BIGINT NOT NULL, "
+						+ "applied_at TIMESTAMP NOT NULL, PRIMARY KEY (claim_id, product_id))",
+				"INSERT INTO product VALUES (1, 'Flash sale A', 500, TRUE), (2, 'Flash sale B', 600, TRUE), (3, 'Regular', 10, FALSE)");
+		service = newService();
+		service.refreshHotIds();
+	}
+
+	@AfterEach
+	void tearDown() {
+		db.drop();
+	}
+
+	// Một instance mới trên cùng Redis/MySQL, như sau khi restart
+	private static HotStockServiceImpl newService() {
+		HotStockServiceImpl service = new HotStockServiceImpl();
+		ReflectionTestUtils.setField(service, "stringRedisTemplate", redis.template());
+		ReflectionTestUtils.setField(service, "jdbcTemplate", db.jdbcTemplate());
+		ReflectionTestUtils.setField(service, "transactionManager", db.transactionManager());
+		ReflectionTestUtils.setField(service, "eventPublisher", (ApplicationEventPublisher) event -> { });
+		ReflectionTestUtils.setField(service, "claimLeaseMs", 30_000L);
+		return service;
+	}
+
+	@Test
+	void decrementTakesEveryLineOrNone() {
+		db.execute("UPDATE product SET quantity = 3 WHERE id = 2");
+
+		assertThatThrownBy(() -> service.decrement(Map.of(1L, 10L, 2L, 5L)))
+				.isInstanceOfSatisfying(InsufficientStockException.class, e -> assertThat(e.getShortages())
+						.extracting(StockShortage::getProductId, StockShortage::getRequested, StockShortage::getAvailable)
+						.containsExactly(tuple(2L, 5L, 3L)));
+		assertThat(counter(1)).isEqualTo(500);
+		assertThat(counter(2)).isEqualTo(3);
+
+		service.decrement(Map.of(1L, 10L, 2L, 3L));
+		assertThat(counter(1)).isEqualTo(490);
+		assertThat(counter(2)).isZero();
+		service.reconcile();
+		assertThat(quantity(1)).isEqualTo(490);
+		assertThat(quantity(2)).isZero();
+	}
+
+	@Test
+	void linesOfProductsThatAreNotHotAreLeftToMySql() {
+		assertThat(service.decrement(Map.of(1L, 1L, 3L, 2L))).containsExactly(Map.entry(3L, 2L));
+		assertThat(service.increment(Map.of(1L, 1L, 3L, 2L))).containsExactly(Map.entry(3L, 2L));
+
+		assertThat(counter(1)).isEqualTo(500);
+		assertThat(redis.template().hasKey("stock:hot:3")).isFalse();
+		assertThat(quantity(3)).isEqualTo(10);
+	}
+
+	@Test
+	void rollbackGivesTheDecrementBack() {
+		TransactionTemplate transaction = new TransactionTemplate(db.transactionManager());
+
+		assertThatThrownBy(() -> transaction.executeWithoutResult(status -> {
+			service.decrement(Map.of(1L, 10L, 2L, 20L));
+			assertThat(counter(1)).isEqualTo(490);
+			throw new IllegalStateException("checkout failed after the stock was taken");
+		})).isInstanceOf(IllegalStateException.class);
+
+		assertThat(counter(1)).isEqualTo(500);
+		assertThat(counter(2)).isEqualTo(600);
+		service.reconcile();
+		assertThat(quantity(1)).isEqualTo(500);
+		assertThat(quantity(2)).isEqualTo(600);
+	}
+
+	@Test
+	void rollbackAfterHotWasTurnedOffGivesTheStockBackInMySql() {
+		// Counter có sẵn: nếu được tạo trong transaction, row lock của nó sẽ bắt setHot chờ tới lúc rollback
+		service.decrement(Map.of(1L, 1L));
+		TransactionTemplate transaction = new TransactionTemplate(db.transactionManager());
+
+		assertThatThrownBy(() -> transaction.executeWithoutResult(status -> {
+			service.decrement(Map.of(1L, 10L));
+			// Admin tắt hot-SKU trong lúc checkout chưa xong: delta -11 được gộp vào MySQL
+			Thread admin = new Thread(() -> newService().setHot(1L, false));
+			admin.start();
+			try {
+				admin.join(10_000);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			assertThat(quantity(1)).isEqualTo(489);
+			throw new IllegalStateException("checkout failed after the stock was taken");
+		})).isInstanceOf(IllegalStateException.class);
+
+		assertThat(redis.template().hasKey("stock:hot:1")).isFalse();
+		assertThat(quantity(1)).isEqualTo(499);
+	}
+
+	@Test
+	void concurrentCheckoutsNeverOversellAndWriteBackEveryUnit() throws Exception {
+		// Mỗi đơn lấy 1 của A và 2 của B: B (600) hết sau 300 đơn dù A còn hàng
+		Map<Long, Long> order = Map.of(1L, 1L, 2L, 2L);
+		AtomicInteger sold = new AtomicInteger();
+		AtomicInteger rejected = new AtomicInteger();
+		AtomicBoolean running = new AtomicBoolean(true);
+		ExecutorService pool = Executors.newFixedThreadPool(17);
+		Future<?> reconciler = pool.submit(() -> {
+			while (running.get()) {
+				service.reconcile();
+			}
+		});
+		List<Future<?>> buyers = new ArrayList<>();
+		for (int t = 0; t < 16; t++) {
+			buyers.add(pool.submit(() -> {
+				for (int i = 0; i < 40; i++) {
+					try {
+						service.decrement(order);
+						sold.incrementAndGet();
+					} catch (InsufficientStockException e) {
+						rejected.incrementAndGet();
+					}
+				}
+			}));
+		}
+		for (Future<?> buyer : buyers) {
+			buyer.get(60, TimeUnit.SECONDS);
+		}
+		running.set(false);
+		reconciler.get(60, TimeUnit.SECONDS);
+		pool.shutdown();
+		service.reconcile();
+
+		assertThat(sold.get()).isEqualTo(300);
+		assertThat(rejected.get()).isEqualTo(16 * 40 - 300);
+		assertThat(counter(1)).isEqualTo(200);
+		assertThat(counter(2)).isZero();
+		assertThat(quantity(1)).isEqualTo(200);
+		assertThat(quantity(2)).isZero();
+		assertThat(redis.template().opsForZSet().size("stock:hot:inflight")).isZero();
+	}
+
+	@Test
+	void failedWriteBackKeepsTheClaimAndReplayAppliesItOnce() {
+		service.decrement(Map.of(1L, 5L, 2L, 7L));
+		db.execute("ALTER TABLE hot_stock_writeback RENAME TO hot_stock_writeback_down");
+		service.reconcile();
+		assertThat(quantity(1)).isEqualTo(500);
+		assertThat(redis.template().opsForZSet().size("stock:hot:inflight")).isEqualTo(1);
+
+		db.execute("ALTER TABLE hot_stock_writeback_down RENAME TO hot_stock_writeback");
+		HotStockServiceImpl restarted = newService();
+		restarted.replayInFlight();
+		restarted.replayInFlight();
+		restarted.reconcile();
+
+		assertThat(quantity(1)).isEqualTo(495);
+		assertThat(quantity(2)).isEqualTo(593);
+		assertThat(redis.template().opsForZSet().size("stock:hot:inflight")).isZero();
+	}
+
+	@Test
+	void replayAfterCommitDoesNotApplyAgain() {
+		// Crash sau khi MySQL commit nhưng trước khi claim bị xóa khỏi Redis: A đã ghi, B chưa
+		redis.template().opsForHash().put("stock:hot:inflight:claim-1", "1", "-4");
+		redis.template().opsForHash().put("stock:hot:inflight:claim-1", "2", "-6");
+		redis.template().opsForZSet().add("stock:hot:inflight", "claim-1", System.currentTimeMillis() + 30_000);
+		db.execute("UPDATE product SET quantity = quantity - 4 WHERE id = 1",
+				"INSERT INTO hot_stock_writeback VALUES ('claim-1', 1, CURRENT_TIMESTAMP)");
+
+		newService().replayInFlight();
+
+		assertThat(quantity(1)).isEqualTo(496);
+		assertThat(quantity(2)).isEqualTo(594);
+		assertThat(redis.template().hasKey("stock:hot:inflight:claim-1")).isFalse();
+	}
+
+	@Test
+	void turningHotOffFoldsInFlightAndPendingDeltas() {
+		service.decrement(Map.of(1L, 3L));
+		redis.template().opsForHash().put("stock:hot:inflight:claim-2", "1", "-10");
+		redis.template().opsForZSet().add("stock:hot:inflight", "claim-2", System.currentTimeMillis() + 30_000);
+
+		service.setHot(1L, false);
+		assertThat(quantity(1)).isEqualTo(487);
+		assertThat(redis.template().hasKey("stock:hot:1")).isFalse();
+
+		// Claim vẫn được replay sau đó nhưng marker chặn việc trừ lần hai
+		newService().replayInFlight();
+		assertThat(quantity(1)).isEqualTo(487);
+	}
+
+	@Test
+	@Tag("benchmark")
+	void hotSkuCheckoutsOutrunTheRowLock() throws Exception {
+		int threads = 16;
+		int checkoutsPerThread = 200;
+		db.execute("INSERT INTO product VALUES (4, 'Flash sale, row lock', 100000, FALSE)",
+				"UPDATE product SET quantity = 100000 WHERE id = 1");
+		InventoryServiceImpl inventory = new InventoryServiceImpl();
+		ReflectionTestUtils.setField(inventory, "jdbcTemplate", db.jdbcTemplate());
+		ReflectionTestUtils.setField(inventory, "hotStockService", service);
+		ReflectionTestUtils.setField(inventory, "eventPublisher", (ApplicationEventPublisher) event -> { });
+
+		double rowLock = checkoutsPerSecond(inventory, 4L, threads, checkoutsPerThread);
+		AtomicBoolean running = new AtomicBoolean(true);
+		Thread reconciler = new Thread(() -> {
+			while (running.get()) {
+				service.reconcile();
+			}
+		});
+		reconciler.start();
+		double hot = checkoutsPerSecond(inventory, 1L, threads, checkoutsPerThread);
+		running.set(false);
+		reconciler.join(60_000);
+		service.reconcile();
+
+		logger.info("{} threads x {} checkouts of one product: row lock {} checkouts/s, hot SKU {} checkouts/s",
+				threads, checkoutsPerThread, String.format("%.0f", rowLock), String.format("%.0f", hot));
+		assertThat(quantity(4)).isEqualTo(100000 - threads * checkoutsPerThread);
+		assertThat(quantity(1)).isEqualTo(100000 - threads * checkoutsPerThread);
+		assertThat(hot).isGreaterThan(rowLock);
+	}
+
+	// Mỗi checkout là một transaction: trừ kho rồi ghi order (giả lập 2 ms) trước khi commit,
+	// nên ở đường row lock, lock của dòng product bị giữ suốt phần ghi order
+	private double checkoutsPerSecond(InventoryService inventory, long productId, int threads, int checkoutsPerThread)
+			throws Exception {
+		TransactionTemplate transaction = new TransactionTemplate(db.transactionManager());
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		List<Future<?>> buyers = new ArrayList<>();
+		long start = System.nanoTime();
+		for (int t = 0; t < threads; t++) {
+			buyers.add(pool.submit(() -> {
+				for (int i = 0; i < checkoutsPerThread; i++) {
+					transaction.executeWithoutResult(status -> {
+						inventory.decreaseStock(Map.of(productId, 1L));
+						try {
+							Thread.sleep(2);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+					});
+				}
+			}));
+		}
+		for (Future<?> buyer : buyers) {
+			buyer.get(300, TimeUnit.SECONDS);
+		}
+		pool.shutdown();
+		return threads * checkoutsPerThread / ((System.nanoTime() - start) / 1e9);
+	}
+
+	private long quantity(long productId) {
+		return db.jdbcTemplate().queryForObject("SELECT quantity FROM product WHERE id = ?", Long.class, productId);
+	}
+
+	private long counter(long productId) {
+		return Long.parseLong(redis.template().opsForValue().get("stock:hot:" + productId));
+	}
+}
@@ -0,0 +1,190 @@
+package com.trash.ecommerce.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.trash.ecommerce.cache.RecentInteractionsCache;
+import com.trash.ecommerce.cache.RecentInteractionsCache.View;
+import com.trash.ecommerce.config.InteractionBufferConfig;
+import com.trash.ecommerce.dto.InteractionBufferStatsDTO;
+
+class InteractionBufferTest {
+
+	private JdbcTemplate jdbcTemplate;
+	private RecentInteractionsCache recentInteractionsCache;
+	private TrendingService trendingService;
+	private PersonalRecommendationService personalRecommendationService;
+	private InteractionBufferConfig config;
+	private final List<View> written = new ArrayList<>();
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		jdbcTemplate = mock(JdbcTemplate.class);
+		recentInteractionsCache = mock(RecentInteractionsCache.class);
+		trendingService = mock(TrendingService.class);
+		personalRecommendationService = mock(PersonalRecommendationService.class);
+		config = new InteractionBufferConfig();
+		given(jdbcTemplate.batchUpdate(anyString(), any(Collection.class), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+				.willAnswer(invocation -> {
+					synchronized (written) {
+						written.addAll(invocation.getArgument(1));
+					}
+					return new int[0][];
+				});
+	}
+
+	private InteractionBuffer newBuffer(TaskExecutor executor) {
+		InteractionBuffer buffer = new InteractionBuffer();
+		ReflectionTestUtils.setField(buffer, "jdbcTemplate", jdbcTemplate);
+		ReflectionTestUtils.setField(buffer, "config", config);
+		ReflectionTestUtils.setField(buffer, "recentInteractionsCache", recentInteractionsCache);
+		ReflectionTestUtils.setField(buffer, "trendingService", trendingService);
+		ReflectionTestUtils.setField(buffer, "personalRecommendationService", personalRecommendationService);
+		ReflectionTestUtils.setField(buffer, "interactionExecutor", executor);
+		return buffer;
+	}
+
+	@Test
+	void repeatViewsInsideTheWindowAreWrittenOnce() {
+		InteractionBuffer buffer = newBuffer(Runnable::run);
+		for (int i = 0; i < 3; i++) {
+			assertThat(buffer.offer(1L, 7L)).isTrue();
+		}
+		buffer.offer(1L, 8L);
+		buffer.offer(2L, 7L);
+		buffer.flush();
+
+		assertThat(written).extracting(View::userId, View::productId)
+				.containsExactly(tuple(1L, 7L),
+						tuple(1L, 8L),
+						tuple(2L, 7L));
+		assertThat(buffer.stats()).isEqualTo(new InteractionBufferStatsDTO(3, 2, 0, 3, 0, 0));
+		verify(personalRecommendationService).markStale(Set.of(1L, 2L));
+	}
+
+	@Test
+	void viewsAfterTheWindowAreWrittenAgain() {
+		config.setDedupeWindowMs(0);
+		InteractionBuffer buffer = newBuffer(Runnable::run);
+		buffer.offer(1L, 7L);
+		buffer.offer(1L, 7L);
+		buffer.flush();
+
+		assertThat(written).hasSize(2);
+	}
+
+	@Test
+	void fullBufferRejectsWithoutBlockingAndForgetsTheDedupeMark() {
+		config.setCapacity(3);
+		InteractionBuffer buffer = newBuffer(Runnable::run);
+		buffer.offer(1L, 1L);
+		buffer.offer(1L, 2L);
+		buffer.offer(1L, 3L);
+
+		assertThat(buffer.offer(1L, 4L)).isFalse();
+		assertThat(buffer.stats().getDropped()).isEqualTo(1);
+		assertThat(buffer.stats().getPending()).isEqualTo(3);
+
+		buffer.flush();
+		// View bị từ chối không để lại mốc dedupe nên lần thử lại được nhận
+		assertThat(buffer.offer(1L, 4L)).isTrue();
+		assertThat(buffer.stats().getDeduplicated()).isZero();
+	}
+
+	@Test
+	void concurrentOffersNeverExceedTheCapacity() throws Exception {
+		config.setCapacity(1000);
+		// Không flush giữa chừng để chỉ còn capacity giới hạn số event được nhận
+		config.setBatchSize(5000);
+		InteractionBuffer buffer = newBuffer(Runnable::run);
+		AtomicInteger acceptedCalls = new AtomicInteger();
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		CountDownLatch start = new CountDownLatch(1);
+		for (int t = 0; t < 8; t++) {
+			long userId = t;
+			pool.execute(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				for (long productId = 0; productId < 500; productId++) {
+					if (buffer.offer(userId, productId)) {
+						acceptedCalls.incrementAndGet();
+					}
+				}
+			});
+		}
+		start.countDown();
+		pool.shutdown();
+		assertThat(pool.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+		InteractionBufferStatsDTO stats = buffer.stats();
+		assertThat(acceptedCalls.get()).isEqualTo(1000);
+		assertThat(stats.getAccepted()).isEqualTo(1000);
+		assertThat(stats.getDropped()).isEqualTo(3000);
+		assertThat(stats.getPending()).isEqualTo(1000);
+		buffer.flush();
+		assertThat(written).hasSize(1000);
+	}
+
+	@Test
+	void fullBatchIsFlushedOnTheExecutorAndARejectedFlushWaitsForTheTimer() {
+		config.setBatchSize(2);
+		InteractionBuffer buffer = newBuffer(Runnable::run);
+		buffer.offer(1L, 1L);
+		assertThat(written).isEmpty();
+		buffer.offer(1L, 2L);
+		assertThat(written).hasSize(2);
+
+		InteractionBuffer busy = newBuffer(task -> {
+			throw new TaskRejectedException("interaction pool is full");
+		});
+		assertThat(busy.offer(2L, 1L)).isTrue();
+		assertThat(busy.offer(2L, 2L)).isTrue();
+		assertThat(busy.stats().getPending()).isEqualTo(2);
+		busy.flush();
+		assertThat(written).hasSize(4);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void failedWriteIsCountedAndStillFeedsTheCaches() {
+		given(jdbcTemplate.batchUpdate(anyString(), any(Collection.class), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+				.willThrow(new QueryTimeoutException("lock wait timeout"));
+		InteractionBuffer buffer = newBuffer(Runnable::run);
+		buffer.offer(1L, 1L);
+		buffer.flush();
+
+		assertThat(buffer.stats().getFailed()).isEqualTo(1);
+		assertThat(buffer.stats().getFlushed()).isZero();
+		verify(recentInteractionsCache).recordAll(any());
+		verify(trendingService).recordAll(any());
+	}
+}
@@ -0,0 +1,241 @@
+package com.trash.ecommerce.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.trash.ecommerce.dto.StockShortage;
+import com.trash.ecommerce.entity.OrderItem;
+import com.trash.ecommerce.entity.Product;
+import com.trash.ecommerce.exception.InsufficientStockException;
+
+// Mỗi lời gọi service tự commit như trên production, dữ liệu được dọn sau từng test
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@Import(InventoryServiceImpl.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class InventoryServiceImplTest {
+
+	@Autowired
+	private InventoryService inventoryService;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@MockitoBean
+	private HotStockService hotStockService;
+
+	@BeforeEach
+	void seedProducts() {
+		given(hotStockService.isHot(anyLong())).willReturn(false);
+		insertProduct(1L, "Pin cũ", 10);
+		insertProduct(2L, "Chai nhựa", 1);
+		insertProduct(3L, "Lon bia", 100);
+		jdbcTemplate.update("INSERT INTO payment_method (id, method_name) VALUES (2, 'VNPAY')");
+		jdbcTemplate.update("INSERT INTO users (id, email, password, address) VALUES (1, 'buyer@example.vn', 'x', '1 Le Loi')");
+		jdbcTemplate.update("INSERT INTO orders (id, status, total_price, created_at, user_id, payment_id, address) "
+				+ "VALUES (10, 'PENDING_PAYMENT', 50000, CURRENT_TIMESTAMP, 1, 2, '1 Le Loi')");
+	}
+
+	@AfterEach
+	void cleanUp() {
+		jdbcTemplate.update("DELETE FROM stock_reservation");
+		jdbcTemplate.update("DELETE FROM orders");
+		jdbcTemplate.update("DELETE FROM users");
+		jdbcTemplate.update("DELETE FROM payment_method");
+		jdbcTemplate.update("DELETE FROM product");
+	}
+
+	@Test
+	void decreaseStockTakesEveryLine() {
+		inventoryService.decreaseStock(Map.of(3L, 40L, 1L, 4L, 2L, 1L));
+
+		assertThat(quantity(1L)).isEqualTo(6);
+		assertThat(quantity(2L)).isZero();
+		assertThat(quantity(3L)).isEqualTo(60);
+	}
+
+	@Test
+	void shortLinesAreAllReportedAndNothingIsWritten() {
+		Map<Long, Long> order = new LinkedHashMap<>();
+		order.put(99L, 1L);
+		order.put(1L, 5L);
+		order.put(2L, 3L);
+
+		assertThatThrownBy(() -> inventoryService.decreaseStock(order))
+				.isInstanceOfSatisfying(InsufficientStockException.class, e -> assertThat(e.getShortages())
+						.extracting(StockShortage::getProductId, StockShortage::getProductName,
+								StockShortage::getRequested, StockShortage::getAvailable)
+						.containsExactly(
+								tuple(2L, "Chai nhựa", 3L, 1L),
+								tuple(99L, null, 1L, 0L)));
+		assertThat(quantity(1L)).isEqualTo(10);
+		assertThat(quantity(2L)).isEqualTo(1);
+	}
+
+	@Test
+	void invalidLinesAreRejectedBeforeTouchingStock() {
+		assertThatThrownBy(() -> inventoryService.decreaseStock(Map.of(1L, 0L)))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThat(quantity(1L)).isEqualTo(10);
+	}
+
+	@Test
+	void concurrentCheckoutsInOppositeOrderNeitherDeadlockNorOversell() throws Exception {
+		jdbcTemplate.update("UPDATE product SET quantity = 100 WHERE id IN (1, 2)");
+		Map<Long, Long> ascending = new LinkedHashMap<>();
+		ascending.put(1L, 1L);
+		ascending.put(2L, 1L);
+		Map<Long, Long> descending = new LinkedHashMap<>();
+		descending.put(2L, 1L);
+		descending.put(1L, 1L);
+		AtomicInteger sold = new AtomicInteger();
+		AtomicInteger rejected = new AtomicInteger();
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		List<Future<?>> buyers = new ArrayList<>();
+		for (int t = 0; t < 8; t++) {
+			Map<Long, Long> order = t % 2 == 0 ? ascending : descending;
+			buyers.add(pool.submit(() -> {
+				for (int i = 0; i < 20; i++) {
+					try {
+						inventoryService.decreaseStock(order);
+						sold.incrementAndGet();
+					} catch (InsufficientStockException e) {
+						rejected.incrementAndGet();
+					}
+				}
+			}));
+		}
+		for (Future<?> buyer : buyers) {
+			// Deadlock hay lock timeout sẽ nổ ra ở đây
+			buyer.get(60, TimeUnit.SECONDS);
+		}
+		pool.shutdown();
+
+		assertThat(sold.get()).isEqualTo(100);
+		assertThat(rejected.get()).isEqualTo(60);
+		assertThat(quantity(1L)).isZero();
+		assertThat(quantity(2L)).isZero();
+	}
+
+	@Test
+	void reservationHoldsStockPastThePaymentLinkAndCommitKeepsIt() {
+		long before = System.currentTimeMillis();
+		inventoryService.reserveForOrder(10L, List.of(item(1L, 4), item(3L, 10), item(1L, 1)));
+
+		assertThat(quantity(1L)).isEqualTo(5);
+		assertThat(quantity(3L)).isEqualTo(90);
+		assertThat(reservations()).containsExactly("1:5:HELD", "3:10:HELD");
+		// 15 phút của link + 5 phút grace
+		Timestamp expiresAt = jdbcTemplate.queryForObject(
+				"SELECT MIN(expires_at) FROM stock_reservation WHERE order_id = 10", Timestamp.class);
+		assertThat(expiresAt.getTime() - before).isBetween(20 * 60_000L - 1_000, 20 * 60_000L + 60_000);
+
+		inventoryService.commitReservation(10L, List.of(item(1L, 5), item(3L, 10)));
+		assertThat(reservations()).containsExactly("1:5:COMMITTED", "3:10:COMMITTED");
+		assertThat(quantity(1L)).isEqualTo(5);
+		// Đã COMMITTED thì không còn gì để trả lại
+		assertThat(inventoryService.releaseReservation(10L)).isZero();
+		assertThat(quantity(1L)).isEqualTo(5);
+	}
+
+	@Test
+	void releaseReturnsHeldStockOnce() {
+		inventoryService.reserveForOrder(10L, List.of(item(1L, 4), item(2L, 1)));
+
+		assertThat(inventoryService.releaseReservation(10L)).isEqualTo(2);
+		assertThat(inventoryService.releaseReservation(10L)).isZero();
+
+		assertThat(reservations()).containsExactly("1:4:RELEASED", "2:1:RELEASED");
+		assertThat(quantity(1L)).isEqualTo(10);
+		assertThat(quantity(2L)).isEqualTo(1);
+	}
+
+	@Test
+	void expiredReservationCancelsOnlyAPendingOrder() {
+		inventoryService.reserveForOrder(10L, List.of(item(1L, 4)));
+
+		assertThat(inventoryService.releaseExpiredReservation(10L)).isEqualTo(1);
+		assertThat(orderStatus()).isEqualTo("CANCELLED");
+		assertThat(quantity(1L)).isEqualTo(10);
+
+		jdbcTemplate.update("UPDATE orders SET status = 'PAID' WHERE id = 10");
+		assertThat(inventoryService.releaseExpiredReservation(10L)).isZero();
+		assertThat(orderStatus()).isEqualTo("PAID");
+	}
+
+	@Test
+	void expiredReservationOfAPaidOrderIsLeftToThePayment() {
+		inventoryService.reserveForOrder(10L, List.of(item(1L, 4)));
+		// IPN đã đổi trạng thái đơn nhưng chưa kịp commit reservation
+		jdbcTemplate.update("UPDATE orders SET status = 'PAID' WHERE id = 10");
+
+		assertThat(inventoryService.releaseExpiredReservation(10L)).isZero();
+		assertThat(reservations()).containsExactly("1:4:HELD");
+		assertThat(quantity(1L)).isEqualTo(6);
+	}
+
+	@Test
+	void commitAfterTheSweeperReleasedTakesTheStockAgain() {
+		inventoryService.reserveForOrder(10L, List.of(item(1L, 4), item(2L, 1)));
+		inventoryService.releaseReservation(10L);
+
+		inventoryService.commitReservation(10L, List.of(item(1L, 4)));
+		assertThat(quantity(1L)).isEqualTo(6);
+
+		// Hàng đã được bán cho người khác trong lúc chờ IPN
+		jdbcTemplate.update("UPDATE product SET quantity = 0 WHERE id = 2");
+		assertThatThrownBy(() -> inventoryService.commitReservation(10L, List.of(item(2L, 1))))
+				.isInstanceOf(InsufficientStockException.class);
+	}
+
+	private static OrderItem item(Long productId, long quantity) {
+		Product product = new Product();
+		product.setId(productId);
+		OrderItem item = new OrderItem();
+		item.setProduct(product);
+		item.setQuantity(quantity);
+		return item;
+	}
+
+	private List<String> reservations() {
+		return jdbcTemplate.queryForList(
+				"SELECT CONCAT(product_id, ':', quantity, ':', status) FROM stock_reservation WHERE order_id = 10 ORDER BY product_id",
+				String.class);
+	}
+
+	private String orderStatus() {
+		return jdbcTemplate.queryForObject("SELECT status FROM orders WHERE id = 10", String.class);
+	}
+
+	private void insertProduct(Long id, String name, long quantity) {
+		jdbcTemplate.update("INSERT INTO product (id, product_name, price, quantity, hot_sku, rating_count, rating) "
+				+ "VALUES (?, ?, 10000, ?, FALSE, 0, 0)", id, name, quantity);
+	}
+
+	private long quantity(Long productId) {
+		return jdbcTemplate.queryForObject("SELECT quantity FROM product WHERE id = ?", Long.class, productId);
+	}
+}
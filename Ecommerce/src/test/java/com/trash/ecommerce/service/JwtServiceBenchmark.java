@@ -0,0 +1,105 @@
+package com.trash.ecommerce.service;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+
+/**
+ * Per-request token handling of {@link JwtService}, next to the handling it replaced: three
+ * parses per request (filter validation, username, id), each re-deriving the key and building a
+ * parser. Redis is stubbed out, so the deny-list round trip of {@code authenticate} is not in the
+ * numbers. Run through {@link JwtServiceTest} with {@code mvn test -Pbenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JwtServiceBenchmark {
+
+	private JwtService jwtService;
+	private String secretKey;
+	private String token;
+
+	@Setup
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		ValueOperations<String, Object> valueOperations = (ValueOperations<String, Object>) Proxy.newProxyInstance(
+				getClass().getClassLoader(), new Class<?>[] {ValueOperations.class},
+				(proxy, method, args) -> method.getName().equals("multiGet") ? Arrays.asList(null, null) : null);
+		RedisTemplate<String, Object> redisTemplate = new RedisTemplate<>() {
+			@Override
+			public ValueOperations<String, Object> opsForValue() {
+				return valueOperations;
+			}
+		};
+		jwtService = new JwtService();
+		ReflectionTestUtils.setField(jwtService, "redisTemplate", redisTemplate);
+		secretKey = (String) ReflectionTestUtils.getField(jwtService, "secretKey");
+		token = jwtService.generateToken(
+				User.withUsername("buyer@example.vn").password("x").authorities("USER").build(), 42L).getAccess();
+
+		// Như sau JwtFilter: token và principal đã verify nằm trên request hiện tại
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setAttribute(JwtService.TOKEN_ATTRIBUTE, token);
+		request.setAttribute(JwtService.PRINCIPAL_ATTRIBUTE, jwtService.authenticate(token));
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+	}
+
+	@TearDown
+	public void tearDown() {
+		RequestContextHolder.resetRequestAttributes();
+	}
+
+	@Benchmark
+	public Long requestBefore() {
+		parsePerCall(token);
+		parsePerCall(token).getSubject();
+		return parsePerCall(token).get("id", Long.class);
+	}
+
+	// Filter: authenticate từ cache + deny list, controller: extractId đọc lại từ request
+	@Benchmark
+	public Long requestAfter() {
+		jwtService.authenticate(token);
+		return jwtService.extractId("Bearer " + token);
+	}
+
+	@Benchmark
+	public Object authenticateCached() {
+		return jwtService.authenticate(token);
+	}
+
+	@Benchmark
+	public Long extractIdFromRequest() {
+		return jwtService.extractId("Bearer " + token);
+	}
+
+	// Cách parse cũ: decode secret, dựng key và parser ở mỗi lần gọi
+	private Claims parsePerCall(String jwt) {
+		return Jwts.parser()
+				.verifyWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey)))
+				.build()
+				.parseSignedClaims(jwt)
+				.getPayload();
+	}
+}
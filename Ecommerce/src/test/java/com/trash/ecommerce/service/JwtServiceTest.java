@@ -0,0 +1,180 @@
+package com.trash.ecommerce.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.trash.ecommerce.dto.JwtPrincipal;
+import com.trash.ecommerce.dto.Token;
+
+class JwtServiceTest {
+
+	private static final Logger logger = LoggerFactory.getLogger(JwtServiceTest.class);
+
+	private JwtService jwtService;
+	private RedisTemplate<String, Object> redisTemplate;
+	private ValueOperations<String, Object> valueOperations;
+	private UserDetailsService userDetailsService;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		redisTemplate = mock(RedisTemplate.class);
+		userDetailsService = mock(UserDetailsService.class);
+		valueOperations = mock(ValueOperations.class);
+		given(redisTemplate.opsForValue()).willReturn(valueOperations);
+		given(valueOperations.multiGet(anyList())).willReturn(Arrays.asList(null, null));
+		jwtService = new JwtService();
+		ReflectionTestUtils.setField(jwtService, "redisTemplate", redisTemplate);
+		ReflectionTestUtils.setField(jwtService, "userDetailsService", userDetailsService);
+	}
+
+	private static UserDetails user(long id, String... roles) {
+		return User.withUsername("user" + id + "@example.vn").password("x").authorities(roles).build();
+	}
+
+	private String accessToken(long id, String... roles) {
+		return jwtService.generateToken(user(id, roles), id).getAccess();
+	}
+
+	@Test
+	void redisOutageRejectsOnlyAdminTokens() {
+		String admin = accessToken(1L, "ADMIN", "USER");
+		String user = accessToken(2L, "USER");
+		assertThat(jwtService.authenticate(admin)).isNotNull();
+
+		given(valueOperations.multiGet(anyList())).willThrow(new RedisConnectionFailureException("Redis is down"));
+
+		// Không kiểm tra được thu hồi: token ADMIN bị từ chối, token USER vẫn qua
+		assertThat(jwtService.authenticate("Bearer " + admin)).isNull();
+		JwtPrincipal principal = jwtService.authenticate("Bearer " + user);
+		assertThat(principal).isNotNull();
+		assertThat(principal.getId()).isEqualTo(2L);
+	}
+
+	@Test
+	void tokensIssuedBeforeARoleChangeAreRejected() throws Exception {
+		String admin = accessToken(1L, "ADMIN");
+		assertThat(jwtService.authenticate(admin)).isNotNull();
+
+		// iat tính theo giây, token cũ phải được cấp trước giây của lần thu hồi
+		Thread.sleep(1000);
+		jwtService.revokeAllTokens(1L);
+		verify(valueOperations).set(eq("jwt:revoked-before:1"), any(), anyLong(), any());
+		long revokedBefore = System.currentTimeMillis() / 1000 * 1000;
+		given(valueOperations.multiGet(anyList())).willReturn(Arrays.asList(null, revokedBefore));
+
+		assertThat(jwtService.authenticate(admin)).isNull();
+		assertThat(jwtService.authenticate(accessToken(1L, "USER"))).isNotNull();
+	}
+
+	@Test
+	void denyListedTokenIsRejected() {
+		String token = accessToken(3L, "USER");
+		given(valueOperations.multiGet(anyList())).willReturn(Arrays.asList(1, null));
+
+		assertThat(jwtService.authenticate(token)).isNull();
+		verify(valueOperations).multiGet(List.of("jwt:deny:" + tokenHashOf(token), "jwt:revoked-before:3"));
+	}
+
+	private static String tokenHashOf(String token) {
+		return ReflectionTestUtils.invokeMethod(JwtService.class, "tokenHash", token);
+	}
+
+	@Test
+	void revocationDropsTheRefreshTokenAndRejectsOneIssuedBefore() throws Exception {
+		Token stolen = jwtService.generateToken(user(1L, "ADMIN"), 1L);
+
+		Thread.sleep(1000);
+		jwtService.revokeAllTokens(1L);
+		verify(redisTemplate).delete("refresh:1");
+		long revokedBefore = System.currentTimeMillis() / 1000 * 1000;
+		given(valueOperations.get("jwt:revoked-before:1")).willReturn(revokedBefore);
+
+		// Key refresh vẫn còn token cũ (ghi lại trước khi thu hồi): không được đổi ra access token mới
+		given(valueOperations.get("refresh:1")).willReturn(stolen.getRefresh());
+		assertThat(jwtService.refreshToken(stolen.getRefresh())).isNull();
+
+		Token fresh = jwtService.generateToken(user(1L, "USER"), 1L);
+		given(valueOperations.get("refresh:1")).willReturn(fresh.getRefresh());
+		given(userDetailsService.loadUserByUsername("user1@example.vn")).willReturn(user(1L, "USER"));
+		assertThat(jwtService.refreshToken(fresh.getRefresh())).isNotNull();
+	}
+
+	@Test
+	void extractIdOutsideTheFilterChecksTheDenyList() {
+		String token = accessToken(4L, "USER");
+		assertThat(jwtService.extractId("Bearer " + token)).isEqualTo(4L);
+
+		// Logout trên instance khác: cache ở đây còn token nhưng deny list đã có
+		given(valueOperations.multiGet(anyList())).willReturn(Arrays.asList(1, null));
+		assertThatThrownBy(() -> jwtService.extractId("Bearer " + token)).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void extractIdReusesThePrincipalTheFilterVerified() {
+		String token = accessToken(5L, "USER");
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setAttribute(JwtService.TOKEN_ATTRIBUTE, token);
+		request.setAttribute(JwtService.PRINCIPAL_ATTRIBUTE, jwtService.authenticate(token));
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+		try {
+			clearInvocations(valueOperations);
+			assertThat(jwtService.extractId("Bearer " + token)).isEqualTo(5L);
+			verify(valueOperations, never()).multiGet(anyList());
+		} finally {
+			RequestContextHolder.resetRequestAttributes();
+		}
+	}
+
+	@Test
+	@Tag("benchmark")
+	void benchmarkPerRequestTokenHandling() throws Exception {
+		Collection<RunResult> results = new Runner(new OptionsBuilder()
+				.include(JwtServiceBenchmark.class.getName())
+				.forks(1)
+				.warmupIterations(3)
+				.warmupTime(TimeValue.seconds(1))
+				.measurementIterations(5)
+				.measurementTime(TimeValue.seconds(1))
+				.build()).run();
+
+		assertThat(results).hasSize(4);
+		for (RunResult result : results) {
+			logger.info("{}: {} ns/op", result.getParams().getBenchmark(),
+					String.format("%.0f", result.getPrimaryResult().getScore()));
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package com.trash.ecommerce.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+// apply() tự mở transaction như khi worker gọi, dữ liệu được dọn sau từng test
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@Import(PaymentEventProcessor.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PaymentEventProcessorTest {
+
+	@Autowired
+	private PaymentEventProcessor processor;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@MockitoBean
+	private InventoryService inventoryService;
+	@MockitoBean
+	private InvoiceService invoiceService;
+	@MockitoBean
+	private EmailService emailService;
+
+	@BeforeEach
+	void seedPendingOrder() {
+		jdbcTemplate.update("INSERT INTO payment_method (id, method_name) VALUES (2, 'VNPAY')");
+		jdbcTemplate.update("INSERT INTO users (id, email, password, address) VALUES (1, 'buyer@example.vn', 'x', '1 Le Loi')");
+		jdbcTemplate.update("INSERT INTO product (id, product_name, price, quantity, hot_sku, rating_count, rating) "
+				+ "VALUES (1, 'Pin cũ', 25000, 10, FALSE, 0, 0)");
+		jdbcTemplate.update("INSERT INTO orders (id, status, total_price, created_at, user_id, payment_id, address) "
+				+ "VALUES (10, 'PENDING_PAYMENT', 50000, CURRENT_TIMESTAMP, 1, 2, '1 Le Loi')");
+		jdbcTemplate.update("INSERT INTO order_items (order_id, product_id, quantity, price) VALUES (10, 1, 2, 25000)");
+		jdbcTemplate.update("INSERT INTO payment_event (id, txn_ref, order_id, amount, transaction_no, status, attempts, created_at) "
+				+ "VALUES (100, '10', 10, 50000, '14588790', 'RECEIVED', 0, CURRENT_TIMESTAMP)");
+	}
+
+	@AfterEach
+	void cleanUp() {
+		for (String table : new String[] {"payment_event", "order_items", "orders", "product", "users", "payment_method"}) {
+			jdbcTemplate.update("DELETE FROM " + table);
+		}
+	}
+
+	@Test
+	void eventIsAppliedOnlyOnce() {
+		processor.apply(100L);
+		processor.apply(100L);
+
+		assertThat(orderStatus()).isEqualTo("PAID");
+		assertThat(eventStatus()).isEqualTo("PROCESSED");
+		verify(inventoryService, times(1)).commitReservation(eq(10L), anyCollection());
+		verify(invoiceService, times(1)).createInvoiceForOrder(10L);
+		verify(emailService, times(1)).sendEmail(eq("buyer@example.vn"), anyString(), anyString());
+	}
+
+	@Test
+	void concurrentWorkersApplyTheEventOnce() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		CountDownLatch start = new CountDownLatch(1);
+		Future<?>[] workers = new Future<?>[4];
+		for (int i = 0; i < workers.length; i++) {
+			workers[i] = pool.submit(() -> {
+				start.await();
+				processor.apply(100L);
+				return null;
+			});
+		}
+		start.countDown();
+		for (Future<?> worker : workers) {
+			worker.get(30, TimeUnit.SECONDS);
+		}
+		pool.shutdown();
+
+		assertThat(eventStatus()).isEqualTo("PROCESSED");
+		verify(invoiceService, times(1)).createInvoiceForOrder(10L);
+		verify(emailService, times(1)).sendEmail(anyString(), anyString(), anyString());
+	}
+
+	@Test
+	void paymentForACancelledOrderIsOrphaned() {
+		jdbcTemplate.update("UPDATE orders SET status = 'CANCELLED' WHERE id = 10");
+
+		processor.apply(100L);
+		processor.apply(100L);
+
+		assertThat(eventStatus()).isEqualTo("ORPHANED");
+		assertThat(orderStatus()).isEqualTo("CANCELLED");
+		verifyNoInteractions(inventoryService, invoiceService, emailService);
+	}
+
+	@Test
+	void failingEventIsGivenUpAfterMaxAttempts() {
+		for (int i = 1; i < PaymentEventProcessor.MAX_ATTEMPTS; i++) {
+			processor.recordFailure(100L, "SMTP down");
+			assertThat(eventStatus()).isEqualTo("RECEIVED");
+		}
+		processor.recordFailure(100L, "x".repeat(600));
+
+		assertThat(eventStatus()).isEqualTo("FAILED");
+		assertThat(jdbcTemplate.queryForObject("SELECT LENGTH(last_error) FROM payment_event WHERE id = 100", Integer.class))
+				.isEqualTo(500);
+		processor.apply(100L);
+		assertThat(orderStatus()).isEqualTo("PENDING_PAYMENT");
+		verify(invoiceService, never()).createInvoiceForOrder(10L);
+	}
+
+	private String orderStatus() {
+		return jdbcTemplate.queryForObject("SELECT status FROM orders WHERE id = 10", String.class);
+	}
+
+	private String eventStatus() {
+		return jdbcTemplate.queryForObject("SELECT status FROM payment_event WHERE id = 100", String.class);
+	}
+}
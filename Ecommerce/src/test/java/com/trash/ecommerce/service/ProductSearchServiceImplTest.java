@@ -0,0 +1,111 @@
+package com.trash.ecommerce.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.trash.ecommerce.dto.ProductTextDTO;
+import com.trash.ecommerce.event.ProductChangedEvent;
+import com.trash.ecommerce.repository.ProductRepository;
+
+class ProductSearchServiceImplTest {
+
+	private ProductSearchServiceImpl service;
+	private final List<ProductTextDTO> catalog = new ArrayList<>();
+	private final AtomicBoolean queueFull = new AtomicBoolean();
+	private final List<Runnable> queued = new ArrayList<>();
+	private Runnable duringLoad;
+
+	@BeforeEach
+	void setUp() {
+		ProductRepository productRepository = mock(ProductRepository.class);
+		for (long id = 1; id <= 8; id++) {
+			catalog.add(new ProductTextDTO(id, "Pin cũ " + id, "Pin", "pin tiểu đã qua sử dụng"));
+		}
+		given(productRepository.findProductTextsAfter(anyLong(), any())).willAnswer(invocation -> {
+			long afterId = invocation.getArgument(0);
+			List<ProductTextDTO> chunk = catalog.stream().filter(p -> p.getId() > afterId).toList();
+			if (duringLoad != null) {
+				Runnable hook = duringLoad;
+				duringLoad = null;
+				hook.run();
+			}
+			return chunk;
+		});
+		given(productRepository.findProductTextById(anyLong())).willAnswer(invocation -> {
+			Long id = invocation.getArgument(0);
+			return catalog.stream().filter(p -> p.getId().equals(id)).findFirst();
+		});
+
+		service = new ProductSearchServiceImpl();
+		ReflectionTestUtils.setField(service, "productRepository", productRepository);
+		ReflectionTestUtils.setField(service, "loadBatchSize", 1000);
+		ReflectionTestUtils.setField(service, "maxDeletedRatio", 0.25);
+		ReflectionTestUtils.setField(service, "searchIndexExecutor", (TaskExecutor) task -> {
+			if (queueFull.get()) {
+				throw new TaskRejectedException("search index pool is full");
+			}
+			queued.add(task);
+		});
+		service.rebuild();
+	}
+
+	private void runQueued() {
+		List<Runnable> tasks = List.copyOf(queued);
+		queued.clear();
+		tasks.forEach(Runnable::run);
+	}
+
+	@Test
+	void rejectedChangeIsPickedUpByTheNextRebuild() {
+		catalog.add(new ProductTextDTO(9L, "Chai nhựa", "Nhựa", "chai nhựa PET rỗng"));
+		queueFull.set(true);
+
+		// Listener chạy sau commit nên không được ném lỗi ra ngoài
+		service.onProductChanged(new ProductChangedEvent(9L, ProductChangedEvent.Type.CREATED));
+		assertThat(service.search("chai", 0, 10)).isEmpty();
+
+		service.rebuildIfRequested();
+		assertThat(service.search("chai", 0, 10)).containsExactly(9L);
+	}
+
+	@Test
+	void tooManyDeadSlotsRequestARebuildInsteadOfRunningItInline() {
+		for (long id = 1; id <= 3; id++) {
+			service.onProductChanged(new ProductChangedEvent(id, ProductChangedEvent.Type.UPDATED));
+		}
+		runQueued();
+		// 3 slot chết trên 11: vượt 0.25 nhưng index chưa bị dựng lại trên thread của hàng đợi
+		assertThat(service.search("pin", 0, 20)).hasSize(8);
+		assertThat(ReflectionTestUtils.getField(service, "rebuildRequested")).hasToString("true");
+
+		service.rebuildIfRequested();
+		assertThat(ReflectionTestUtils.getField(service, "rebuildRequested")).hasToString("false");
+		assertThat(service.search("pin", 0, 20)).hasSize(8);
+	}
+
+	@Test
+	void changeAppliedToTheOldIndexDuringARebuildIsCarriedOver() {
+		// Sản phẩm 2 bị xóa ngay sau khi rebuild đã đọc catalog, thay đổi rơi vào index cũ
+		duringLoad = () -> {
+			catalog.removeIf(p -> p.getId() == 2L);
+			service.onProductChanged(new ProductChangedEvent(2L, ProductChangedEvent.Type.DELETED));
+			runQueued();
+		};
+		service.rebuild();
+
+		assertThat(service.search("pin", 0, 20)).hasSize(7).doesNotContain(2L);
+	}
+}
@@ -0,0 +1,112 @@
+package com.trash.ecommerce.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.trash.ecommerce.config.RecommendationConfig;
+import com.trash.ecommerce.dto.ProductTextDTO;
+import com.trash.ecommerce.event.ProductChangedEvent;
+import com.trash.ecommerce.repository.ProductRepository;
+
+class RecommendationServiceImplTest {
+
+	@TempDir
+	Path indexDir;
+
+	private RecommendationServiceImpl service;
+	private ProductRepository productRepository;
+	private final List<ProductTextDTO> catalog = new ArrayList<>();
+	private final AtomicBoolean queueFull = new AtomicBoolean();
+
+	@BeforeEach
+	void setUp() {
+		productRepository = mock(ProductRepository.class);
+		catalog.add(new ProductTextDTO(1L, "Pin cũ AA", "Pin", "pin tiểu AA đã qua sử dụng"));
+		catalog.add(new ProductTextDTO(2L, "Pin cũ AAA", "Pin", "pin tiểu AAA đã qua sử dụng"));
+		catalog.add(new ProductTextDTO(10L, "Chai nhựa", "Nhựa", "chai nhựa PET rỗng"));
+		given(productRepository.findProductTextsAfter(anyLong(), any())).willAnswer(invocation -> {
+			long afterId = invocation.getArgument(0);
+			return catalog.stream().filter(p -> p.getId() > afterId).toList();
+		});
+		given(productRepository.findProductTextById(anyLong())).willAnswer(invocation -> {
+			Long id = invocation.getArgument(0);
+			return catalog.stream().filter(p -> p.getId().equals(id)).findFirst();
+		});
+
+		RecommendationConfig config = new RecommendationConfig();
+		config.setIndexPath(indexDir.resolve("neighbors.idx").toString());
+		service = new RecommendationServiceImpl();
+		ReflectionTestUtils.setField(service, "productRepository", productRepository);
+		ReflectionTestUtils.setField(service, "recommendationConfig", config);
+		ReflectionTestUtils.setField(service, "recommendationExecutor", (TaskExecutor) task -> {
+			if (queueFull.get()) {
+				throw new TaskRejectedException("recommendation pool is full");
+			}
+			task.run();
+		});
+		service.rebuild();
+	}
+
+	@SuppressWarnings("unchecked")
+	private Set<Long> missedChanges() {
+		return (Set<Long>) ReflectionTestUtils.getField(service, "missedChanges");
+	}
+
+	@Test
+	void rejectedChangeIsMarkedAndAppliedByTheRetry() {
+		catalog.add(new ProductTextDTO(3L, "Pin cũ AA loại 2", "Pin", "pin tiểu AA đã qua sử dụng"));
+		queueFull.set(true);
+
+		// Listener chạy sau commit nên không được ném lỗi ra ngoài
+		service.onProductChanged(new ProductChangedEvent(3L, ProductChangedEvent.Type.CREATED));
+		assertThat(missedChanges()).containsExactly(3L);
+		assertThat(service.findSimilarProductIds(1L, 5)).doesNotContain(3L);
+
+		service.retryMissedChanges();
+		assertThat(missedChanges()).containsExactly(3L);
+
+		queueFull.set(false);
+		service.retryMissedChanges();
+		assertThat(missedChanges()).isEmpty();
+		assertThat(service.findSimilarProductIds(1L, 5)).contains(3L);
+	}
+
+	@Test
+	void rejectedDeleteRemovesTheProductOnRetry() {
+		assertThat(service.findSimilarProductIds(1L, 5)).contains(2L);
+		catalog.removeIf(p -> p.getId() == 2L);
+		queueFull.set(true);
+		service.onProductChanged(new ProductChangedEvent(2L, ProductChangedEvent.Type.DELETED));
+
+		queueFull.set(false);
+		service.retryMissedChanges();
+		assertThat(service.findSimilarProductIds(1L, 5)).doesNotContain(2L);
+	}
+
+	@Test
+	void fullRebuildClearsTheMarks() {
+		queueFull.set(true);
+		service.onProductChanged(new ProductChangedEvent(10L, ProductChangedEvent.Type.UPDATED));
+		service.scheduledRebuild();
+		assertThat(missedChanges()).containsExactly(10L);
+
+		service.rebuild();
+		assertThat(missedChanges()).isEmpty();
+	}
+}
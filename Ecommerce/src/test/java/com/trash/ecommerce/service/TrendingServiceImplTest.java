@@ -0,0 +1,174 @@
+package com.trash.ecommerce.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.trash.ecommerce.cache.RecentInteractionsCache.View;
+import com.trash.ecommerce.config.TrendingConfig;
+import com.trash.ecommerce.event.ProductChangedEvent;
+import com.trash.ecommerce.recommendation.ForwardDecayCounter;
+import com.trash.ecommerce.repository.ProductRepository;
+import com.trash.ecommerce.support.EmbeddedRedis;
+
+class TrendingServiceImplTest {
+
+	private static final long HOUR = 60 * 60 * 1000L;
+
+	private static EmbeddedRedis redis;
+
+	@BeforeAll
+	static void startRedis() {
+		redis = new EmbeddedRedis();
+	}
+
+	@AfterAll
+	static void stopRedis() throws Exception {
+		redis.close();
+	}
+
+	@BeforeEach
+	void setUp() {
+		redis.flush();
+	}
+
+	// Một instance trên Redis chung, như một pod sau load balancer
+	private static TrendingServiceImpl newInstance() {
+		ProductRepository productRepository = mock(ProductRepository.class);
+		given(productRepository.findCategoriesByIds(any())).willReturn(List.of());
+		TrendingServiceImpl service = new TrendingServiceImpl();
+		ReflectionTestUtils.setField(service, "stringRedisTemplate", redis.template());
+		ReflectionTestUtils.setField(service, "productRepository", productRepository);
+		ReflectionTestUtils.setField(service, "trendingConfig", new TrendingConfig());
+		service.init();
+		return service;
+	}
+
+	private static void view(TrendingServiceImpl service, long productId, int times) {
+		long now = System.currentTimeMillis();
+		List<View> views = new ArrayList<>();
+		for (int i = 0; i < times; i++) {
+			views.add(new View(i, productId, now));
+		}
+		service.recordAll(views);
+	}
+
+	private static Map<Long, Double> counts(TrendingServiceImpl service) {
+		ForwardDecayCounter counter = (ForwardDecayCounter) ReflectionTestUtils.getField(service, "counter");
+		return counter.decayedCounts(System.currentTimeMillis(), 0);
+	}
+
+	@Test
+	void viewsOfEveryInstanceAreSummed() {
+		TrendingServiceImpl first = newInstance();
+		TrendingServiceImpl second = newInstance();
+		view(first, 1L, 30);
+		view(second, 1L, 20);
+		view(second, 2L, 40);
+
+		first.sync();
+		second.sync();
+		// Lượt sync sau của instance đầu mới thấy phần của instance thứ hai
+		first.sync();
+
+		for (TrendingServiceImpl instance : List.of(first, second)) {
+			assertThat(counts(instance)).hasSize(2);
+			assertThat(counts(instance).get(1L)).isCloseTo(50, within(0.01));
+			assertThat(counts(instance).get(2L)).isCloseTo(40, within(0.01));
+			instance.refreshRanking();
+			assertThat(instance.topProductIds(null, 10)).containsExactly(1L, 2L);
+		}
+	}
+
+	@Test
+	void viewsRecordedBetweenSyncsAreNotLost() {
+		TrendingServiceImpl instance = newInstance();
+		view(instance, 1L, 5);
+		instance.sync();
+		view(instance, 1L, 3);
+
+		// Chưa đẩy lên nhưng vẫn được tính cục bộ, lần sync kế tiếp chỉ cộng phần chênh lệch
+		assertThat(counts(instance).get(1L)).isCloseTo(8, within(0.01));
+		instance.sync();
+		instance.sync();
+		assertThat(counts(instance).get(1L)).isCloseTo(8, within(0.01));
+		assertThat(counts(newInstance()).get(1L)).isCloseTo(8, within(0.01));
+	}
+
+	@Test
+	void restartedInstanceKeepsWhatTheOthersFlushed() {
+		TrendingServiceImpl survivor = newInstance();
+		TrendingServiceImpl stopping = newInstance();
+		view(survivor, 1L, 10);
+		survivor.sync();
+		view(stopping, 2L, 7);
+		stopping.shutdown();
+
+		TrendingServiceImpl restarted = newInstance();
+		assertThat(counts(restarted)).containsOnlyKeys(1L, 2L);
+		assertThat(counts(restarted).get(2L)).isCloseTo(7, within(0.01));
+		assertThat(restarted.topProductIds(null, 10)).containsExactly(1L, 2L);
+
+		// Lần restore của instance mới không xóa số liệu của instance đang chạy
+		view(survivor, 1L, 2);
+		survivor.sync();
+		assertThat(counts(survivor).get(1L)).isCloseTo(12, within(0.01));
+		assertThat(counts(survivor).get(2L)).isCloseTo(7, within(0.01));
+	}
+
+	@Test
+	void legacySnapshotIsMigratedAndDecayedWeightsArePruned() {
+		long snapshotAt = System.currentTimeMillis() - 24 * HOUR;
+		redis.template().opsForHash().putAll("trending:products", Map.of("1", "40", "2", "0.08"));
+		redis.template().opsForValue().set("trending:snapshot-at", Long.toString(snapshotAt));
+
+		TrendingServiceImpl instance = newInstance();
+
+		// Sau một half-life: 40 còn 20, còn 0.08 xuống dưới minCount và bị xóa khỏi Redis
+		assertThat(counts(instance)).containsOnlyKeys(1L);
+		assertThat(counts(instance).get(1L)).isCloseTo(20, within(0.01));
+		assertThat(redis.template().hasKey("trending:products")).isFalse();
+		assertThat(redis.template().<String, String>opsForHash().keys("trending:weights")).containsExactly("1");
+	}
+
+	@Test
+	void staleSharedLandmarkIsMovedForward() {
+		long landmark = System.currentTimeMillis() - 100 * 24 * HOUR;
+		redis.template().opsForValue().set("trending:landmark", Long.toString(landmark));
+		// Weight ở mốc cũ của 10 lượt xem vừa xảy ra
+		redis.template().opsForHash().put("trending:weights", "1", Double.toString(10 * Math.pow(2, 100)));
+
+		TrendingServiceImpl instance = newInstance();
+
+		assertThat(counts(instance).get(1L)).isCloseTo(10, within(0.01));
+		long moved = Long.parseLong(redis.template().opsForValue().get("trending:landmark"));
+		assertThat(moved).isGreaterThan(landmark + 99 * 24 * HOUR);
+		assertThat(Double.parseDouble((String) redis.template().opsForHash().get("trending:weights", "1")))
+				.isCloseTo(10, within(0.01));
+	}
+
+	@Test
+	void deletedProductIsRemovedFromTheSharedCounts() {
+		TrendingServiceImpl instance = newInstance();
+		view(instance, 1L, 3);
+		view(instance, 2L, 3);
+		instance.sync();
+
+		instance.onProductChanged(new ProductChangedEvent(2L, ProductChangedEvent.Type.DELETED));
+
+		assertThat(counts(instance)).containsOnlyKeys(1L);
+		assertThat(counts(newInstance())).containsOnlyKeys(1L);
+	}
+}
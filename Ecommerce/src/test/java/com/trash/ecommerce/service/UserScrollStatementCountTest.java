@@ -0,0 +1,128 @@
+package com.trash.ecommerce.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import com.trash.ecommerce.dto.CursorPageDTO;
+import com.trash.ecommerce.dto.UserProfileDTO;
+import com.trash.ecommerce.mapper.UserMapper;
+import com.trash.ecommerce.support.StatementCounter;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * A page of the admin user scroll must not issue one roles SELECT per user.
+ */
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@Import({UserServiceImpl.class, UserMapper.class, UserScrollStatementCountTest.CountingDataSource.class})
+class UserScrollStatementCountTest {
+
+	private static final int USERS = 45;
+
+	@TestConfiguration
+	static class CountingDataSource {
+		@Bean
+		StatementCounter statementCounter() {
+			return new StatementCounter();
+		}
+
+		@Bean
+		static BeanPostProcessor countingDataSourcePostProcessor(@Autowired StatementCounter statementCounter) {
+			return new BeanPostProcessor() {
+				@Override
+				public Object postProcessAfterInitialization(Object bean, String beanName) {
+					return bean instanceof DataSource dataSource ? statementCounter.wrap(dataSource) : bean;
+				}
+			};
+		}
+	}
+
+	@Autowired
+	private UserService userService;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	@Autowired
+	private EntityManager entityManager;
+	@Autowired
+	private StatementCounter statementCounter;
+
+	@MockitoBean
+	private PasswordEncoder passwordEncoder;
+	@MockitoBean
+	private RoleService roleService;
+	@MockitoBean
+	private AuthenticationManager authenticationManager;
+	@MockitoBean
+	private JwtService jwtService;
+	@MockitoBean
+	private RedisTemplate<String, Object> redisTemplate;
+	@MockitoBean
+	private EmailService emailService;
+
+	@BeforeEach
+	void seedUsers() {
+		jdbcTemplate.update("INSERT INTO roles (id, role_name) VALUES (1, 'USER'), (2, 'ADMIN')");
+		for (long id = 1; id <= USERS; id++) {
+			jdbcTemplate.update("INSERT INTO users (id, email, password, address) VALUES (?, ?, 'x', '1 Le Loi')",
+					id, "user" + id + "@example.vn");
+			jdbcTemplate.update("INSERT INTO users_roles (user_id, role_id) VALUES (?, 1)", id);
+			if (id % 10 == 0) {
+				jdbcTemplate.update("INSERT INTO users_roles (user_id, role_id) VALUES (?, 2)", id);
+			}
+		}
+		entityManager.flush();
+		entityManager.clear();
+		statementCounter.reset();
+	}
+
+	@Test
+	void pageOfTwentyUsersTakesTwoStatements() {
+		CursorPageDTO<UserProfileDTO> page = userService.scrollUsers(null, 20);
+		List<String> statements = statementCounter.executed();
+
+		// id của trang, rồi users + roles của đúng các id đó
+		assertThat(statements).as(String.join("\n", statements)).hasSize(2);
+		assertThat(page.getItems()).extracting(UserProfileDTO::getId)
+				.containsExactlyElementsOf(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L,
+						11L, 12L, 13L, 14L, 15L, 16L, 17L, 18L, 19L, 20L));
+		assertThat(page.getItems().get(9).getRoles()).isEqualTo(Set.of("USER", "ADMIN"));
+		assertThat(page.getItems().get(0).getRoles()).isEqualTo(Set.of("USER"));
+		assertThat(page.getNextCursor()).isNotNull();
+	}
+
+	@Test
+	void cursorWalksEveryUserOnceAndEndsWithoutACursor() {
+		int seen = 0;
+		String cursor = null;
+		long lastId = 0;
+		do {
+			CursorPageDTO<UserProfileDTO> page = userService.scrollUsers(cursor, 20);
+			for (UserProfileDTO user : page.getItems()) {
+				assertThat(user.getId()).isGreaterThan(lastId);
+				lastId = user.getId();
+				seen++;
+			}
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+
+		assertThat(seen).isEqualTo(USERS);
+	}
+}
@@ -0,0 +1,59 @@
+package com.trash.ecommerce.support;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import redis.embedded.RedisServer;
+
+/**
+ * A real redis-server on a free local port, so Lua scripts run exactly as in production.
+ */
+public final class EmbeddedRedis implements AutoCloseable {
+
+	private final RedisServer server;
+	private final JedisConnectionFactory connectionFactory;
+	private final StringRedisTemplate template;
+
+	public EmbeddedRedis() {
+		try {
+			int port;
+			try (ServerSocket socket = new ServerSocket(0)) {
+				port = socket.getLocalPort();
+			}
+			server = RedisServer.newRedisServer().port(port).bind("127.0.0.1").setting("save \"\"").build();
+			server.start();
+			connectionFactory = new JedisConnectionFactory(new RedisStandaloneConfiguration("127.0.0.1", port));
+			connectionFactory.afterPropertiesSet();
+			connectionFactory.start();
+			template = new StringRedisTemplate(connectionFactory);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public JedisConnectionFactory connectionFactory() {
+		return connectionFactory;
+	}
+
+	public StringRedisTemplate template() {
+		return template;
+	}
+
+	public void flush() {
+		template.execute(connection -> {
+			connection.serverCommands().flushAll();
+			return null;
+		}, true);
+	}
+
+	@Override
+	public void close() throws IOException {
+		connectionFactory.destroy();
+		server.stop();
+	}
+}
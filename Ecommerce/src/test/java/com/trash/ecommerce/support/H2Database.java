@@ -0,0 +1,42 @@
+package com.trash.ecommerce.support;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/**
+ * In-memory H2 in MySQL mode for services that talk to the database through {@link JdbcTemplate}.
+ */
+public final class H2Database {
+
+	private final DataSource dataSource;
+	private final JdbcTemplate jdbcTemplate;
+	private final DataSourceTransactionManager transactionManager;
+
+	public H2Database(String name) {
+		dataSource = new DriverManagerDataSource(
+				"jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		transactionManager = new DataSourceTransactionManager(dataSource);
+	}
+
+	public JdbcTemplate jdbcTemplate() {
+		return jdbcTemplate;
+	}
+
+	public DataSourceTransactionManager transactionManager() {
+		return transactionManager;
+	}
+
+	public void execute(String... statements) {
+		for (String statement : statements) {
+			jdbcTemplate.execute(statement);
+		}
+	}
+
+	public void drop() {
+		jdbcTemplate.execute("DROP ALL OBJECTS");
+	}
+}
@@ -0,0 +1,95 @@
+package com.trash.ecommerce.support;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps a {@link DataSource} and records every statement sent to the database, whether it comes
+ * from Hibernate or a {@code JdbcTemplate}. A JDBC batch counts once, like the single round trip
+ * it becomes with {@code rewriteBatchedStatements}.
+ */
+public final class StatementCounter {
+
+	private final List<String> executed = Collections.synchronizedList(new ArrayList<>());
+
+	public DataSource wrap(DataSource dataSource) {
+		return proxy(DataSource.class, dataSource, (target, method, args) -> {
+			Object result = invoke(target, method, args);
+			return result instanceof Connection connection ? wrapConnection(connection) : result;
+		});
+	}
+
+	public void reset() {
+		executed.clear();
+	}
+
+	public List<String> executed() {
+		synchronized (executed) {
+			return List.copyOf(executed);
+		}
+	}
+
+	private Connection wrapConnection(Connection connection) {
+		return proxy(Connection.class, connection, (target, method, args) -> {
+			Object result = invoke(target, method, args);
+			if (result instanceof Statement statement) {
+				String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+				return wrapStatement(statement, sql);
+			}
+			return result;
+		});
+	}
+
+	@SuppressWarnings("unchecked")
+	private Statement wrapStatement(Statement statement, String preparedSql) {
+		Class<? extends Statement> type = (Class<? extends Statement>) interfaceOf(statement);
+		return proxy((Class<Statement>) type, statement, (target, method, args) -> {
+			if (method.getName().startsWith("execute")) {
+				String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : preparedSql;
+				executed.add(method.getName().equals("executeBatch") ? "[batch] " + sql : sql);
+			}
+			return invoke(target, method, args);
+		});
+	}
+
+	private static Class<?> interfaceOf(Statement statement) {
+		if (statement instanceof CallableStatement) {
+			return CallableStatement.class;
+		}
+		return statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+	}
+
+	private interface Handler<T> {
+		Object handle(T target, Method method, Object[] args) throws Throwable;
+	}
+
+	private static <T> T proxy(Class<T> type, T target, Handler<T> handler) {
+		InvocationHandler invocationHandler = (proxy, method, args) -> {
+			if (method.getName().equals("unwrap") || method.getName().equals("isWrapperFor")) {
+				return invoke(target, method, args);
+			}
+			return handler.handle(target, method, args);
+		};
+		return type.cast(Proxy.newProxyInstance(StatementCounter.class.getClassLoader(), new Class<?>[] {type},
+				invocationHandler));
+	}
+
+	private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+}